@@ -0,0 +1,88 @@
+package com.example.demo.config;
+
+import com.example.demo.matchmaking.FileMatchmakingQueueBackend;
+import com.example.demo.matchmaking.InMemoryMatchmakingQueueBackend;
+import com.example.demo.matchmaking.JournaledMatchmakingQueueBackend;
+import com.example.demo.matchmaking.MatchmakingJournal;
+import com.example.demo.matchmaking.MatchmakingQueueBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Configurazione dell'archivio delle code di matchmaking.
+ * Con {@code matchmaking.backend=memory} (default) le code sono locali all'istanza;
+ * con {@code matchmaking.backend=file} sono condivise tra tutte le istanze che puntano
+ * alla stessa directory. Con {@code matchmaking.journal.enabled=true} l'archivio in memoria
+ * registra ogni modifica in un journal su disco e ricostruisce le code al riavvio.
+ */
+@Configuration
+public class MatchmakingBackendConfig {
+
+    /**
+     * Directory del log condiviso delle code, usata dal backend su file.
+     */
+    @Value("${matchmaking.backend.file.directory:matchmaking-queue}")
+    private String fileDirectory;
+
+    /**
+     * Crescita del log condiviso, in kilobyte, oltre la quale viene compattato appena tutte
+     * le istanze lo hanno letto.
+     */
+    @Value("${matchmaking.backend.file.compaction-threshold-kb:1024}")
+    private long fileCompactionThresholdKb;
+
+    /**
+     * Abilita il journal su disco dell'archivio in memoria.
+     */
+    @Value("${matchmaking.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    /**
+     * Directory del journal.
+     */
+    @Value("${matchmaking.journal.directory:matchmaking-journal}")
+    private String journalDirectory;
+
+    /**
+     * Dimensione di un segmento del journal, in megabyte.
+     */
+    @Value("${matchmaking.journal.segment-size-mb:64}")
+    private int journalSegmentSizeMb;
+
+    /**
+     * Intervallo tra due snapshot compatti del journal, in millisecondi.
+     */
+    @Value("${matchmaking.journal.snapshot-interval-ms:60000}")
+    private long journalSnapshotIntervalMs;
+
+    /**
+     * Archivio in memoria, valido per una singola istanza, eventualmente con journal su disco.
+     *
+     * @return l'istanza di MatchmakingQueueBackend.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "matchmaking.backend", havingValue = "memory", matchIfMissing = true)
+    public MatchmakingQueueBackend inMemoryMatchmakingQueueBackend() {
+        if (!journalEnabled) {
+            return new InMemoryMatchmakingQueueBackend();
+        }
+        MatchmakingJournal journal = new MatchmakingJournal(Path.of(journalDirectory),
+                journalSegmentSizeMb * 1024 * 1024, journalSnapshotIntervalMs);
+        return new JournaledMatchmakingQueueBackend(new InMemoryMatchmakingQueueBackend(), journal);
+    }
+
+    /**
+     * Archivio condiviso su file, per più istanze dell'applicazione.
+     *
+     * @return l'istanza di MatchmakingQueueBackend.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "matchmaking.backend", havingValue = "file")
+    public MatchmakingQueueBackend fileMatchmakingQueueBackend() {
+        return new FileMatchmakingQueueBackend(Path.of(fileDirectory), fileCompactionThresholdKb * 1024);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Configurazione dei parametri del matchmaking.
+ */
+@Configuration
+public class MatchmakingConfig {
+
+    /**
+     * Differenza massima di rating accettata tra due giocatori accoppiati.
+     */
+    @Value("${matchmaking.rating.max-gap:200}")
+    private int maxRatingGap;
+
+    /**
+     * Intervallo di attesa dopo cui la finestra di rating di un giocatore viene allargata.
+     */
+    @Value("${matchmaking.widening.step-ms:5000}")
+    private long wideningStepMs;
+
+    /**
+     * Incremento della finestra di rating a ogni passo di allargamento (0 = disattivato).
+     */
+    @Value("${matchmaking.widening.step-gap:100}")
+    private int wideningStepGap;
+
+    /**
+     * Finestra di rating massima raggiungibile con l'attesa.
+     */
+    @Value("${matchmaking.widening.max-gap:800}")
+    private int wideningMaxGap;
+
+    /**
+     * Intervallo tra due tick del matchmaker, in millisecondi.
+     */
+    @Value("${matchmaking.tick.interval-ms:50}")
+    private long tickIntervalMs;
+
+    /**
+     * Numero massimo di ingressi in coda elaborati a ogni tick.
+     */
+    @Value("${matchmaking.tick.batch-size:500}")
+    private int tickBatchSize;
+
+    /**
+     * Modalità di gioco disponibili. La prima è quella di default.
+     */
+    @Value("${matchmaking.modes:default}")
+    private List<String> modes;
+
+    /**
+     * Regioni disponibili. La prima è quella di default.
+     */
+    @Value("${matchmaking.regions:global}")
+    private List<String> regions;
+
+    /**
+     * Numero di thread su cui distribuire i matcher degli shard (0 = numero di core).
+     */
+    @Value("${matchmaking.matcher-threads:0}")
+    private int matcherThreads;
+
+    /**
+     * Numero di giocatori per squadra nel matchmaking a squadre (da 1 a 5).
+     */
+    @Value("${matchmaking.team.size:5}")
+    private int teamSize;
+
+    /**
+     * Intervallo tra due aggiornamenti in blocco delle statistiche con i risultati dei match.
+     */
+    @Value("${matchmaking.stats.flush-interval-ms:1000}")
+    private long statsFlushIntervalMs;
+
+    /**
+     * Tempo concesso ai giocatori per confermare un match trovato, prima che venga annullato.
+     */
+    @Value("${matchmaking.ready-check.timeout-ms:15000}")
+    private long readyCheckTimeoutMs;
+
+    /**
+     * Numero di thread che consegnano le notifiche dei match.
+     */
+    @Value("${matchmaking.notification.threads:2}")
+    private int notificationThreads;
+
+    /**
+     * Notifiche in attesa di consegna per ogni thread, oltre le quali vengono scartate.
+     */
+    @Value("${matchmaking.notification.queue-capacity:10000}")
+    private int notificationQueueCapacity;
+
+    /**
+     * Se attivo, i giocatori senza una connessione WebSocket aperta non vengono accoppiati
+     * e vengono rimossi dalla coda quando si disconnettono.
+     */
+    @Value("${matchmaking.presence.enabled:true}")
+    private boolean presenceEnabled;
+
+    /**
+     * Tempo concesso a un giocatore disconnesso per riconnettersi prima di essere rimosso dalla coda.
+     */
+    @Value("${matchmaking.presence.grace-period-ms:10000}")
+    private long presenceGracePeriodMs;
+
+    public int getMaxRatingGap() {
+        return maxRatingGap;
+    }
+
+    public long getWideningStepMs() {
+        return wideningStepMs;
+    }
+
+    public int getWideningStepGap() {
+        return wideningStepGap;
+    }
+
+    public int getWideningMaxGap() {
+        return wideningMaxGap;
+    }
+
+    public long getTickIntervalMs() {
+        return tickIntervalMs;
+    }
+
+    public int getTickBatchSize() {
+        return tickBatchSize;
+    }
+
+    public List<String> getModes() {
+        return modes;
+    }
+
+    public List<String> getRegions() {
+        return regions;
+    }
+
+    public int getTeamSize() {
+        return teamSize;
+    }
+
+    public long getStatsFlushIntervalMs() {
+        return statsFlushIntervalMs;
+    }
+
+    public long getReadyCheckTimeoutMs() {
+        return readyCheckTimeoutMs;
+    }
+
+    public int getNotificationThreads() {
+        return notificationThreads;
+    }
+
+    public int getNotificationQueueCapacity() {
+        return notificationQueueCapacity;
+    }
+
+    public boolean isPresenceEnabled() {
+        return presenceEnabled;
+    }
+
+    public long getPresenceGracePeriodMs() {
+        return presenceGracePeriodMs;
+    }
+
+    /**
+     * @return Numero di thread dei matcher, risolto sul numero di core se non configurato.
+     */
+    public int getMatcherThreads() {
+        return matcherThreads > 0 ? matcherThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
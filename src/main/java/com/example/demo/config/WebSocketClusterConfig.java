@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import com.example.demo.websocket.InProcessNodeMessageBus;
+import com.example.demo.websocket.InProcessSessionDirectory;
+import com.example.demo.websocket.NodeMessageBus;
+import com.example.demo.websocket.SessionDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configurazione dell'instradamento dei messaggi WebSocket tra le istanze.
+ * Con {@code websocket.cluster.backend=local} (default) directory delle sessioni e canale tra
+ * i nodi sono in memoria, validi per una singola istanza; altri backend possono fornire
+ * implementazioni distribuite di {@link SessionDirectory} e {@link NodeMessageBus}.
+ */
+@Configuration
+public class WebSocketClusterConfig {
+
+    /**
+     * Directory delle sessioni in memoria.
+     *
+     * @return l'istanza di SessionDirectory.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.backend", havingValue = "local", matchIfMissing = true)
+    public SessionDirectory inProcessSessionDirectory() {
+        return new InProcessSessionDirectory();
+    }
+
+    /**
+     * Canale tra i nodi in memoria.
+     *
+     * @return l'istanza di NodeMessageBus.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.backend", havingValue = "local", matchIfMissing = true)
+    public NodeMessageBus inProcessNodeMessageBus() {
+        return new InProcessNodeMessageBus();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.config;
 
+import com.example.demo.websocket.JwtHandshakeInterceptor;
 import com.example.demo.websocket.WebSocketMessageHandler;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -15,14 +16,17 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final WebSocketMessageHandler messageHandler;
+    private final JwtHandshakeInterceptor handshakeInterceptor;
 
     /**
-     * Costruttore con dipendenza iniettata.
+     * Costruttore con dipendenze iniettate.
      *
-     * @param messageHandler Handler per la gestione dei messaggi WebSocket.
+     * @param messageHandler       Handler per la gestione dei messaggi WebSocket.
+     * @param handshakeInterceptor Autenticazione dei giocatori all'handshake.
      */
-    public WebSocketConfig(WebSocketMessageHandler messageHandler) {
+    public WebSocketConfig(WebSocketMessageHandler messageHandler, JwtHandshakeInterceptor handshakeInterceptor) {
         this.messageHandler = messageHandler;
+        this.handshakeInterceptor = handshakeInterceptor;
     }
 
     /**
@@ -33,6 +37,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(messageHandler, "/ws")
+                .addInterceptors(handshakeInterceptor) // Token verificato una sola volta, prima dell'upgrade
                 .setAllowedOrigins(getAllowedOrigins()); // Origini consentite configurabili
     }
 
@@ -0,0 +1,217 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+import java.util.Locale;
+
+/**
+ * Configurazione delle sessioni WebSocket dei giocatori.
+ */
+@Configuration
+public class WebSocketSessionConfig {
+
+    /**
+     * Identificativo di questa istanza nella directory delle sessioni; casuale se non configurato.
+     */
+    @Value("${websocket.node-id:${random.uuid}}")
+    private String nodeId;
+
+    /**
+     * Tempo massimo di un singolo invio a un client prima che la sessione venga chiusa.
+     */
+    @Value("${websocket.send.time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    /**
+     * Byte massimi in attesa di invio per sessione.
+     */
+    @Value("${websocket.send.buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    /**
+     * Comportamento al superamento del buffer: {@code disconnect} chiude la sessione,
+     * {@code drop} scarta i messaggi più vecchi in attesa.
+     */
+    @Value("${websocket.send.overflow-policy:disconnect}")
+    private String sendOverflowPolicy;
+
+    /**
+     * Thread dedicati alla consegna dei broadcast alle stanze.
+     */
+    @Value("${websocket.broadcast.threads:2}")
+    private int broadcastThreads;
+
+    /**
+     * Iscritti consegnati da un thread in un solo blocco durante un broadcast.
+     */
+    @Value("${websocket.broadcast.chunk-size:256}")
+    private int broadcastChunkSize;
+
+    /**
+     * Silenzio del client dopo cui il server invia un ping.
+     */
+    @Value("${websocket.heartbeat.interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    /**
+     * Risoluzione del timer di heartbeat.
+     */
+    @Value("${websocket.heartbeat.tick-ms:500}")
+    private long heartbeatTickMs;
+
+    /**
+     * Silenzio del client, pong compresi, dopo cui la sessione viene chiusa.
+     */
+    @Value("${websocket.idle-timeout-ms:45000}")
+    private long idleTimeoutMs;
+
+    /**
+     * Comandi di una sessione in esecuzione contemporaneamente; i successivi vengono rifiutati.
+     */
+    @Value("${websocket.commands.max-in-flight:8}")
+    private int maxCommandsInFlight;
+
+    /**
+     * Messaggi conservati per giocatore per la ripresa della sessione.
+     */
+    @Value("${websocket.replay.capacity:64}")
+    private int replayCapacity;
+
+    /**
+     * Tempo per cui i messaggi di un giocatore disconnesso restano disponibili per la ripresa.
+     */
+    @Value("${websocket.replay.retention-ms:120000}")
+    private long replayRetentionMs;
+
+    /**
+     * Messaggi ricevuti al secondo per sessione.
+     */
+    @Value("${websocket.inbound.messages-per-second:20}")
+    private long inboundMessagesPerSecond;
+
+    /**
+     * Byte ricevuti al secondo per sessione.
+     */
+    @Value("${websocket.inbound.bytes-per-second:65536}")
+    private long inboundBytesPerSecond;
+
+    /**
+     * Messaggi ricevuti al secondo per giocatore, su tutte le sue connessioni.
+     */
+    @Value("${websocket.inbound.player.messages-per-second:40}")
+    private long inboundPlayerMessagesPerSecond;
+
+    /**
+     * Byte ricevuti al secondo per giocatore, su tutte le sue connessioni.
+     */
+    @Value("${websocket.inbound.player.bytes-per-second:131072}")
+    private long inboundPlayerBytesPerSecond;
+
+    /**
+     * Raffica tollerata oltre il ritmo, espressa come tempo di traffico al ritmo massimo.
+     */
+    @Value("${websocket.inbound.burst-ms:2000}")
+    private long inboundBurstMs;
+
+    /**
+     * Messaggi scartati, al netto di uno al secondo, dopo cui il client riceve un avviso.
+     */
+    @Value("${websocket.inbound.warn-after:5}")
+    private long inboundWarnAfter;
+
+    /**
+     * Messaggi scartati, al netto di uno al secondo, dopo cui la sessione viene chiusa.
+     */
+    @Value("${websocket.inbound.close-after:20}")
+    private long inboundCloseAfter;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getInboundMessagesPerSecond() {
+        return inboundMessagesPerSecond;
+    }
+
+    public long getInboundBytesPerSecond() {
+        return inboundBytesPerSecond;
+    }
+
+    public long getInboundPlayerMessagesPerSecond() {
+        return inboundPlayerMessagesPerSecond;
+    }
+
+    public long getInboundPlayerBytesPerSecond() {
+        return inboundPlayerBytesPerSecond;
+    }
+
+    public long getInboundBurstMs() {
+        return inboundBurstMs;
+    }
+
+    public long getInboundWarnAfter() {
+        return inboundWarnAfter;
+    }
+
+    public long getInboundCloseAfter() {
+        return inboundCloseAfter;
+    }
+
+    public int getReplayCapacity() {
+        return replayCapacity;
+    }
+
+    public long getReplayRetentionMs() {
+        return replayRetentionMs;
+    }
+
+    public int getMaxCommandsInFlight() {
+        return maxCommandsInFlight;
+    }
+
+    public int getSendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    public int getSendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+
+    public String getSendOverflowPolicy() {
+        return sendOverflowPolicy;
+    }
+
+    public int getBroadcastThreads() {
+        return broadcastThreads;
+    }
+
+    public int getBroadcastChunkSize() {
+        return broadcastChunkSize;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public long getHeartbeatTickMs() {
+        return heartbeatTickMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    /**
+     * @return Strategia del buffer di invio corrispondente alla politica configurata.
+     * @throws IllegalArgumentException Se la politica non è {@code disconnect} né {@code drop}.
+     */
+    public OverflowStrategy getSendOverflowStrategy() {
+        return switch (sendOverflowPolicy.trim().toLowerCase(Locale.ROOT)) {
+            case "disconnect" -> OverflowStrategy.TERMINATE;
+            case "drop" -> OverflowStrategy.DROP;
+            default -> throw new IllegalArgumentException("Unknown WebSocket overflow policy: " + sendOverflowPolicy);
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.controller;
+
+import com.example.demo.dtos.MatchResponse;
+import com.example.demo.matchmaking.Match;
+import com.example.demo.service.MatchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Controller per la gestione dei match creati dal matchmaking.
+ * Fornisce endpoint per consultare un match, confermare la partecipazione,
+ * avviare la partita e riportarne il risultato.
+ */
+@RestController
+@RequestMapping("/api/matches")
+public class MatchController {
+
+    private final MatchService matchService;
+
+    /**
+     * Costruttore con dipendenze iniettate.
+     *
+     * @param matchService Servizio per la gestione dei match.
+     */
+    public MatchController(MatchService matchService) {
+        this.matchService = matchService;
+    }
+
+    /**
+     * Endpoint per consultare un match.
+     *
+     * @param matchId ID del match.
+     * @return Il match, o 404 se non esiste.
+     */
+    @GetMapping("/{matchId}")
+    public ResponseEntity<?> getMatch(@PathVariable String matchId) {
+        return withMatch(matchId, match -> { });
+    }
+
+    /**
+     * Endpoint per confermare la partecipazione di un giocatore a un match.
+     *
+     * @param matchId  ID del match.
+     * @param playerId ID del giocatore, passato come parametro di richiesta.
+     * @return Il match aggiornato, 404 se non esiste o 400 se il giocatore non partecipa.
+     */
+    @PostMapping("/{matchId}/ready")
+    public ResponseEntity<?> markReady(@PathVariable String matchId, @RequestParam String playerId) {
+        return withMatch(matchId, match -> matchService.markReady(match, playerId));
+    }
+
+    /**
+     * Endpoint per avviare la partita di un match pronto. Solo un partecipante può avviarla.
+     *
+     * @param matchId  ID del match.
+     * @param playerId ID del giocatore che avvia la partita, passato come parametro di richiesta.
+     * @return Il match aggiornato, 404 se non esiste o 400 se il giocatore non partecipa.
+     */
+    @PostMapping("/{matchId}/start")
+    public ResponseEntity<?> start(@PathVariable String matchId, @RequestParam String playerId) {
+        return withMatch(matchId, match -> matchService.start(match, playerId));
+    }
+
+    /**
+     * Endpoint per riportare il risultato di una partita in corso. Solo un partecipante può
+     * riportarlo.
+     *
+     * @param matchId     ID del match.
+     * @param playerId    ID del giocatore che riporta il risultato, passato come parametro di richiesta.
+     * @param winningTeam Squadra vincitrice (1 o 2), passata come parametro di richiesta.
+     * @return Il match aggiornato, 404 se non esiste o 400 se il giocatore non partecipa.
+     */
+    @PostMapping("/{matchId}/result")
+    public ResponseEntity<?> reportResult(@PathVariable String matchId, @RequestParam String playerId,
+                                          @RequestParam int winningTeam) {
+        return withMatch(matchId, match -> matchService.reportResult(match, playerId, winningTeam));
+    }
+
+    private ResponseEntity<?> withMatch(String matchId, Consumer<Match> action) {
+        Optional<Match> match = matchService.getMatch(matchId);
+        if (match.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "Match not found."));
+        }
+        action.accept(match.get());
+        return ResponseEntity.ok(MatchResponse.of(match.get()));
+    }
+}
@@ -1,14 +1,16 @@
 package com.example.demo.controller;
 
 import com.example.demo.service.MatchmakingService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * Controller per la gestione del matchmaking.
- * Fornisce endpoint per aggiungere o rimuovere giocatori dalla coda.
+ * Fornisce endpoint per aggiungere o rimuovere giocatori e party dalla coda.
  */
 @RestController
 @RequestMapping("/api/matchmaking")
@@ -27,18 +29,23 @@ public class MatchmakingController {
 
     /**
      * Endpoint per aggiungere un giocatore alla coda di matchmaking.
+     * Modalità e regione selezionano lo shard; se assenti viene usato quello di default.
      *
      * @param playerId ID del giocatore, passato come parametro di richiesta.
+     * @param mode     Modalità di gioco (opzionale).
+     * @param region   Regione (opzionale).
      * @return Risposta con il risultato dell'operazione.
      */
     @PostMapping("/join")
-    public ResponseEntity<Map<String, String>> joinQueue(@RequestParam String playerId) {
+    public ResponseEntity<Map<String, String>> joinQueue(@RequestParam String playerId,
+                                                         @RequestParam(required = false) String mode,
+                                                         @RequestParam(required = false) String region) {
         if (playerId == null || playerId.isBlank()) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "Player ID cannot be null or empty."));
         }
 
-        String message = matchmakingService.addToQueue(playerId);
+        String message = matchmakingService.addToQueue(playerId, mode, region);
         return ResponseEntity.ok(Map.of("message", message));
     }
 
@@ -58,4 +65,58 @@ public class MatchmakingController {
         String message = matchmakingService.removeFromQueue(playerId);
         return ResponseEntity.ok(Map.of("message", message));
     }
+
+    /**
+     * Endpoint per consultare lo stato di un giocatore in coda: finestra di rating
+     * accettata in questo momento e tempo di attesa.
+     *
+     * @param playerId ID del giocatore, passato come parametro di richiesta.
+     * @return Stato del giocatore, o 404 se non è in coda.
+     */
+    @GetMapping("/status")
+    public ResponseEntity<?> queueStatus(@RequestParam String playerId) {
+        return matchmakingService.getQueueStatus(playerId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "You are not in the matchmaking queue.")));
+    }
+
+    /**
+     * Endpoint per aggiungere un party alla coda di matchmaking a squadre.
+     * Modalità e regione selezionano lo shard; se assenti viene usato quello di default.
+     *
+     * @param playerIds ID dei membri del party, passati come parametro di richiesta ripetuto.
+     * @param mode      Modalità di gioco (opzionale).
+     * @param region    Regione (opzionale).
+     * @return Risposta con il risultato dell'operazione.
+     */
+    @PostMapping("/party/join")
+    public ResponseEntity<Map<String, String>> joinPartyQueue(@RequestParam List<String> playerIds,
+                                                              @RequestParam(required = false) String mode,
+                                                              @RequestParam(required = false) String region) {
+        if (playerIds == null || playerIds.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Player ID cannot be null or empty."));
+        }
+
+        String message = matchmakingService.addPartyToQueue(playerIds, mode, region);
+        return ResponseEntity.ok(Map.of("message", message));
+    }
+
+    /**
+     * Endpoint per rimuovere dalla coda a squadre il party di un giocatore.
+     *
+     * @param playerId ID di un membro del party, passato come parametro di richiesta.
+     * @return Risposta con il risultato dell'operazione.
+     */
+    @PostMapping("/party/leave")
+    public ResponseEntity<Map<String, String>> leavePartyQueue(@RequestParam String playerId) {
+        if (playerId == null || playerId.isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Player ID cannot be null or empty."));
+        }
+
+        String message = matchmakingService.removePartyFromQueue(playerId);
+        return ResponseEntity.ok(Map.of("message", message));
+    }
 }
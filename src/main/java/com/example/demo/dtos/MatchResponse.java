@@ -0,0 +1,76 @@
+package com.example.demo.dtos;
+
+import com.example.demo.enums.MatchState;
+import com.example.demo.matchmaking.Match;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rappresentazione di un match restituita dalle API.
+ */
+public class MatchResponse {
+
+    private final String matchId;
+    private final String queue;
+    private final MatchState state;
+    private final List<String> firstTeam;
+    private final List<String> secondTeam;
+    private final Set<String> readyPlayers;
+    private final int winningTeam;
+    private final long createdAtMillis;
+
+    private MatchResponse(Match match) {
+        this.matchId = match.getMatchId();
+        this.queue = match.getQueue().toString();
+        this.state = match.getState();
+        this.firstTeam = match.getFirstTeam();
+        this.secondTeam = match.getSecondTeam();
+        this.readyPlayers = match.getReadyPlayers();
+        this.winningTeam = match.getWinningTeam();
+        this.createdAtMillis = match.getCreatedAtMillis();
+    }
+
+    /**
+     * @param match Match da rappresentare.
+     * @return La rappresentazione del match.
+     */
+    public static MatchResponse of(Match match) {
+        return new MatchResponse(match);
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public MatchState getState() {
+        return state;
+    }
+
+    public List<String> getFirstTeam() {
+        return firstTeam;
+    }
+
+    public List<String> getSecondTeam() {
+        return secondTeam;
+    }
+
+    public Set<String> getReadyPlayers() {
+        return readyPlayers;
+    }
+
+    /**
+     * @return Squadra vincitrice (1 o 2), o 0 se il match non è terminato.
+     */
+    public int getWinningTeam() {
+        return winningTeam;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+}
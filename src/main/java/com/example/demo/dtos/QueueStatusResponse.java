@@ -0,0 +1,41 @@
+package com.example.demo.dtos;
+
+/**
+ * Stato di un giocatore nella coda di matchmaking.
+ */
+public class QueueStatusResponse {
+
+    private final String playerId;
+    private final String queue;
+    private final int ratingWindow;
+    private final long waitedMs;
+
+    /**
+     * @param playerId     ID del giocatore.
+     * @param queue        Coda in cui si trova (modalità/regione).
+     * @param ratingWindow Differenza di rating accettata in questo momento.
+     * @param waitedMs     Tempo trascorso in coda, in millisecondi.
+     */
+    public QueueStatusResponse(String playerId, String queue, int ratingWindow, long waitedMs) {
+        this.playerId = playerId;
+        this.queue = queue;
+        this.ratingWindow = ratingWindow;
+        this.waitedMs = waitedMs;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public int getRatingWindow() {
+        return ratingWindow;
+    }
+
+    public long getWaitedMs() {
+        return waitedMs;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dtos;
+
+/**
+ * Comando di matchmaking inviato dal client sulla connessione WebSocket.
+ * Il giocatore è sempre quello autenticato dalla sessione, mai un campo del comando.
+ *
+ * @param type      Tipo di comando: {@code join}, {@code leave}, {@code status} o {@code accept-match}.
+ * @param requestId Identificativo scelto dal client, ripetuto nella risposta (opzionale).
+ * @param mode      Modalità di gioco, per {@code join} (opzionale).
+ * @param region    Regione, per {@code join} (opzionale).
+ * @param matchId   ID del match da confermare, per {@code accept-match}.
+ */
+public record SocketCommand(String type, String requestId, String mode, String region, String matchId) {
+}
@@ -0,0 +1,47 @@
+package com.example.demo.enums;
+
+/**
+ * Enum che rappresenta gli stati del ciclo di vita di un match.
+ * Gli stati si susseguono sempre nello stesso ordine: FOUND → READY → IN_PROGRESS → FINISHED.
+ * Un match non confermato da tutti i giocatori passa da FOUND a CANCELLED.
+ */
+public enum MatchState {
+
+    /**
+     * Il match è stato creato dal matchmaking, in attesa della conferma dei giocatori.
+     */
+    FOUND,
+
+    /**
+     * Tutti i giocatori hanno confermato.
+     */
+    READY,
+
+    /**
+     * La partita è in corso.
+     */
+    IN_PROGRESS,
+
+    /**
+     * La partita è terminata e il risultato è stato registrato.
+     */
+    FINISHED,
+
+    /**
+     * Il match è stato annullato perché non tutti i giocatori hanno confermato.
+     */
+    CANCELLED;
+
+    /**
+     * Verifica se da questo stato si può passare a quello indicato.
+     *
+     * @param next Stato di destinazione.
+     * @return true se la transizione è ammessa.
+     */
+    public boolean canTransitionTo(MatchState next) {
+        if (next == CANCELLED) {
+            return this == FOUND;
+        }
+        return this != CANCELLED && next.ordinal() == ordinal() + 1;
+    }
+}
@@ -0,0 +1,534 @@
+package com.example.demo.matchmaking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Archivio delle code di matchmaking condiviso tra più istanze tramite un log su file.
+ * Tutte le istanze che puntano alla stessa directory scrivono gli eventi in coda a un unico
+ * file ({@code queue.log}) e ricostruiscono da questo la propria vista delle code.
+ *
+ * <p>Il log inizia con un'intestazione di lunghezza fissa
+ * ({@code G generazione fineSnapshot}), seguita da righe separate da tabulazione:</p>
+ * <ul>
+ *     <li>{@code J mode region playerId rating enqueuedAtMillis}: ingresso in coda;</li>
+ *     <li>{@code L playerId}: uscita dalla coda;</li>
+ *     <li>{@code C playerId1 playerId2}: match assegnato.</li>
+ * </ul>
+ *
+ * <p>Ogni operazione avviene sotto un lock esclusivo sul file, dopo aver allineato la vista
+ * locale: i controlli (giocatore già in coda, giocatori ancora disponibili per un match)
+ * e la scrittura dell'evento sono quindi atomici per l'intero cluster. Il log viene letto
+ * a blocchi di dimensione fissa.</p>
+ *
+ * <p>Ogni istanza pubblica in {@code consumers/} la posizione letta, in un file su cui tiene
+ * un lock finché è aperta. Quando il log è cresciuto oltre la soglia di compattazione e tutte
+ * le istanze attive lo hanno letto per intero, viene riscritto con un solo ingresso per ogni
+ * giocatore ancora in coda e con la generazione successiva nell'intestazione: le altre
+ * istanze, già allineate, riprendono a leggere dalla fine del nuovo snapshot. I file delle
+ * istanze terminate senza chiudere l'archivio vengono rimossi.</p>
+ *
+ * <p>La riscrittura non è atomica rispetto a un crash: l'archivio è pensato per ambienti di
+ * sviluppo e test con più istanze sulla stessa macchina o su un volume condiviso.</p>
+ */
+public class FileMatchmakingQueueBackend implements MatchmakingQueueBackend, Closeable {
+
+    private static final String LOG_FILE = "queue.log";
+    private static final String CONSUMERS_DIRECTORY = "consumers";
+    private static final String CURSOR_SUFFIX = ".cursor";
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // "G\t" + generazione + "\t" + fine dello snapshot + "\n", numeri su 19 cifre
+    private static final int HEADER_LENGTH = 42;
+    private static final int GENERATION_OFFSET = 2;
+    private static final int SNAPSHOT_END_OFFSET = 22;
+    private static final int CURSOR_LENGTH = 2 * Long.BYTES;
+
+    // Il lock su file è per processo: le istanze nella stessa JVM si coordinano anche in memoria
+    private static final ConcurrentHashMap<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private record Entry(QueueKey key, QueuedPlayer player) {
+    }
+
+    private static final class Shard {
+        final IndexedQueue<String> pendingJoins = new IndexedQueue<>();
+        final ConcurrentLinkedQueue<String> departures = new ConcurrentLinkedQueue<>();
+        int size;
+    }
+
+    /**
+     * Operazione eseguita sotto il lock del log, con la vista locale allineata.
+     */
+    @FunctionalInterface
+    private interface LogAction<T> {
+        T run() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final ReentrantLock jvmLock;
+    private final Path consumersDirectory;
+    private final Path cursorFile;
+    private final FileChannel cursorChannel;
+    private final long compactionThreshold;
+
+    // Vista locale delle code, protetta dal monitor dell'istanza
+    private final Map<String, Entry> queuedPlayers = new LinkedHashMap<>();
+    private final Map<QueueKey, Shard> shards = new HashMap<>();
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH);
+    private final ByteBuffer cursorBuffer = ByteBuffer.allocate(CURSOR_LENGTH);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(CHUNK_SIZE);
+    private long generation = -1;
+    private long snapshotEnd;
+    private long readOffset;
+    private long publishedGeneration = -1;
+    private long publishedOffset = -1;
+    private boolean compactionPending;
+
+    /**
+     * @param directory Directory condivisa in cui si trova il log delle code.
+     */
+    public FileMatchmakingQueueBackend(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param directory           Directory condivisa in cui si trova il log delle code.
+     * @param compactionThreshold Byte scritti dopo l'ultimo snapshot oltre i quali il log
+     *                            viene compattato, appena tutte le istanze lo hanno letto.
+     */
+    public FileMatchmakingQueueBackend(Path directory, long compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactionThreshold);
+        }
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Path root = directory.toAbsolutePath().normalize();
+            this.consumersDirectory = root.resolve(CONSUMERS_DIRECTORY);
+            Files.createDirectories(consumersDirectory);
+            Path logFile = root.resolve(LOG_FILE);
+            this.channel = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.jvmLock = JVM_LOCKS.computeIfAbsent(logFile, path -> new ReentrantLock());
+
+            // Il file della posizione compare nella directory solo dopo aver preso il lock,
+            // così che non venga mai scambiato per quello di un'istanza terminata
+            String consumerId = UUID.randomUUID().toString();
+            Path pendingFile = consumersDirectory.resolve(consumerId + ".tmp");
+            this.cursorFile = consumersDirectory.resolve(consumerId + CURSOR_SUFFIX);
+            this.cursorChannel = FileChannel.open(pendingFile,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            cursorChannel.lock();
+            Files.move(pendingFile, cursorFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open matchmaking queue log in " + directory, e);
+        }
+        locked(() -> null);
+    }
+
+    @Override
+    public boolean join(QueueKey key, QueuedPlayer player) {
+        String playerId = player.getPlayerId();
+        if (playerId.indexOf('\t') >= 0 || playerId.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Player ID contains invalid characters.");
+        }
+        return appendIf(() -> !queuedPlayers.containsKey(playerId), joinLine(key, player));
+    }
+
+    @Override
+    public boolean leave(String playerId) {
+        return appendIf(() -> isQueued(playerId), "L\t" + playerId);
+    }
+
+    @Override
+    public QueueKey queueOf(String playerId) {
+        return locked(() -> {
+            Entry entry = queuedPlayers.get(playerId);
+            return entry != null && entry.player().isWaiting() ? entry.key() : null;
+        });
+    }
+
+    @Override
+    public QueuedPlayer find(String playerId) {
+        return locked(() -> {
+            Entry entry = queuedPlayers.get(playerId);
+            return entry != null && entry.player().isWaiting() ? entry.player() : null;
+        });
+    }
+
+    @Override
+    public int size(QueueKey key) {
+        return locked(() -> shard(key).size);
+    }
+
+    @Override
+    public int drainJoins(QueueKey key, int max, Consumer<QueuedPlayer> sink) {
+        return locked(() -> {
+            Shard shard = shard(key);
+            int drained = 0;
+            String playerId;
+            while (drained < max && (playerId = shard.pendingJoins.poll()) != null) {
+                Entry entry = queuedPlayers.get(playerId);
+                if (entry != null && entry.player().isWaiting()) {
+                    sink.accept(entry.player());
+                    drained++;
+                }
+            }
+            return drained;
+        });
+    }
+
+    @Override
+    public void drainDepartures(QueueKey key, Consumer<String> sink) {
+        locked(() -> {
+            Shard shard = shard(key);
+            String playerId;
+            while ((playerId = shard.departures.poll()) != null) {
+                sink.accept(playerId);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Verifica sulla vista locale, senza rileggere il log: un giocatore uscito su un'altra
+     * istanza viene comunque escluso da {@link #claim}, che allinea la vista sotto lock.
+     */
+    @Override
+    public synchronized boolean isWaiting(QueuedPlayer player) {
+        return player.isWaiting();
+    }
+
+    @Override
+    public boolean claim(QueuedPlayer first, QueuedPlayer second) {
+        return appendIf(() -> isCurrent(first) && isCurrent(second),
+                "C\t" + first.getPlayerId() + "\t" + second.getPlayerId());
+    }
+
+    /**
+     * Chiude il log e rimuove il file della posizione: l'istanza non blocca più la
+     * compattazione.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            // La chiusura del canale rilascia anche il lock sul file della posizione
+            cursorChannel.close();
+            Files.deleteIfExists(cursorFile);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private boolean isQueued(String playerId) {
+        Entry entry = queuedPlayers.get(playerId);
+        return entry != null && entry.player().isWaiting();
+    }
+
+    private boolean isCurrent(QueuedPlayer player) {
+        Entry entry = queuedPlayers.get(player.getPlayerId());
+        return entry != null && entry.player() == player && player.isWaiting();
+    }
+
+    /**
+     * Allinea la vista locale e, se la condizione è ancora vera, scrive l'evento nel log.
+     * Condizione e scrittura sono eseguite sotto il lock esclusivo del file.
+     */
+    private boolean appendIf(BooleanSupplier condition, String line) {
+        return locked(() -> {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            write(line + "\n", channel.size());
+            catchUp();
+            return true;
+        });
+    }
+
+    /**
+     * Esegue l'operazione sotto il lock della JVM, quello esclusivo del file e il monitor
+     * dell'istanza, dopo aver allineato la vista locale. Se la vista è avanzata, al termine
+     * prova a compattare il log.
+     */
+    private <T> T locked(LogAction<T> action) {
+        jvmLock.lock();
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                synchronized (this) {
+                    catchUp();
+                    T result = action.run();
+                    if (compactionPending) {
+                        compactionPending = false;
+                        compactIfConsumed();
+                    }
+                    return result;
+                }
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to access the matchmaking queue log", e);
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+
+    /**
+     * Applica alla vista locale le righe complete scritte nel log dopo l'ultima lettura,
+     * un blocco alla volta, e pubblica la nuova posizione.
+     */
+    private void catchUp() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            writeHeader(0, HEADER_LENGTH);
+            size = HEADER_LENGTH;
+        }
+        headerBuffer.clear();
+        read(headerBuffer, channel, 0);
+        long logGeneration = parseHeaderField(GENERATION_OFFSET);
+        if (logGeneration != generation) {
+            // Alla prima lettura si parte dallo snapshot; dopo una compattazione la vista
+            // coincide già con lo snapshot, perché il log viene riscritto solo quando tutte
+            // le istanze lo hanno letto per intero
+            snapshotEnd = parseHeaderField(SNAPSHOT_END_OFFSET);
+            readOffset = generation < 0 ? HEADER_LENGTH : snapshotEnd;
+            generation = logGeneration;
+        }
+        while (readOffset < size) {
+            ByteBuffer buffer = readBuffer;
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - readOffset));
+            read(buffer, channel, readOffset);
+            buffer.flip();
+            int consumed = applyLines(buffer);
+            if (consumed == 0) {
+                if (buffer.limit() < buffer.capacity()) {
+                    // Riga incompleta in fondo al log
+                    break;
+                }
+                // Riga più lunga del blocco
+                readBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                continue;
+            }
+            readOffset += consumed;
+            compactionPending = true;
+        }
+        publishCursor();
+    }
+
+    /**
+     * @return Byte consumati dal blocco, fino all'ultima riga terminata.
+     */
+    private int applyLines(ByteBuffer buffer) {
+        int lineStart = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                apply(new String(buffer.array(), lineStart, i - lineStart, StandardCharsets.UTF_8));
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private void apply(String line) {
+        String[] fields = line.split("\t");
+        switch (fields[0]) {
+            case "J" -> {
+                QueueKey key = QueueKey.of(fields[1], fields[2]);
+                long enqueuedAtMillis = Long.parseLong(fields[5]);
+                // Le istanze non condividono System.nanoTime(): l'ordine di arrivo si ricava dai millis
+                QueuedPlayer player = new QueuedPlayer(fields[3], Integer.parseInt(fields[4]),
+                        enqueuedAtMillis, enqueuedAtMillis * 1_000_000L);
+                if (queuedPlayers.putIfAbsent(player.getPlayerId(), new Entry(key, player)) == null) {
+                    Shard shard = shard(key);
+                    shard.size++;
+                    shard.pendingJoins.offer(player.getPlayerId());
+                }
+            }
+            case "L" -> {
+                Entry entry = queuedPlayers.remove(fields[1]);
+                if (entry != null) {
+                    entry.player().leave();
+                    depart(entry);
+                }
+            }
+            case "C" -> {
+                Entry first = queuedPlayers.remove(fields[1]);
+                Entry second = queuedPlayers.remove(fields[2]);
+                if (first != null && second != null) {
+                    QueuedPlayer.claim(first.player(), second.player());
+                }
+                if (first != null) {
+                    depart(first);
+                }
+                if (second != null) {
+                    depart(second);
+                }
+            }
+            default -> throw new IllegalStateException("Corrupted matchmaking queue log line: " + line);
+        }
+    }
+
+    private void depart(Entry entry) {
+        Shard shard = shard(entry.key());
+        shard.size--;
+        if (!shard.pendingJoins.remove(entry.player().getPlayerId())) {
+            shard.departures.offer(entry.player().getPlayerId());
+        }
+    }
+
+    private Shard shard(QueueKey key) {
+        return shards.computeIfAbsent(key, k -> new Shard());
+    }
+
+    /**
+     * Riscrive il log con i soli giocatori in coda se è cresciuto oltre la soglia e tutte le
+     * istanze attive lo hanno letto fino in fondo.
+     */
+    private void compactIfConsumed() throws IOException {
+        long size = channel.size();
+        if (size - snapshotEnd < compactionThreshold || !allConsumersAt(size)) {
+            return;
+        }
+        // Lo snapshot non è mai più lungo del log: ogni giocatore in coda vi ha la propria riga J
+        StringBuilder lines = new StringBuilder();
+        long position = HEADER_LENGTH;
+        for (Entry entry : queuedPlayers.values()) {
+            lines.append(joinLine(entry.key(), entry.player())).append('\n');
+            if (lines.length() >= CHUNK_SIZE) {
+                position = write(lines.toString(), position);
+                lines.setLength(0);
+            }
+        }
+        position = write(lines.toString(), position);
+        channel.truncate(position);
+        writeHeader(generation + 1, position);
+        generation++;
+        snapshotEnd = position;
+        readOffset = position;
+        publishCursor();
+    }
+
+    /**
+     * @return true se ogni altra istanza attiva ha letto il log della generazione corrente
+     * fino alla dimensione data.
+     */
+    private boolean allConsumersAt(long size) throws IOException {
+        try (DirectoryStream<Path> cursors = Files.newDirectoryStream(consumersDirectory, "*" + CURSOR_SUFFIX)) {
+            for (Path cursor : cursors) {
+                if (!cursor.equals(cursorFile) && !isConsumedTo(cursor, size)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isConsumedTo(Path cursor, long size) throws IOException {
+        boolean abandoned;
+        ByteBuffer position = ByteBuffer.allocate(CURSOR_LENGTH);
+        try (FileChannel other = FileChannel.open(cursor, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            abandoned = isAbandoned(other);
+            if (!abandoned) {
+                read(position, other, 0);
+            }
+        } catch (NoSuchFileException e) {
+            // Istanza chiusa nel frattempo
+            return true;
+        }
+        if (abandoned) {
+            Files.deleteIfExists(cursor);
+            return true;
+        }
+        return position.position() == CURSOR_LENGTH
+                && position.getLong(0) == generation && position.getLong(Long.BYTES) == size;
+    }
+
+    /**
+     * @return true se nessuna istanza tiene il lock sul file della posizione.
+     */
+    private static boolean isAbandoned(FileChannel cursorChannel) throws IOException {
+        FileLock lock;
+        try {
+            lock = cursorChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Lock tenuto da un'altra istanza nella stessa JVM
+            return false;
+        }
+        if (lock == null) {
+            return false;
+        }
+        lock.release();
+        return true;
+    }
+
+    private void publishCursor() throws IOException {
+        if (generation == publishedGeneration && readOffset == publishedOffset) {
+            return;
+        }
+        cursorBuffer.clear();
+        cursorBuffer.putLong(generation).putLong(readOffset).flip();
+        while (cursorBuffer.hasRemaining()) {
+            cursorChannel.write(cursorBuffer, cursorBuffer.position());
+        }
+        publishedGeneration = generation;
+        publishedOffset = readOffset;
+    }
+
+    private void writeHeader(long headerGeneration, long headerSnapshotEnd) throws IOException {
+        write(String.format("G\t%019d\t%019d\n", headerGeneration, headerSnapshotEnd), 0);
+    }
+
+    private long parseHeaderField(int offset) {
+        return Long.parseLong(new String(headerBuffer.array(), offset, 19, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return Posizione successiva all'ultimo byte scritto.
+     */
+    private long write(String text, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    /**
+     * Riempie il buffer a partire dalla posizione data, fermandosi alla fine del file.
+     */
+    private static void read(ByteBuffer buffer, FileChannel source, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    private static String joinLine(QueueKey key, QueuedPlayer player) {
+        return "J\t" + key.mode() + "\t" + key.region() + "\t" + player.getPlayerId() + "\t"
+                + player.getRating() + "\t" + player.getEnqueuedAtMillis();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.matchmaking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler a ruota di timer (hashed timing wheel).
+ * Il tempo è diviso in tick di durata fissa; ogni timer viene inserito nella cella
+ * corrispondente al tick di scadenza, in una lista doppiamente collegata. Inserimento
+ * e cancellazione costano O(1); l'avanzamento visita solo le celle dei tick trascorsi.
+ *
+ * <p>La ruota non ha un thread proprio: viene fatta avanzare dal chiamante con
+ * {@link #advance(long, Consumer)}, tipicamente a ogni tick del matcher. La classe non è
+ * thread-safe.</p>
+ *
+ * @param <T> Tipo dell'oggetto associato ai timer.
+ */
+public class HashedTimingWheel<T> {
+
+    /**
+     * Timer registrato nella ruota.
+     *
+     * @param <T> Tipo dell'oggetto associato.
+     */
+    public static final class Timeout<T> {
+
+        private final T task;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int slot = -1;
+
+        private Timeout(T task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        /**
+         * @return true se il timer non è ancora scaduto né cancellato.
+         */
+        public boolean isPending() {
+            return slot >= 0;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final Timeout<T>[] slots;
+    private final long startMillis;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis  Durata di un tick, in millisecondi.
+     * @param wheelSize   Numero di celle (arrotondato alla potenza di 2 successiva).
+     * @param startMillis Istante iniziale della ruota.
+     */
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive.");
+        }
+        int capacity = Integer.highestOneBit(wheelSize);
+        if (capacity < wheelSize) {
+            capacity <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = capacity - 1;
+        // Un array generico non si può creare: conterrà solo Timeout<T> di questa ruota
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Timeout<T>[] wheel = new Timeout[capacity];
+        this.slots = wheel;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Registra un timer. La scadenza è arrotondata per eccesso al tick successivo.
+     *
+     * @param task        Oggetto da consegnare alla scadenza.
+     * @param delayMillis Ritardo rispetto al tick corrente, in millisecondi.
+     * @return Il timer registrato, da usare per la cancellazione.
+     */
+    public Timeout<T> schedule(T task, long delayMillis) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(task, currentTick + ticks);
+        link(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancella un timer non ancora scaduto.
+     *
+     * @param timeout Timer da cancellare.
+     * @return true se il timer era in attesa.
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || !timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Fa avanzare la ruota fino all'istante indicato e consegna i timer scaduti,
+     * in ordine di tick. I timer registrati durante la consegna scadono ai tick successivi.
+     *
+     * @param nowMillis Istante corrente.
+     * @param expired   Destinatario degli oggetti dei timer scaduti.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        if (targetTick <= currentTick) {
+            return;
+        }
+        List<Timeout<T>> due = new ArrayList<>();
+        if (targetTick - currentTick > mask) {
+            // Ritardo superiore a un giro: si visitano tutte le celle una sola volta
+            currentTick = targetTick;
+            for (int slot = 0; slot <= mask; slot++) {
+                collectDue(slot, targetTick, due);
+            }
+        } else {
+            while (currentTick < targetTick) {
+                currentTick++;
+                collectDue((int) (currentTick & mask), currentTick, due);
+            }
+        }
+        for (Timeout<T> timeout : due) {
+            expired.accept(timeout.task);
+        }
+    }
+
+    /**
+     * @return Numero di timer in attesa.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void collectDue(int slot, long tick, List<Timeout<T>> due) {
+        Timeout<T> timeout = slots[slot];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            // I timer con scadenza oltre il tick corrente appartengono a un giro successivo
+            if (timeout.deadlineTick <= tick) {
+                unlink(timeout);
+                due.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout<T> timeout) {
+        int slot = (int) (timeout.deadlineTick & mask);
+        timeout.slot = slot;
+        timeout.next = slots[slot];
+        if (slots[slot] != null) {
+            slots[slot].prev = timeout;
+        }
+        slots[slot] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+        size--;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.matchmaking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Archivio delle code di matchmaking in memoria, valido per una singola istanza.
+ * Ingresso, uscita e verifica di presenza costano O(1); l'assegnazione di un match
+ * usa le transizioni atomiche di {@link QueuedPlayer}.
+ */
+public class InMemoryMatchmakingQueueBackend implements MatchmakingQueueBackend {
+
+    private record Entry(QueueKey key, QueuedPlayer player) {
+    }
+
+    private static final class Shard {
+        // Ingressi non ancora consegnati al matcher, in ordine di arrivo
+        final IndexedQueue<String> pendingJoins = new IndexedQueue<>();
+        // Uscite di giocatori già consegnati al matcher
+        final ConcurrentLinkedQueue<String> departures = new ConcurrentLinkedQueue<>();
+        // Giocatori in attesa nello shard
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    // Tutti i giocatori in coda, in qualsiasi shard
+    private final ConcurrentHashMap<String, Entry> queuedPlayers = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<QueueKey, Shard> shards = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean join(QueueKey key, QueuedPlayer player) {
+        if (queuedPlayers.putIfAbsent(player.getPlayerId(), new Entry(key, player)) != null) {
+            return false;
+        }
+        Shard shard = shard(key);
+        shard.size.incrementAndGet();
+        shard.pendingJoins.offer(player.getPlayerId());
+        return true;
+    }
+
+    @Override
+    public boolean requeue(QueueKey key, QueuedPlayer player) {
+        if (queuedPlayers.putIfAbsent(player.getPlayerId(), new Entry(key, player)) != null) {
+            return false;
+        }
+        Shard shard = shard(key);
+        shard.size.incrementAndGet();
+        shard.pendingJoins.offerFirst(player.getPlayerId());
+        return true;
+    }
+
+    @Override
+    public boolean leave(String playerId) {
+        Entry entry = queuedPlayers.get(playerId);
+        if (entry == null || !entry.player().leave()) {
+            return false;
+        }
+        // Se il matcher non l'ha ancora ricevuto basta scartare l'ingresso, altrimenti va tolto dal pool.
+        // L'ingresso va scartato prima di liberare l'ID, così un nuovo join non può essere perso.
+        Shard shard = shard(entry.key());
+        if (!shard.pendingJoins.remove(playerId)) {
+            shard.departures.offer(playerId);
+        }
+        if (queuedPlayers.remove(playerId, entry)) {
+            shard.size.decrementAndGet();
+        }
+        return true;
+    }
+
+    @Override
+    public QueueKey queueOf(String playerId) {
+        Entry entry = queuedPlayers.get(playerId);
+        return entry != null && entry.player().isWaiting() ? entry.key() : null;
+    }
+
+    @Override
+    public QueuedPlayer find(String playerId) {
+        Entry entry = queuedPlayers.get(playerId);
+        return entry != null && entry.player().isWaiting() ? entry.player() : null;
+    }
+
+    @Override
+    public int size(QueueKey key) {
+        return shard(key).size.get();
+    }
+
+    @Override
+    public int drainJoins(QueueKey key, int max, Consumer<QueuedPlayer> sink) {
+        Shard shard = shard(key);
+        int drained = 0;
+        String playerId;
+        while (drained < max && (playerId = shard.pendingJoins.poll()) != null) {
+            Entry entry = queuedPlayers.get(playerId);
+            if (entry != null && entry.player().isWaiting()) {
+                sink.accept(entry.player());
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    @Override
+    public void drainDepartures(QueueKey key, Consumer<String> sink) {
+        Shard shard = shard(key);
+        String playerId;
+        while ((playerId = shard.departures.poll()) != null) {
+            sink.accept(playerId);
+        }
+    }
+
+    @Override
+    public boolean isWaiting(QueuedPlayer player) {
+        return player.isWaiting();
+    }
+
+    @Override
+    public boolean claim(QueuedPlayer first, QueuedPlayer second) {
+        if (!QueuedPlayer.claim(first, second)) {
+            return false;
+        }
+        removeMatched(first);
+        removeMatched(second);
+        return true;
+    }
+
+    private void removeMatched(QueuedPlayer player) {
+        Entry entry = queuedPlayers.get(player.getPlayerId());
+        if (entry != null && entry.player() == player && queuedPlayers.remove(player.getPlayerId(), entry)) {
+            shard(entry.key()).size.decrementAndGet();
+        }
+    }
+
+    private Shard shard(QueueKey key) {
+        return shards.computeIfAbsent(key, k -> new Shard());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.matchmaking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coda FIFO concorrente con indice di appartenenza.
+ * Inserimento, rimozione di un elemento qualsiasi e verifica di presenza costano O(1):
+ * l'indice risponde a {@code contains}, mentre la rimozione marca il nodo come
+ * "tombstone" senza scorrere la coda. I nodi marcati vengono scartati da {@link #poll()}
+ * oppure eliminati in blocco quando diventano troppi rispetto agli elementi vivi.
+ *
+ * <p>Ogni elemento può essere presente una sola volta.</p>
+ *
+ * @param <E> Tipo degli elementi.
+ */
+public class IndexedQueue<E> {
+
+    // Numero minimo di tombstone prima di valutare una compattazione
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private static final class Node<E> {
+        final E element;
+        volatile boolean removed;
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+
+    // Elemento -> nodo vivo nella coda
+    private final ConcurrentHashMap<E, Node<E>> index = new ConcurrentHashMap<>();
+
+    // Ordine di arrivo, può contenere nodi rimossi (tombstone)
+    private final ConcurrentLinkedDeque<Node<E>> order = new ConcurrentLinkedDeque<>();
+
+    // Stima dei tombstone ancora presenti in order
+    private final AtomicInteger tombstones = new AtomicInteger();
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Aggiunge un elemento in fondo alla coda.
+     *
+     * @param element Elemento da aggiungere.
+     * @return true se aggiunto, false se l'elemento era già in coda.
+     */
+    public boolean offer(E element) {
+        Node<E> node = new Node<>(element);
+        if (index.putIfAbsent(element, node) != null) {
+            return false;
+        }
+        order.offer(node);
+        return true;
+    }
+
+    /**
+     * Aggiunge un elemento in testa alla coda, davanti a quelli già presenti.
+     *
+     * @param element Elemento da aggiungere.
+     * @return true se aggiunto, false se l'elemento era già in coda.
+     */
+    public boolean offerFirst(E element) {
+        Node<E> node = new Node<>(element);
+        if (index.putIfAbsent(element, node) != null) {
+            return false;
+        }
+        order.offerFirst(node);
+        return true;
+    }
+
+    /**
+     * Rimuove e restituisce l'elemento in testa alla coda.
+     *
+     * @return L'elemento più vecchio, o null se la coda è vuota.
+     */
+    public E poll() {
+        Node<E> node;
+        while ((node = order.poll()) != null) {
+            if (!node.removed && index.remove(node.element, node)) {
+                return node.element;
+            }
+            tombstones.decrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * Rimuove un elemento qualsiasi dalla coda, in tempo costante.
+     *
+     * @param element Elemento da rimuovere.
+     * @return true se l'elemento era in coda.
+     */
+    public boolean remove(E element) {
+        Node<E> node = index.remove(element);
+        if (node == null) {
+            return false;
+        }
+        node.removed = true;
+        if (tombstones.incrementAndGet() >= MIN_TOMBSTONES_TO_COMPACT) {
+            compactIfNeeded();
+        }
+        return true;
+    }
+
+    /**
+     * @param element Elemento da cercare.
+     * @return true se l'elemento è in coda.
+     */
+    public boolean contains(E element) {
+        return index.containsKey(element);
+    }
+
+    /**
+     * @return Numero di elementi in coda (esclusi i tombstone).
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return true se la coda non contiene elementi.
+     */
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Elimina i tombstone dalla coda quando superano il numero di elementi vivi,
+     * così che la memoria occupata resti proporzionale alla dimensione reale.
+     */
+    private void compactIfNeeded() {
+        if (tombstones.get() <= index.size() || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int[] purged = {0};
+            order.removeIf(node -> {
+                if (node.removed) {
+                    purged[0]++;
+                    return true;
+                }
+                return false;
+            });
+            tombstones.addAndGet(-purged[0]);
+        } finally {
+            compacting.set(false);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.matchmaking;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Archivio delle code che registra ogni modifica in un {@link MatchmakingJournal},
+ * così che le code sopravvivano al riavvio dell'istanza.
+ * Alla creazione le code vengono ricostruite dal journal.
+ *
+ * <p>Ogni modifica e la sua registrazione avvengono sotto il lock del giocatore coinvolto
+ * (uno di {@value #PLAYER_LOCKS} lock, scelto dall'hash dell'ID; un match prende quelli di
+ * entrambi i giocatori). I record di uno stesso giocatore sono quindi scritti nell'ordine
+ * delle sue modifiche; quelli di giocatori diversi possono essere scritti in un ordine
+ * diverso, il che non cambia il risultato del recupero, dove lo stato di ogni giocatore
+ * dipende solo dai propri record. La modifica in memoria avviene fuori dal lock del journal,
+ * che copre solo la scrittura del record, e le code diverse restano indipendenti.</p>
+ */
+public class JournaledMatchmakingQueueBackend implements MatchmakingQueueBackend, Closeable {
+
+    private static final int PLAYER_LOCKS = 64;
+
+    private final MatchmakingQueueBackend delegate;
+    private final MatchmakingJournal journal;
+    private final Object[] playerLocks = new Object[PLAYER_LOCKS];
+
+    /**
+     * @param delegate Archivio in memoria delle code.
+     * @param journal  Journal da cui ricostruire le code e su cui registrare le modifiche.
+     */
+    public JournaledMatchmakingQueueBackend(MatchmakingQueueBackend delegate, MatchmakingJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        for (int i = 0; i < PLAYER_LOCKS; i++) {
+            playerLocks[i] = new Object();
+        }
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        for (MatchmakingJournal.JoinRecord record : journal.recover()) {
+            // L'ordine di arrivo originale si conserva riportando l'attesa sull'orologio monotono
+            long enqueuedAtNanos = nowNanos - (nowMillis - record.enqueuedAtMillis()) * 1_000_000L;
+            delegate.join(record.key(), new QueuedPlayer(record.playerId(), record.rating(),
+                    record.enqueuedAtMillis(), enqueuedAtNanos));
+        }
+    }
+
+    @Override
+    public boolean join(QueueKey key, QueuedPlayer player) {
+        synchronized (lockFor(player.getPlayerId())) {
+            if (!delegate.join(key, player)) {
+                return false;
+            }
+            journal.appendJoin(key, player);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean requeue(QueueKey key, QueuedPlayer player) {
+        synchronized (lockFor(player.getPlayerId())) {
+            if (!delegate.requeue(key, player)) {
+                return false;
+            }
+            // Il record conserva l'istante di ingresso originale
+            journal.appendJoin(key, player);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean leave(String playerId) {
+        synchronized (lockFor(playerId)) {
+            if (!delegate.leave(playerId)) {
+                return false;
+            }
+            journal.appendLeave(playerId);
+            return true;
+        }
+    }
+
+    @Override
+    public QueueKey queueOf(String playerId) {
+        return delegate.queueOf(playerId);
+    }
+
+    @Override
+    public QueuedPlayer find(String playerId) {
+        return delegate.find(playerId);
+    }
+
+    @Override
+    public int size(QueueKey key) {
+        return delegate.size(key);
+    }
+
+    @Override
+    public int drainJoins(QueueKey key, int max, Consumer<QueuedPlayer> sink) {
+        return delegate.drainJoins(key, max, sink);
+    }
+
+    @Override
+    public void drainDepartures(QueueKey key, Consumer<String> sink) {
+        delegate.drainDepartures(key, sink);
+    }
+
+    @Override
+    public boolean isWaiting(QueuedPlayer player) {
+        return delegate.isWaiting(player);
+    }
+
+    @Override
+    public boolean claim(QueuedPlayer first, QueuedPlayer second) {
+        int firstIndex = lockIndex(first.getPlayerId());
+        int secondIndex = lockIndex(second.getPlayerId());
+        // I due lock si prendono sempre in ordine di indice, così due match non si bloccano a vicenda
+        synchronized (playerLocks[Math.min(firstIndex, secondIndex)]) {
+            synchronized (playerLocks[Math.max(firstIndex, secondIndex)]) {
+                if (!delegate.claim(first, second)) {
+                    return false;
+                }
+                journal.appendMatch(first.getPlayerId(), second.getPlayerId());
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private Object lockFor(String playerId) {
+        return playerLocks[lockIndex(playerId)];
+    }
+
+    private static int lockIndex(String playerId) {
+        int hash = playerId.hashCode();
+        return (hash ^ (hash >>> 16)) & (PLAYER_LOCKS - 1);
+    }
+}
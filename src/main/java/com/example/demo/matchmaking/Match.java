@@ -0,0 +1,190 @@
+package com.example.demo.matchmaking;
+
+import com.example.demo.enums.MatchState;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Match creato dal matchmaking, con i partecipanti e lo stato del suo ciclo di vita.
+ * Le transizioni di stato sono sincronizzate sull'istanza.
+ */
+public class Match {
+
+    private final String matchId;
+    private final QueueKey queue;
+    private final List<String> firstTeam;
+    private final List<String> secondTeam;
+    private final List<QueuedPlayer> entries;
+    private final long createdAtMillis;
+
+    private MatchState state = MatchState.FOUND;
+    private final Set<String> readyPlayers = new LinkedHashSet<>();
+    private int winningTeam;
+    private long finishedAtMillis;
+
+    /**
+     * @param matchId    ID del match.
+     * @param queue      Coda in cui è stato creato.
+     * @param firstTeam  Giocatori della prima squadra.
+     * @param secondTeam Giocatori della seconda squadra.
+     */
+    public Match(String matchId, QueueKey queue, List<String> firstTeam, List<String> secondTeam) {
+        this(matchId, queue, firstTeam, secondTeam, List.of());
+    }
+
+    /**
+     * @param matchId    ID del match.
+     * @param queue      Coda in cui è stato creato.
+     * @param firstTeam  Giocatori della prima squadra.
+     * @param secondTeam Giocatori della seconda squadra.
+     * @param entries    Voci di coda (giocatori o party) da cui è stato composto il match.
+     */
+    public Match(String matchId, QueueKey queue, List<String> firstTeam, List<String> secondTeam,
+                 List<? extends QueuedPlayer> entries) {
+        this.matchId = matchId;
+        this.queue = queue;
+        this.firstTeam = List.copyOf(firstTeam);
+        this.secondTeam = List.copyOf(secondTeam);
+        this.entries = List.copyOf(entries);
+        this.createdAtMillis = System.currentTimeMillis();
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public QueueKey getQueue() {
+        return queue;
+    }
+
+    public List<String> getFirstTeam() {
+        return firstTeam;
+    }
+
+    public List<String> getSecondTeam() {
+        return secondTeam;
+    }
+
+    /**
+     * @return Voci di coda da cui è stato composto il match, per rimetterle in coda se viene annullato.
+     */
+    public List<QueuedPlayer> getEntries() {
+        return entries;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public synchronized MatchState getState() {
+        return state;
+    }
+
+    public synchronized Set<String> getReadyPlayers() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(readyPlayers));
+    }
+
+    /**
+     * @return Squadra vincitrice (1 o 2), o 0 se il match non è terminato.
+     */
+    public synchronized int getWinningTeam() {
+        return winningTeam;
+    }
+
+    /**
+     * @return Istante in cui il match è terminato o è stato annullato, o 0 se è ancora attivo.
+     */
+    public synchronized long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore partecipa al match.
+     */
+    public boolean hasPlayer(String playerId) {
+        return firstTeam.contains(playerId) || secondTeam.contains(playerId);
+    }
+
+    /**
+     * @return Tutti i partecipanti, prima squadra per prima.
+     */
+    public List<String> getPlayers() {
+        return Stream.concat(firstTeam.stream(), secondTeam.stream()).toList();
+    }
+
+    /**
+     * Registra la conferma di un giocatore; con l'ultima conferma il match passa a READY.
+     *
+     * @param playerId ID del giocatore.
+     * @return true se con questa conferma tutti i giocatori sono pronti.
+     * @throws IllegalArgumentException Se il giocatore non partecipa o il match non è in attesa di conferme.
+     */
+    synchronized boolean markReady(String playerId) {
+        if (!hasPlayer(playerId)) {
+            throw new IllegalArgumentException("Player " + playerId + " is not part of match " + matchId + ".");
+        }
+        requireState(MatchState.FOUND);
+        readyPlayers.add(playerId);
+        if (readyPlayers.size() < firstTeam.size() + secondTeam.size()) {
+            return false;
+        }
+        transitionTo(MatchState.READY);
+        return true;
+    }
+
+    /**
+     * Avvia la partita.
+     *
+     * @throws IllegalArgumentException Se il match non è pronto.
+     */
+    synchronized void start() {
+        transitionTo(MatchState.IN_PROGRESS);
+    }
+
+    /**
+     * Termina la partita registrando la squadra vincitrice.
+     *
+     * @param winningTeam Squadra vincitrice (1 o 2).
+     * @throws IllegalArgumentException Se la squadra non è valida o la partita non è in corso.
+     */
+    synchronized void finish(int winningTeam) {
+        if (winningTeam != 1 && winningTeam != 2) {
+            throw new IllegalArgumentException("Winning team must be 1 or 2: " + winningTeam);
+        }
+        transitionTo(MatchState.FINISHED);
+        this.winningTeam = winningTeam;
+        this.finishedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Annulla il match se è ancora in attesa delle conferme.
+     *
+     * @return true se il match è stato annullato, false se nel frattempo è diventato pronto o è già chiuso.
+     */
+    synchronized boolean cancel() {
+        if (state != MatchState.FOUND) {
+            return false;
+        }
+        transitionTo(MatchState.CANCELLED);
+        this.finishedAtMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    private void requireState(MatchState expected) {
+        if (state != expected) {
+            throw new IllegalArgumentException("Match " + matchId + " is " + state + ", expected " + expected + ".");
+        }
+    }
+
+    private void transitionTo(MatchState next) {
+        if (!state.canTransitionTo(next)) {
+            throw new IllegalArgumentException("Invalid match state transition for " + matchId + ": " + state + " -> " + next + ".");
+        }
+        state = next;
+    }
+}
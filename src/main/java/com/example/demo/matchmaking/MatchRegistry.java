@@ -0,0 +1,140 @@
+package com.example.demo.matchmaking;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registro in memoria dei match creati dal matchmaking.
+ * Tiene i match attivi, l'indice dei giocatori impegnati in un match e, per un periodo
+ * limitato, i match terminati o annullati, così che il risultato resti consultabile.
+ */
+@Component
+public class MatchRegistry {
+
+    // Tempo per cui un match chiuso resta consultabile
+    private static final long FINISHED_RETENTION_MILLIS = 10 * 60 * 1000L;
+
+    private final ConcurrentHashMap<String, Match> matches = new ConcurrentHashMap<>();
+
+    // Match attivo di ogni giocatore
+    private final ConcurrentHashMap<String, Match> activeMatches = new ConcurrentHashMap<>();
+
+    // Match terminati o annullati, in ordine di chiusura, da rimuovere allo scadere della conservazione
+    private final ConcurrentLinkedQueue<Match> finished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registra un nuovo match nello stato FOUND.
+     *
+     * @param queue      Coda in cui è stato creato.
+     * @param firstTeam  Giocatori della prima squadra.
+     * @param secondTeam Giocatori della seconda squadra.
+     * @return Il match registrato.
+     */
+    public Match create(QueueKey queue, List<String> firstTeam, List<String> secondTeam) {
+        return create(queue, firstTeam, secondTeam, List.of());
+    }
+
+    /**
+     * Registra un nuovo match nello stato FOUND, con le voci di coda da cui è stato composto.
+     *
+     * @param queue      Coda in cui è stato creato.
+     * @param firstTeam  Giocatori della prima squadra.
+     * @param secondTeam Giocatori della seconda squadra.
+     * @param entries    Giocatori o party accoppiati.
+     * @return Il match registrato.
+     */
+    public Match create(QueueKey queue, List<String> firstTeam, List<String> secondTeam,
+                        List<? extends QueuedPlayer> entries) {
+        purgeExpired(System.currentTimeMillis());
+        Match match = new Match("match-" + UUID.randomUUID(), queue, firstTeam, secondTeam, entries);
+        matches.put(match.getMatchId(), match);
+        match.getPlayers().forEach(playerId -> activeMatches.put(playerId, match));
+        return match;
+    }
+
+    /**
+     * @param matchId ID del match.
+     * @return Il match, se esiste.
+     */
+    public Optional<Match> find(String matchId) {
+        return Optional.ofNullable(matchId).map(matches::get);
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Il match non ancora terminato del giocatore, se esiste.
+     */
+    public Optional<Match> findActiveByPlayer(String playerId) {
+        return Optional.ofNullable(playerId).map(activeMatches::get);
+    }
+
+    /**
+     * @return Numero di match non ancora terminati.
+     */
+    public int activeCount() {
+        return matches.size() - finished.size();
+    }
+
+    /**
+     * Registra la conferma di un giocatore.
+     *
+     * @param match    Match.
+     * @param playerId ID del giocatore.
+     * @return true se con questa conferma tutti i giocatori sono pronti.
+     */
+    public boolean markReady(Match match, String playerId) {
+        return match.markReady(playerId);
+    }
+
+    /**
+     * Avvia la partita di un match pronto.
+     *
+     * @param match Match.
+     */
+    public void start(Match match) {
+        match.start();
+    }
+
+    /**
+     * Termina la partita e libera i giocatori.
+     *
+     * @param match       Match.
+     * @param winningTeam Squadra vincitrice (1 o 2).
+     */
+    public void finish(Match match, int winningTeam) {
+        match.finish(winningTeam);
+        match.getPlayers().forEach(playerId -> activeMatches.remove(playerId, match));
+        finished.offer(match);
+    }
+
+    /**
+     * Annulla un match ancora in attesa delle conferme e libera i giocatori.
+     *
+     * @param match Match.
+     * @return true se il match è stato annullato, false se è già pronto o chiuso.
+     */
+    public boolean cancel(Match match) {
+        if (!match.cancel()) {
+            return false;
+        }
+        match.getPlayers().forEach(playerId -> activeMatches.remove(playerId, match));
+        finished.offer(match);
+        return true;
+    }
+
+    private void purgeExpired(long nowMillis) {
+        synchronized (finished) {
+            Match oldest;
+            while ((oldest = finished.peek()) != null
+                    && nowMillis - oldest.getFinishedAtMillis() > FINISHED_RETENTION_MILLIS) {
+                finished.poll();
+                matches.remove(oldest.getMatchId(), oldest);
+            }
+        }
+    }
+}
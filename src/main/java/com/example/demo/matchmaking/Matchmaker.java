@@ -0,0 +1,286 @@
+package com.example.demo.matchmaking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Matcher a tick di uno shard di matchmaking.
+ * Gli ingressi e le uscite dalla coda vengono registrati nel {@link MatchmakingQueueBackend}
+ * dal thread chiamante; l'accoppiamento avviene in {@link #tick()}, eseguito sempre da un
+ * unico thread, che preleva un lotto di nuovi arrivi e li accoppia in un solo passaggio.
+ *
+ * <p>Il pool dei giocatori già indicizzati per rating appartiene al thread del tick e non
+ * richiede sincronizzazione.</p>
+ *
+ * <p>La finestra di rating di ogni giocatore si allarga con l'attesa secondo la
+ * {@link SearchWidening} configurata: ogni giocatore ha un timer in una
+ * {@link HashedTimingWheel}, fatta avanzare a ogni tick, e alla scadenza la finestra
+ * viene allargata e l'avversario cercato di nuovo. Riprogrammare un giocatore costa O(1),
+ * senza scorrere la coda.</p>
+ *
+ * <p>I giocatori senza una connessione aperta non vengono accoppiati: restano in coda, fuori
+ * dal pool, e vi rientrano al primo tick in cui risultano di nuovo connessi.</p>
+ */
+public class Matchmaker {
+
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * Riceve le coppie create a ogni tick.
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+
+        /**
+         * @param first  Giocatore in coda da più tempo.
+         * @param second Avversario assegnato.
+         */
+        void onMatch(QueuedPlayer first, QueuedPlayer second);
+    }
+
+    private final QueueKey key;
+    private final MatchmakingQueueBackend backend;
+
+    // Pool del thread del tick
+    private final RatingIndex pool = new RatingIndex();
+    private final Map<String, QueuedPlayer> pooledPlayers = new HashMap<>();
+
+    // Timer di allargamento della finestra dei giocatori nel pool
+    private final HashedTimingWheel<QueuedPlayer> wideningWheel;
+    private final Map<String, HashedTimingWheel.Timeout<QueuedPlayer>> wideningTimers = new HashMap<>();
+
+    // Giocatori in attesa ma disconnessi, esclusi dal pool finché non si riconnettono
+    private final Map<String, QueuedPlayer> parkedPlayers = new HashMap<>();
+    private final Predicate<String> presence;
+
+    private final SearchWidening widening;
+    private final int batchSize;
+    private final MatchListener listener;
+
+    /**
+     * Crea un matcher con una differenza di rating fissa.
+     *
+     * @param key          Coda servita da questo matcher.
+     * @param backend      Archivio delle code.
+     * @param maxRatingGap Differenza di rating massima tra due giocatori accoppiati.
+     * @param batchSize    Numero massimo di ingressi prelevati a ogni tick.
+     * @param listener     Destinatario delle coppie create.
+     */
+    public Matchmaker(QueueKey key, MatchmakingQueueBackend backend, int maxRatingGap, int batchSize,
+                      MatchListener listener) {
+        // Senza allargamento la ruota dei timer resta vuota: la risoluzione è indifferente
+        this(key, backend, SearchWidening.fixed(maxRatingGap), 1000, batchSize, listener);
+    }
+
+    /**
+     * @param key            Coda servita da questo matcher.
+     * @param backend        Archivio delle code.
+     * @param widening       Politica di allargamento della finestra di rating.
+     * @param tickIntervalMs Intervallo tra due tick, usato come risoluzione dei timer.
+     * @param batchSize      Numero massimo di ingressi prelevati a ogni tick.
+     * @param listener       Destinatario delle coppie create.
+     */
+    public Matchmaker(QueueKey key, MatchmakingQueueBackend backend, SearchWidening widening,
+                      long tickIntervalMs, int batchSize, MatchListener listener) {
+        this(key, backend, widening, tickIntervalMs, batchSize, playerId -> true, listener);
+    }
+
+    /**
+     * @param key            Coda servita da questo matcher.
+     * @param backend        Archivio delle code.
+     * @param widening       Politica di allargamento della finestra di rating.
+     * @param tickIntervalMs Intervallo tra due tick, usato come risoluzione dei timer.
+     * @param batchSize      Numero massimo di ingressi prelevati a ogni tick.
+     * @param presence       Indica se un giocatore è connesso e può quindi essere accoppiato.
+     * @param listener       Destinatario delle coppie create.
+     */
+    public Matchmaker(QueueKey key, MatchmakingQueueBackend backend, SearchWidening widening,
+                      long tickIntervalMs, int batchSize, Predicate<String> presence, MatchListener listener) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.key = key;
+        this.backend = backend;
+        this.widening = widening;
+        this.wideningWheel = new HashedTimingWheel<>(tickIntervalMs, WHEEL_SIZE, System.currentTimeMillis());
+        this.batchSize = batchSize;
+        this.presence = presence;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Coda servita da questo matcher.
+     */
+    public QueueKey getKey() {
+        return key;
+    }
+
+    /**
+     * Esegue un tick all'istante corrente.
+     *
+     * @return Numero di ingressi prelevati in questo tick.
+     * @see #tick(long)
+     */
+    public int tick() {
+        return tick(System.currentTimeMillis());
+    }
+
+    /**
+     * Esegue un tick: rimuove dal pool i giocatori usciti, riporta nel pool i giocatori
+     * riconnessi, preleva fino a un lotto di nuovi ingressi e cerca per ognuno l'avversario
+     * di rating più vicino, poi allarga la finestra dei giocatori in attesa da abbastanza
+     * tempo e cerca di nuovo.
+     * Deve essere invocato sempre dallo stesso thread, o comunque mai in parallelo.
+     *
+     * @param nowMillis Istante corrente.
+     * @return Numero di ingressi prelevati in questo tick.
+     */
+    public int tick(long nowMillis) {
+        backend.drainDepartures(key, playerId -> {
+            QueuedPlayer pooled = pooledPlayers.get(playerId);
+            if (pooled != null && !backend.isWaiting(pooled)) {
+                removeFromPool(pooled);
+            }
+            QueuedPlayer parked = parkedPlayers.get(playerId);
+            if (parked != null && !backend.isWaiting(parked)) {
+                parkedPlayers.remove(playerId);
+            }
+        });
+
+        List<QueuedPlayer> batch = new ArrayList<>();
+        unparkReconnected(nowMillis, batch);
+        int drained = backend.drainJoins(key, batchSize, player -> {
+            if (addToPool(player, nowMillis)) {
+                batch.add(player);
+            }
+        });
+
+        for (QueuedPlayer player : batch) {
+            if (pooledPlayers.get(player.getPlayerId()) == player) {
+                matchWithNearest(player);
+            }
+        }
+
+        wideningWheel.advance(nowMillis, this::widen);
+        return drained;
+    }
+
+    /**
+     * Allarga la finestra di un giocatore ancora nel pool e cerca di nuovo l'avversario.
+     */
+    private void widen(QueuedPlayer player) {
+        wideningTimers.remove(player.getPlayerId());
+        if (pooledPlayers.get(player.getPlayerId()) != player) {
+            return;
+        }
+        int window = widening.widen(player.getRatingWindow());
+        player.setRatingWindow(window);
+        if (window < widening.maxGap()) {
+            wideningTimers.put(player.getPlayerId(), wideningWheel.schedule(player, widening.stepMillis()));
+        }
+        matchWithNearest(player);
+    }
+
+    /**
+     * Cerca l'avversario più vicino per rating, entro la finestra di entrambi i giocatori,
+     * e prova ad assegnare il match. Gli avversari non più in attesa incontrati durante la ricerca
+     * vengono rimossi dal pool.
+     */
+    private void matchWithNearest(QueuedPlayer player) {
+        if (!presence.test(player.getPlayerId())) {
+            park(player);
+            return;
+        }
+        String opponentId;
+        while ((opponentId = pool.findNearest(player.getPlayerId(), player.getRatingWindow(),
+                id -> pooledPlayers.get(id).getRatingWindow())) != null) {
+            QueuedPlayer opponent = pooledPlayers.get(opponentId);
+            if (!presence.test(opponentId)) {
+                park(opponent);
+                continue;
+            }
+            if (backend.claim(opponent, player)) {
+                removeFromPool(opponent);
+                removeFromPool(player);
+                if (opponent.getEnqueuedAtNanos() <= player.getEnqueuedAtNanos()) {
+                    listener.onMatch(opponent, player);
+                } else {
+                    listener.onMatch(player, opponent);
+                }
+                return;
+            }
+            if (!backend.isWaiting(player)) {
+                removeFromPool(player);
+                return;
+            }
+            removeFromPool(opponent);
+        }
+    }
+
+    /**
+     * Riporta nel pool i giocatori esclusi che risultano di nuovo connessi e scarta quelli
+     * usciti dalla coda.
+     */
+    private void unparkReconnected(long nowMillis, List<QueuedPlayer> batch) {
+        Iterator<QueuedPlayer> iterator = parkedPlayers.values().iterator();
+        List<QueuedPlayer> reconnected = new ArrayList<>();
+        while (iterator.hasNext()) {
+            QueuedPlayer parked = iterator.next();
+            if (!backend.isWaiting(parked)) {
+                iterator.remove();
+            } else if (presence.test(parked.getPlayerId())) {
+                iterator.remove();
+                reconnected.add(parked);
+            }
+        }
+        for (QueuedPlayer player : reconnected) {
+            if (addToPool(player, nowMillis)) {
+                batch.add(player);
+            }
+        }
+    }
+
+    /**
+     * Esclude dal pool un giocatore disconnesso, senza toglierlo dalla coda.
+     */
+    private void park(QueuedPlayer player) {
+        removeFromPool(player);
+        parkedPlayers.put(player.getPlayerId(), player);
+    }
+
+    private boolean addToPool(QueuedPlayer player, long nowMillis) {
+        QueuedPlayer previous = pooledPlayers.get(player.getPlayerId());
+        if (previous == null) {
+            previous = parkedPlayers.get(player.getPlayerId());
+        }
+        if (previous != null) {
+            if (backend.isWaiting(previous)) {
+                return false;
+            }
+            // Voce di un precedente ingresso dello stesso giocatore, ormai uscito
+            removeFromPool(previous);
+            parkedPlayers.remove(player.getPlayerId(), previous);
+        }
+        pooledPlayers.put(player.getPlayerId(), player);
+        pool.add(player.getPlayerId(), player.getRating());
+        // L'attesa si conta dall'ingresso in coda, non dall'arrivo nel pool
+        long waited = nowMillis - player.getEnqueuedAtMillis();
+        int window = widening.windowAfter(waited);
+        player.setRatingWindow(window);
+        if (widening.isEnabled() && window < widening.maxGap()) {
+            wideningTimers.put(player.getPlayerId(), wideningWheel.schedule(player, widening.untilNextStep(waited)));
+        }
+        return true;
+    }
+
+    private void removeFromPool(QueuedPlayer player) {
+        if (pooledPlayers.remove(player.getPlayerId(), player)) {
+            pool.remove(player.getPlayerId());
+            wideningWheel.cancel(wideningTimers.remove(player.getPlayerId()));
+        }
+    }
+}
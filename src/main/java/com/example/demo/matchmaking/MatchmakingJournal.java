@@ -0,0 +1,486 @@
+package com.example.demo.matchmaking;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journal append-only delle code di matchmaking, su file mappati in memoria.
+ *
+ * <p>Ogni ingresso, uscita e match viene scritto nel segmento attivo
+ * ({@code journal-<seq>.dat}) come record {@code [lunghezza][tipo][dati]}: la lunghezza
+ * viene scritta per ultima, così un record interrotto da un crash resta a zero e segna
+ * la fine del segmento. La scrittura è una copia in memoria, senza chiamate di sistema.</p>
+ *
+ * <p>Quando il segmento attivo è pieno, o periodicamente, il journal passa a un nuovo
+ * segmento e un thread in background applica quello chiuso allo snapshot compatto
+ * ({@code snapshot.dat}, solo i giocatori ancora in attesa), poi lo cancella. Il lavoro
+ * di compattazione non passa mai dal percorso delle richieste.</p>
+ *
+ * <p>Lo stesso thread prealloca e mappa il segmento successivo ({@code journal-spare.tmp}):
+ * il cambio di segmento sul percorso delle richieste è solo una rinomina. Il segmento viene
+ * creato sul thread della richiesta solo se quello preallocato non è ancora pronto.</p>
+ *
+ * <p>All'avvio {@link #recover()} carica lo snapshot e riapplica i segmenti successivi.</p>
+ */
+public class MatchmakingJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchmakingJournal.class);
+
+    private static final byte JOIN = 1;
+    private static final byte LEAVE = 2;
+    private static final byte MATCH = 3;
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String SPARE_FILE = "journal-spare.tmp";
+
+    /**
+     * Ingresso in coda registrato nel journal.
+     *
+     * @param key              Coda.
+     * @param playerId         ID del giocatore.
+     * @param rating           Rating del giocatore.
+     * @param enqueuedAtMillis Istante di ingresso in coda.
+     */
+    public record JoinRecord(QueueKey key, String playerId, int rating, long enqueuedAtMillis) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // Segmento attivo, protetto dal monitor dell'istanza
+    private MappedByteBuffer segment;
+    private long segmentSeq;
+    private int recordsInSegment;
+    // Posizione di inizio del record in corso di scrittura
+    private int recordStart;
+    // Segmento successivo preallocato dal thread di compattazione, o null se non è pronto
+    private MappedByteBuffer spare;
+    // Ultima preallocazione affidata al thread di compattazione
+    private Future<?> pendingSpare;
+
+    // Stato compattato: posseduto dal thread di compattazione dopo il recupero
+    private final Map<String, JoinRecord> compacted = new LinkedHashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * @param directory      Directory del journal.
+     * @param segmentSize    Dimensione di un segmento, in byte.
+     * @param snapshotMillis Intervallo dopo cui il segmento attivo viene chiuso e compattato.
+     */
+    public MatchmakingJournal(Path directory, int segmentSize, long snapshotMillis) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Journal segment size must be at least 1 KB: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (snapshotMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::rotateIfDirty, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Ricostruisce le code dallo snapshot e dai segmenti successivi, scrive un nuovo
+     * snapshot e apre il segmento attivo. Va invocato una sola volta, prima di ogni scrittura.
+     *
+     * @return I giocatori ancora in attesa, in ordine di ingresso.
+     */
+    public synchronized List<JoinRecord> recover() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            long lastSeq = readSnapshot(compacted);
+            List<Path> segments = listSegments();
+            long replayed = 0;
+            for (Path path : segments) {
+                long seq = segmentSeq(path);
+                if (seq > lastSeq) {
+                    replayed += replaySegment(path, compacted);
+                    lastSeq = seq;
+                }
+            }
+            writeSnapshot(compacted, lastSeq);
+            for (Path path : segments) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(directory.resolve(SPARE_FILE));
+            installSegment(mapSegment(segmentPath(lastSeq + 1)), lastSeq + 1);
+            scheduleSpare();
+            logger.info("Matchmaking journal recovered {} waiting players ({} journal records) in {} ms.",
+                    compacted.size(), replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return new ArrayList<>(compacted.values());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to recover the matchmaking journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Registra un ingresso in coda.
+     *
+     * @param key    Coda.
+     * @param player Giocatore.
+     */
+    public synchronized void appendJoin(QueueKey key, QueuedPlayer player) {
+        byte[] mode = bytes(key.mode());
+        byte[] region = bytes(key.region());
+        byte[] id = bytes(player.getPlayerId());
+        MappedByteBuffer buffer = reserve(1 + 6 + mode.length + region.length + id.length + 4 + 8);
+        buffer.put(JOIN);
+        putString(buffer, mode);
+        putString(buffer, region);
+        putString(buffer, id);
+        buffer.putInt(player.getRating());
+        buffer.putLong(player.getEnqueuedAtMillis());
+        commit(buffer);
+    }
+
+    /**
+     * Registra un'uscita dalla coda.
+     *
+     * @param playerId ID del giocatore.
+     */
+    public synchronized void appendLeave(String playerId) {
+        byte[] id = bytes(playerId);
+        MappedByteBuffer buffer = reserve(1 + 2 + id.length);
+        buffer.put(LEAVE);
+        putString(buffer, id);
+        commit(buffer);
+    }
+
+    /**
+     * Registra un match assegnato.
+     *
+     * @param firstId  ID del primo giocatore.
+     * @param secondId ID del secondo giocatore.
+     */
+    public synchronized void appendMatch(String firstId, String secondId) {
+        byte[] first = bytes(firstId);
+        byte[] second = bytes(secondId);
+        MappedByteBuffer buffer = reserve(1 + 4 + first.length + second.length);
+        buffer.put(MATCH);
+        putString(buffer, first);
+        putString(buffer, second);
+        commit(buffer);
+    }
+
+    /**
+     * Chiude il journal attendendo le compattazioni in corso e la preallocazione già iniziata;
+     * quella non ancora iniziata viene annullata. Al ritorno il journal non scrive più su disco.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (pendingSpare != null) {
+                pendingSpare.cancel(false);
+            }
+            compactor.shutdown();
+            if (segment != null) {
+                segment.force();
+            }
+        }
+        try {
+            if (!compactor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Matchmaking journal compaction did not complete before shutdown.");
+                compactor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Riserva lo spazio per un record e si posiziona dopo il campo lunghezza.
+     * Se il segmento attivo non ha spazio passa al segmento successivo.
+     */
+    private MappedByteBuffer reserve(int length) {
+        if (segment == null) {
+            throw new IllegalStateException("Matchmaking journal has not been recovered.");
+        }
+        if (4 + length + 4 > segmentSize) {
+            throw new IllegalArgumentException("Journal record too large: " + length + " bytes.");
+        }
+        if (segment.position() + 4 + length + 4 > segmentSize) {
+            rotate();
+        }
+        recordStart = segment.position();
+        segment.position(recordStart + 4);
+        return segment;
+    }
+
+    /**
+     * Completa il record scrivendo la lunghezza: finché non è scritta il record non esiste.
+     */
+    private void commit(MappedByteBuffer buffer) {
+        int end = buffer.position();
+        buffer.putInt(recordStart, end - recordStart - 4);
+        recordsInSegment++;
+    }
+
+    private synchronized void rotateIfDirty() {
+        try {
+            if (recordsInSegment > 0) {
+                rotate();
+            }
+        } catch (Exception e) {
+            logger.error("Matchmaking journal rotation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chiude il segmento attivo, passa al segmento preallocato (o ne crea uno se non è
+     * pronto) e affida quello chiuso alla compattazione.
+     */
+    private void rotate() {
+        MappedByteBuffer closed = segment;
+        long closedSeq = segmentSeq;
+        Path next = segmentPath(closedSeq + 1);
+        try {
+            installSegment(takeSpare(next), closedSeq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open a new matchmaking journal segment", e);
+        }
+        // Anche lo svuotamento su disco del segmento chiuso avviene fuori dal lock
+        compactor.execute(() -> {
+            closed.force();
+            compact(closedSeq);
+        });
+        scheduleSpare();
+    }
+
+    /**
+     * Assegna al segmento preallocato il percorso del segmento successivo, con una rinomina.
+     * Se il segmento preallocato non è pronto lo crea sul thread corrente.
+     */
+    private MappedByteBuffer takeSpare(Path next) throws IOException {
+        MappedByteBuffer prepared = spare;
+        spare = null;
+        if (prepared != null) {
+            try {
+                // La mappatura resta valida dopo la rinomina
+                Files.move(directory.resolve(SPARE_FILE), next, StandardCopyOption.ATOMIC_MOVE);
+                return prepared;
+            } catch (IOException e) {
+                logger.warn("Unable to use the preallocated matchmaking journal segment: {}", e.getMessage());
+            }
+        }
+        logger.debug("Preallocated matchmaking journal segment not ready: creating {} on the request path.",
+                next.getFileName());
+        return mapSegment(next);
+    }
+
+    /**
+     * Affida la preallocazione del segmento successivo al thread di compattazione.
+     */
+    private void scheduleSpare() {
+        pendingSpare = compactor.submit(this::prepareSpare);
+    }
+
+    /**
+     * Prealloca e mappa il segmento successivo, se non è già pronto.
+     * Eseguito solo dal thread di compattazione, quindi mai in parallelo con se stesso.
+     */
+    private void prepareSpare() {
+        synchronized (this) {
+            if (spare != null || compactor.isShutdown()) {
+                return;
+            }
+        }
+        try {
+            MappedByteBuffer prepared = mapSegment(directory.resolve(SPARE_FILE));
+            synchronized (this) {
+                spare = prepared;
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to preallocate a matchmaking journal segment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applica un segmento chiuso allo stato compattato, scrive lo snapshot e cancella il segmento.
+     * Eseguito solo dal thread di compattazione.
+     */
+    private void compact(long seq) {
+        Path path = segmentPath(seq);
+        try {
+            replaySegment(path, compacted);
+            writeSnapshot(compacted, seq);
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.error("Matchmaking journal compaction of segment {} failed: {}", seq, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crea un file della dimensione di un segmento, azzerato, e lo mappa in memoria.
+     */
+    private MappedByteBuffer mapSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private void installSegment(MappedByteBuffer buffer, long seq) {
+        segment = buffer;
+        segmentSeq = seq;
+        recordsInSegment = 0;
+    }
+
+    private long replaySegment(Path path, Map<String, JoinRecord> state) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                // Lunghezza a zero: fine del segmento (o record interrotto da un crash)
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                int end = buffer.position() + length;
+                try {
+                    apply(buffer, state);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    logger.warn("Skipping corrupted matchmaking journal record in {}.", path.getFileName());
+                }
+                buffer.position(end);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private static void apply(MappedByteBuffer buffer, Map<String, JoinRecord> state) {
+        byte type = buffer.get();
+        switch (type) {
+            case JOIN -> {
+                QueueKey key = new QueueKey(getString(buffer), getString(buffer));
+                String playerId = getString(buffer);
+                state.putIfAbsent(playerId, new JoinRecord(key, playerId, buffer.getInt(), buffer.getLong()));
+            }
+            case LEAVE -> state.remove(getString(buffer));
+            case MATCH -> {
+                state.remove(getString(buffer));
+                state.remove(getString(buffer));
+            }
+            default -> throw new IllegalArgumentException("Unknown journal record type: " + type);
+        }
+    }
+
+    private long readSnapshot(Map<String, JoinRecord> state) throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported matchmaking snapshot version: " + version);
+            }
+            long lastSeq = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                QueueKey key = new QueueKey(in.readUTF(), in.readUTF());
+                String playerId = in.readUTF();
+                state.put(playerId, new JoinRecord(key, playerId, in.readInt(), in.readLong()));
+            }
+            return lastSeq;
+        }
+    }
+
+    /**
+     * Scrive lo snapshot in un file temporaneo e lo sostituisce atomicamente al precedente.
+     */
+    private void writeSnapshot(Map<String, JoinRecord> state, long lastSeq) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(lastSeq);
+            out.writeInt(state.size());
+            for (JoinRecord record : state.values()) {
+                out.writeUTF(record.key().mode());
+                out.writeUTF(record.key().region());
+                out.writeUTF(record.playerId());
+                out.writeInt(record.rating());
+                out.writeLong(record.enqueuedAtMillis());
+            }
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(segmentSeq(a), segmentSeq(b)))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", seq) + SEGMENT_SUFFIX);
+    }
+
+    private static long segmentSeq(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal field too long: " + bytes.length + " bytes.");
+        }
+        return bytes;
+    }
+
+    private static void putString(MappedByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid journal string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demo.matchmaking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+
+/**
+ * Metriche del matchmaking, esposte tramite l'endpoint /actuator/metrics.
+ *
+ * <p>Le metriche per shard sono registrate una sola volta all'avvio con
+ * {@link #registerShard(QueueKey, IntSupplier, IntSupplier)}; la profondità delle code viene
+ * letta solo quando le metriche sono consultate, così che l'ingresso in coda non paghi
+ * alcun costo di strumentazione. Tempi di attesa e match vengono registrati dal thread
+ * del tick.</p>
+ */
+@Component
+public class MatchmakingMetrics {
+
+    /**
+     * Tag della coda 1 contro 1.
+     */
+    public static final String SOLO = "solo";
+
+    /**
+     * Tag della coda a squadre.
+     */
+    public static final String PARTY = "party";
+
+    // Finestra su cui viene calcolato il tasso di match, in secondi
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer tickDuration;
+    private final DistributionSummary tickBatchSize;
+    private final Counter soloLeaves;
+    private final Counter partyLeaves;
+    private final Counter notificationFailures;
+    private final Counter cancelledMatches;
+    private final Counter evictions;
+
+    // Metriche di ogni shard, indicizzate per coda e tipo di coda
+    private final Map<QueueKey, ShardMeters> shardMeters = new ConcurrentHashMap<>();
+
+    private final MatchRate matchRate = new MatchRate();
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param meterRegistry Registro delle metriche.
+     */
+    public MatchmakingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.tickDuration = Timer.builder("matchmaking.tick.duration")
+                .description("Duration of a matchmaker tick")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.tickBatchSize = DistributionSummary.builder("matchmaking.tick.batch.size")
+                .description("Number of queued joins drained by a matchmaker tick")
+                .baseUnit("players")
+                .register(meterRegistry);
+        this.soloLeaves = leaveCounter(SOLO);
+        this.partyLeaves = leaveCounter(PARTY);
+        this.notificationFailures = Counter.builder("matchmaking.notification.failures")
+                .description("Match notifications that could not be delivered")
+                .register(meterRegistry);
+        this.cancelledMatches = Counter.builder("matchmaking.matches.cancelled")
+                .description("Matches cancelled because not all players accepted them")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("matchmaking.evictions")
+                .description("Queue entries removed because a player disconnected")
+                .register(meterRegistry);
+        Gauge.builder("matchmaking.matches.rate", matchRate, rate -> rate.perSecond(System.currentTimeMillis()))
+                .description("Matches created per second, averaged over the last " + RATE_WINDOW_SECONDS + " seconds")
+                .baseUnit("matches/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra le metriche di uno shard: profondità delle code, tempo di attesa fino al
+     * match e numero di match creati, con i tag della modalità, della regione e del tipo di coda.
+     *
+     * @param key        Shard.
+     * @param soloDepth  Numero di giocatori in attesa nella coda 1 contro 1.
+     * @param partyDepth Numero di party in attesa nella coda a squadre.
+     */
+    public void registerShard(QueueKey key, IntSupplier soloDepth, IntSupplier partyDepth) {
+        shardMeters.computeIfAbsent(key, k -> new ShardMeters(
+                queueMeters(k, SOLO, soloDepth), queueMeters(k, PARTY, partyDepth)));
+    }
+
+    /**
+     * Registra la durata di un tick e il numero di ingressi prelevati.
+     *
+     * @param durationNanos Durata del tick in nanosecondi.
+     * @param drained       Ingressi prelevati.
+     */
+    public void recordTick(long durationNanos, int drained) {
+        tickDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+        tickBatchSize.record(drained);
+    }
+
+    /**
+     * Registra un match creato e il tempo trascorso in coda da ogni partecipante.
+     * L'attesa si misura sull'orologio di sistema, perché l'ingresso in coda può essere
+     * avvenuto su un'altra istanza.
+     *
+     * @param key       Shard in cui è stato creato il match.
+     * @param queue     Tipo di coda ({@link #SOLO} o {@link #PARTY}).
+     * @param entries   Giocatori o party accoppiati.
+     * @param nowMillis Istante di creazione del match.
+     */
+    public void recordMatch(QueueKey key, String queue, List<? extends QueuedPlayer> entries, long nowMillis) {
+        ShardMeters meters = shardMeters.get(key);
+        if (meters != null) {
+            QueueMeters queueMeters = PARTY.equals(queue) ? meters.party() : meters.solo();
+            for (QueuedPlayer entry : entries) {
+                queueMeters.timeToMatch().record(Math.max(0, nowMillis - entry.getEnqueuedAtMillis()), TimeUnit.MILLISECONDS);
+            }
+            queueMeters.matches().increment();
+        }
+        matchRate.count(nowMillis);
+    }
+
+    /**
+     * Registra l'uscita volontaria dalla coda di un giocatore o di un party prima del match.
+     *
+     * @param queue Tipo di coda ({@link #SOLO} o {@link #PARTY}).
+     */
+    public void recordLeave(String queue) {
+        (PARTY.equals(queue) ? partyLeaves : soloLeaves).increment();
+    }
+
+    /**
+     * Registra una notifica di match non consegnata.
+     */
+    public void recordNotificationFailure() {
+        notificationFailures.increment();
+    }
+
+    /**
+     * Registra un match annullato per mancata conferma dei giocatori.
+     */
+    public void recordCancelledMatch() {
+        cancelledMatches.increment();
+    }
+
+    /**
+     * Registra la rimozione dalla coda di un giocatore disconnesso.
+     */
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    private QueueMeters queueMeters(QueueKey key, String queue, IntSupplier depth) {
+        Gauge.builder("matchmaking.queue.depth", depth, IntSupplier::getAsInt)
+                .description("Entries waiting in a matchmaking queue")
+                .tags("mode", key.mode(), "region", key.region(), "queue", queue)
+                .strongReference(true)
+                .register(meterRegistry);
+        Timer timeToMatch = Timer.builder("matchmaking.time.to.match")
+                .description("Time from joining the queue to being matched")
+                .tags("mode", key.mode(), "region", key.region(), "queue", queue)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+        Counter matches = Counter.builder("matchmaking.matches")
+                .description("Matches created")
+                .tags("mode", key.mode(), "region", key.region(), "queue", queue)
+                .register(meterRegistry);
+        return new QueueMeters(timeToMatch, matches);
+    }
+
+    private Counter leaveCounter(String queue) {
+        return Counter.builder("matchmaking.leaves")
+                .description("Queue entries withdrawn before being matched")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    private record QueueMeters(Timer timeToMatch, Counter matches) {
+    }
+
+    private record ShardMeters(QueueMeters solo, QueueMeters party) {
+    }
+
+    /**
+     * Match creati per ogni secondo della finestra. Ogni cella contiene il secondo a cui si
+     * riferisce nei 32 bit alti e il conteggio in quelli bassi: secondo e conteggio cambiano
+     * con un solo compare-and-set, così che il riuso di una cella non perda incrementi.
+     */
+    private static final class MatchRate {
+
+        private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+        private final AtomicLongArray slots = new AtomicLongArray(RATE_WINDOW_SECONDS + 1);
+
+        void count(long nowMillis) {
+            long second = nowMillis / 1000;
+            int slot = (int) (second % slots.length());
+            long current;
+            long updated;
+            do {
+                current = slots.get(slot);
+                // La cella appartiene a un secondo già uscito dalla finestra: riparte da zero
+                updated = current >>> 32 == second ? current + 1 : second << 32 | 1;
+            } while (!slots.compareAndSet(slot, current, updated));
+        }
+
+        /**
+         * @param nowMillis Istante corrente.
+         * @return Match creati al secondo, in media sugli ultimi secondi completi.
+         */
+        double perSecond(long nowMillis) {
+            long currentSecond = nowMillis / 1000;
+            long total = 0;
+            for (int i = 0; i < slots.length(); i++) {
+                long packed = slots.get(i);
+                long second = packed >>> 32;
+                if (second < currentSecond && second >= currentSecond - RATE_WINDOW_SECONDS) {
+                    total += packed & COUNT_MASK;
+                }
+            }
+            return (double) total / RATE_WINDOW_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.matchmaking;
+
+import java.util.function.Consumer;
+
+/**
+ * Archivio delle code di matchmaking.
+ * Mantiene l'elenco dei giocatori in coda e gli eventi di ingresso e uscita che i matcher
+ * degli shard consumano a ogni tick. Un'implementazione condivisa permette a più istanze
+ * dell'applicazione di lavorare sulle stesse code: ogni istanza riceve tutti gli ingressi,
+ * e {@link #claim(QueuedPlayer, QueuedPlayer)} garantisce che un giocatore venga assegnato
+ * a un solo match anche quando più istanze propongono coppie diverse.
+ */
+public interface MatchmakingQueueBackend {
+
+    /**
+     * Accoda un giocatore. Un giocatore può essere in una sola coda alla volta.
+     *
+     * @param key    Coda di destinazione.
+     * @param player Giocatore da accodare.
+     * @return true se il giocatore è stato accodato, false se era già in coda.
+     */
+    boolean join(QueueKey key, QueuedPlayer player);
+
+    /**
+     * Rimette in coda un giocatore che era stato accoppiato, ad esempio dopo l'annullamento
+     * del match. La voce conserva l'istante di ingresso originale, quindi anche l'attesa già
+     * maturata; le implementazioni locali la consegnano al matcher prima dei nuovi ingressi.
+     *
+     * @param key    Coda di destinazione.
+     * @param player Nuova voce del giocatore, con l'istante di ingresso originale.
+     * @return true se il giocatore è stato accodato, false se era già in coda.
+     */
+    default boolean requeue(QueueKey key, QueuedPlayer player) {
+        return join(key, player);
+    }
+
+    /**
+     * Rimuove un giocatore dalla coda in cui si trova.
+     *
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore era in coda e non era già stato accoppiato.
+     */
+    boolean leave(String playerId);
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return La coda in cui il giocatore è in attesa, o null se non è in coda.
+     */
+    QueueKey queueOf(String playerId);
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Il giocatore in attesa con l'ID indicato, o null se non è in coda.
+     */
+    QueuedPlayer find(String playerId);
+
+    /**
+     * @param key Coda.
+     * @return Numero di giocatori in attesa nella coda.
+     */
+    int size(QueueKey key);
+
+    /**
+     * Consegna al matcher i nuovi ingressi di una coda, in ordine di arrivo.
+     *
+     * @param key  Coda.
+     * @param max  Numero massimo di ingressi da consegnare.
+     * @param sink Destinatario degli ingressi.
+     * @return Numero di ingressi consegnati.
+     */
+    int drainJoins(QueueKey key, int max, Consumer<QueuedPlayer> sink);
+
+    /**
+     * Consegna al matcher gli ID dei giocatori usciti da una coda (per abbandono o per un
+     * match assegnato altrove), così che possano essere rimossi dal pool.
+     *
+     * @param key  Coda.
+     * @param sink Destinatario degli ID.
+     */
+    void drainDepartures(QueueKey key, Consumer<String> sink);
+
+    /**
+     * @param player Giocatore consegnato da {@link #drainJoins}.
+     * @return true se il giocatore è ancora in attesa.
+     */
+    boolean isWaiting(QueuedPlayer player);
+
+    /**
+     * Assegna atomicamente un match a due giocatori: o entrambi escono dalla coda, o nessuno.
+     *
+     * @param first  Primo giocatore.
+     * @param second Secondo giocatore.
+     * @return true se il match è stato assegnato.
+     */
+    boolean claim(QueuedPlayer first, QueuedPlayer second);
+}
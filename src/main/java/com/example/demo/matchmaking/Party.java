@@ -0,0 +1,71 @@
+package com.example.demo.matchmaking;
+
+import java.util.List;
+
+/**
+ * Gruppo di giocatori che entra in coda insieme e viene assegnato alla stessa squadra.
+ * Il party è accodato come un unico giocatore, con il rating medio dei suoi membri;
+ * lo stato (in attesa, accoppiato, uscito) è quello di {@link QueuedPlayer}.
+ */
+public class Party extends QueuedPlayer {
+
+    /**
+     * Dimensione massima di un party.
+     */
+    public static final int MAX_SIZE = 5;
+
+    private final List<String> memberIds;
+    private final int totalRating;
+
+    /**
+     * @param partyId     ID del party.
+     * @param memberIds   ID dei membri (da 1 a {@link #MAX_SIZE}).
+     * @param totalRating Somma dei rating dei membri.
+     */
+    public Party(String partyId, List<String> memberIds, int totalRating) {
+        super(partyId, totalRating / checkSize(memberIds));
+        this.memberIds = List.copyOf(memberIds);
+        this.totalRating = totalRating;
+    }
+
+    /**
+     * @param partyId          ID del party.
+     * @param memberIds        ID dei membri (da 1 a {@link #MAX_SIZE}).
+     * @param totalRating      Somma dei rating dei membri.
+     * @param enqueuedAtMillis Istante di ingresso in coda (epoch millis).
+     * @param enqueuedAtNanos  Istante di ingresso in coda ({@link System#nanoTime()}).
+     */
+    public Party(String partyId, List<String> memberIds, int totalRating, long enqueuedAtMillis, long enqueuedAtNanos) {
+        super(partyId, totalRating / checkSize(memberIds), enqueuedAtMillis, enqueuedAtNanos);
+        this.memberIds = List.copyOf(memberIds);
+        this.totalRating = totalRating;
+    }
+
+    private static int checkSize(List<String> memberIds) {
+        if (memberIds.isEmpty() || memberIds.size() > MAX_SIZE) {
+            throw new IllegalArgumentException("Party size must be between 1 and " + MAX_SIZE + ".");
+        }
+        return memberIds.size();
+    }
+
+    @Override
+    public List<String> getMemberIds() {
+        return memberIds;
+    }
+
+    public int getTotalRating() {
+        return totalRating;
+    }
+
+    @Override
+    public Party requeued() {
+        return new Party(getPlayerId(), memberIds, totalRating, getEnqueuedAtMillis(), getEnqueuedAtNanos());
+    }
+
+    /**
+     * @return Numero di membri del party.
+     */
+    public int size() {
+        return memberIds.size();
+    }
+}
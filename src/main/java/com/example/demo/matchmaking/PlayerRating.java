@@ -0,0 +1,51 @@
+package com.example.demo.matchmaking;
+
+import com.example.demo.model.User;
+
+/**
+ * Calcola il rating di matchmaking di un giocatore a partire dalle statistiche di gioco.
+ * Il rating è una percentuale di vittorie "smussata" con un prior di partite pareggiate,
+ * così che i nuovi giocatori partano dal centro della scala e non agli estremi.
+ */
+public final class PlayerRating {
+
+    /**
+     * Rating assegnato ai giocatori senza statistiche (o non trovati).
+     */
+    public static final int DEFAULT_RATING = 1000;
+
+    /**
+     * Ampiezza della scala del rating (da 0 a MAX_RATING).
+     */
+    public static final int MAX_RATING = 2000;
+
+    // Numero di partite fittizie (metà vinte) aggiunte alle statistiche reali
+    private static final int PRIOR_GAMES = 10;
+
+    private PlayerRating() {
+    }
+
+    /**
+     * Calcola il rating a partire dalle partite giocate e vinte.
+     *
+     * @param gamesPlayed Numero di partite giocate.
+     * @param gamesWon    Numero di partite vinte.
+     * @return Il rating, compreso tra 0 e {@link #MAX_RATING}.
+     */
+    public static int of(int gamesPlayed, int gamesWon) {
+        int played = Math.max(gamesPlayed, 0);
+        int won = Math.min(Math.max(gamesWon, 0), played);
+        double winRate = (won + PRIOR_GAMES / 2.0) / (played + PRIOR_GAMES);
+        return (int) Math.round(winRate * MAX_RATING);
+    }
+
+    /**
+     * Calcola il rating di un utente.
+     *
+     * @param user L'utente.
+     * @return Il rating dell'utente.
+     */
+    public static int of(User user) {
+        return of(user.getGamesPlayed(), user.getGamesWon());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.matchmaking;
+
+import java.util.Locale;
+
+/**
+ * Chiave di una coda di matchmaking: modalità di gioco e regione.
+ * Ogni chiave corrisponde a uno shard indipendente, con la propria coda e il proprio matcher.
+ *
+ * @param mode   Modalità di gioco.
+ * @param region Regione.
+ */
+public record QueueKey(String mode, String region) {
+
+    /**
+     * Crea una chiave normalizzando modalità e regione (minuscolo, senza spazi).
+     *
+     * @param mode   Modalità di gioco.
+     * @param region Regione.
+     * @return La chiave normalizzata.
+     */
+    public static QueueKey of(String mode, String region) {
+        return new QueueKey(normalize(mode), normalize(region));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return mode + "/" + region;
+    }
+}
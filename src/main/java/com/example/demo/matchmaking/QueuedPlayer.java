@@ -0,0 +1,188 @@
+package com.example.demo.matchmaking;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Giocatore in coda di matchmaking.
+ * Lo stato è gestito con operazioni atomiche, così che l'uscita dalla coda
+ * e l'accoppiamento di un match non possano mai avere successo entrambi.
+ */
+public class QueuedPlayer {
+
+    private static final int WAITING = 0;
+    private static final int RESERVED = 1;
+    private static final int MATCHED = 2;
+    private static final int LEFT = 3;
+
+    private final String playerId;
+    private final int rating;
+    private final long enqueuedAtMillis;
+    private final long enqueuedAtNanos;
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    // Finestra di rating corrente, scritta dal matcher e letta per lo stato della coda (-1 = non ancora assegnata)
+    private volatile int ratingWindow = -1;
+
+    /**
+     * @param playerId ID del giocatore.
+     * @param rating   Rating del giocatore al momento dell'ingresso in coda.
+     */
+    public QueuedPlayer(String playerId, int rating) {
+        this(playerId, rating, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    /**
+     * @param playerId         ID del giocatore.
+     * @param rating           Rating del giocatore al momento dell'ingresso in coda.
+     * @param enqueuedAtMillis Istante di ingresso in coda (epoch millis).
+     * @param enqueuedAtNanos  Istante di ingresso in coda ({@link System#nanoTime()}).
+     */
+    public QueuedPlayer(String playerId, int rating, long enqueuedAtMillis, long enqueuedAtNanos) {
+        this.playerId = playerId;
+        this.rating = rating;
+        this.enqueuedAtMillis = enqueuedAtMillis;
+        this.enqueuedAtNanos = enqueuedAtNanos;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public long getEnqueuedAtMillis() {
+        return enqueuedAtMillis;
+    }
+
+    public long getEnqueuedAtNanos() {
+        return enqueuedAtNanos;
+    }
+
+    /**
+     * @return Giocatori rappresentati da questa voce di coda.
+     */
+    public List<String> getMemberIds() {
+        return List.of(playerId);
+    }
+
+    /**
+     * Crea una nuova voce di coda per lo stesso giocatore, con il rating e l'istante di
+     * ingresso originali, da usare per rimetterlo in coda dopo un match annullato.
+     *
+     * @return Nuova voce in attesa.
+     */
+    public QueuedPlayer requeued() {
+        return new QueuedPlayer(playerId, rating, enqueuedAtMillis, enqueuedAtNanos);
+    }
+
+    /**
+     * @return Differenza di rating accettata in questo momento, o -1 se il matcher non ha
+     * ancora preso in carico il giocatore.
+     */
+    public int getRatingWindow() {
+        return ratingWindow;
+    }
+
+    void setRatingWindow(int ratingWindow) {
+        this.ratingWindow = ratingWindow;
+    }
+
+    /**
+     * @return true se il giocatore è ancora in attesa di un match.
+     */
+    public boolean isWaiting() {
+        return state.get() == WAITING;
+    }
+
+    /**
+     * Prenota il giocatore per un match, in attesa di confermare l'avversario.
+     *
+     * @return true se il giocatore era in attesa.
+     */
+    boolean reserve() {
+        return state.compareAndSet(WAITING, RESERVED);
+    }
+
+    /**
+     * Annulla una prenotazione: il giocatore torna in attesa.
+     */
+    void release() {
+        state.compareAndSet(RESERVED, WAITING);
+    }
+
+    /**
+     * Conferma il match per un giocatore prenotato.
+     */
+    void confirm() {
+        state.compareAndSet(RESERVED, MATCHED);
+    }
+
+    /**
+     * Assegna direttamente il match a un giocatore in attesa.
+     *
+     * @return true se il giocatore era in attesa.
+     */
+    boolean match() {
+        return state.compareAndSet(WAITING, MATCHED);
+    }
+
+    /**
+     * Segna l'uscita del giocatore dalla coda. Se il giocatore è prenotato
+     * attende l'esito della prenotazione, che dura pochi istanti.
+     *
+     * @return true se il giocatore era in attesa, false se è già stato accoppiato o è già uscito.
+     */
+    public boolean leave() {
+        while (true) {
+            if (state.compareAndSet(WAITING, LEFT)) {
+                return true;
+            }
+            if (state.get() != RESERVED) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Accoppia atomicamente due giocatori: o entrambi passano allo stato "matched", o nessuno.
+     *
+     * @param first  Primo giocatore.
+     * @param second Secondo giocatore.
+     * @return true se il match è stato assegnato.
+     */
+    public static boolean claim(QueuedPlayer first, QueuedPlayer second) {
+        if (!first.reserve()) {
+            return false;
+        }
+        if (!second.match()) {
+            first.release();
+            return false;
+        }
+        first.confirm();
+        return true;
+    }
+
+    /**
+     * Assegna atomicamente un match a un gruppo di giocatori: o tutti passano allo stato
+     * "matched", o nessuno. In caso di fallimento le prenotazioni già fatte vengono annullate.
+     *
+     * @param players Giocatori da accoppiare.
+     * @return true se il match è stato assegnato.
+     */
+    public static boolean claimAll(List<? extends QueuedPlayer> players) {
+        for (int i = 0; i < players.size(); i++) {
+            if (!players.get(i).reserve()) {
+                for (int j = 0; j < i; j++) {
+                    players.get(j).release();
+                }
+                return false;
+            }
+        }
+        players.forEach(QueuedPlayer::confirm);
+        return true;
+    }
+}
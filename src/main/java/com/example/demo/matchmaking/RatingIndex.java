@@ -0,0 +1,210 @@
+package com.example.demo.matchmaking;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Indice ordinato dei giocatori in attesa, per rating.
+ * Permette di trovare l'avversario con il rating più vicino in tempo logaritmico
+ * invece di scorrere tutta la coda.
+ *
+ * <p>Ogni giocatore è memorizzato con una chiave composta {@code rating << 40 | seq},
+ * dove {@code seq} è l'ordine di arrivo: a parità di rating viene preferito il giocatore
+ * in attesa da più tempo.</p>
+ *
+ * <p>La classe non è thread-safe: l'accesso deve essere sincronizzato dal chiamante.</p>
+ */
+public class RatingIndex {
+
+    private static final int SEQ_BITS = 40;
+    private static final long SEQ_MASK = (1L << SEQ_BITS) - 1;
+
+    // Giocatori ordinati per (rating, ordine di arrivo)
+    private final TreeMap<Long, String> byRating = new TreeMap<>();
+
+    // Chiave di ogni giocatore presente nell'indice, per la rimozione diretta
+    private final Map<String, Long> keys = new HashMap<>();
+
+    private long nextSeq;
+
+    /**
+     * Aggiunge un giocatore all'indice.
+     *
+     * @param playerId ID del giocatore.
+     * @param rating   Rating del giocatore (non negativo).
+     * @return true se il giocatore è stato aggiunto, false se era già presente.
+     */
+    public boolean add(String playerId, int rating) {
+        if (rating < 0) {
+            throw new IllegalArgumentException("Rating cannot be negative: " + rating);
+        }
+        if (keys.containsKey(playerId)) {
+            return false;
+        }
+        long key = ((long) rating << SEQ_BITS) | (nextSeq++ & SEQ_MASK);
+        keys.put(playerId, key);
+        byRating.put(key, playerId);
+        return true;
+    }
+
+    /**
+     * Rimuove un giocatore dall'indice.
+     *
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore era presente.
+     */
+    public boolean remove(String playerId) {
+        Long key = keys.remove(playerId);
+        if (key == null) {
+            return false;
+        }
+        byRating.remove(key);
+        return true;
+    }
+
+    /**
+     * Verifica se un giocatore è presente nell'indice.
+     *
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore è presente.
+     */
+    public boolean contains(String playerId) {
+        return keys.containsKey(playerId);
+    }
+
+    /**
+     * @return Numero di giocatori presenti nell'indice.
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Trova l'avversario con il rating più vicino a quello del giocatore indicato,
+     * entro la differenza massima consentita. Il giocatore non viene rimosso.
+     *
+     * @param playerId ID del giocatore (deve essere presente nell'indice).
+     * @param maxGap   Differenza di rating massima accettata.
+     * @return L'ID dell'avversario, oppure null se nessuno è abbastanza vicino.
+     */
+    public String findNearest(String playerId, int maxGap) {
+        Long key = keys.get(playerId);
+        if (key == null) {
+            return null;
+        }
+        int rating = ratingOf(key);
+
+        Map.Entry<Long, String> lower = byRating.lowerEntry(key);
+        Map.Entry<Long, String> higher = byRating.higherEntry(key);
+
+        int lowerGap = lower != null ? rating - ratingOf(lower.getKey()) : Integer.MAX_VALUE;
+        int higherGap = higher != null ? ratingOf(higher.getKey()) - rating : Integer.MAX_VALUE;
+
+        // A parità di distanza si preferisce chi è in coda da più tempo
+        Map.Entry<Long, String> nearest;
+        if (lowerGap == higherGap && lower != null) {
+            nearest = seqOf(lower.getKey()) < seqOf(higher.getKey()) ? lower : higher;
+        } else {
+            nearest = lowerGap < higherGap ? lower : higher;
+        }
+
+        if (nearest == null || Math.min(lowerGap, higherGap) > maxGap) {
+            return null;
+        }
+        return nearest.getValue();
+    }
+
+    /**
+     * Trova l'avversario più vicino per rating che accetta a sua volta il giocatore: la
+     * differenza di rating deve rientrare sia in {@code maxGap} sia nella differenza
+     * massima accettata dall'avversario. Gli avversari più vicini che non accettano il
+     * giocatore vengono saltati. Il giocatore non viene rimosso.
+     *
+     * @param playerId    ID del giocatore (deve essere presente nell'indice).
+     * @param maxGap      Differenza di rating massima accettata dal giocatore.
+     * @param opponentGap Differenza di rating massima accettata da un avversario, per ID.
+     * @return L'ID dell'avversario, oppure null se nessuno è abbastanza vicino.
+     */
+    public String findNearest(String playerId, int maxGap, ToIntFunction<String> opponentGap) {
+        Long key = keys.get(playerId);
+        if (key == null) {
+            return null;
+        }
+        int rating = ratingOf(key);
+        Iterator<Map.Entry<Long, String>> below = byRating.headMap(key, false).descendingMap().entrySet().iterator();
+        Iterator<Map.Entry<Long, String>> above = byRating.tailMap(key, false).entrySet().iterator();
+        Map.Entry<Long, String> lower = below.hasNext() ? below.next() : null;
+        Map.Entry<Long, String> higher = above.hasNext() ? above.next() : null;
+
+        while (lower != null || higher != null) {
+            int lowerGap = lower != null ? rating - ratingOf(lower.getKey()) : Integer.MAX_VALUE;
+            int higherGap = higher != null ? ratingOf(higher.getKey()) - rating : Integer.MAX_VALUE;
+            // A parità di distanza si preferisce chi è in coda da più tempo
+            boolean takeLower = lowerGap < higherGap
+                    || (lowerGap == higherGap && seqOf(lower.getKey()) < seqOf(higher.getKey()));
+            int gap = Math.min(lowerGap, higherGap);
+            if (gap > maxGap) {
+                return null;
+            }
+            String candidate;
+            if (takeLower) {
+                candidate = lower.getValue();
+                lower = below.hasNext() ? below.next() : null;
+            } else {
+                candidate = higher.getValue();
+                higher = above.hasNext() ? above.next() : null;
+            }
+            if (gap <= opponentGap.applyAsInt(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visita i giocatori con il rating più vicino a quello indicato, in ordine di distanza
+     * crescente (a parità di distanza, prima chi è in coda da più tempo), fino a un massimo
+     * di {@code limit} giocatori entro la differenza massima consentita.
+     *
+     * @param rating  Rating di riferimento.
+     * @param maxGap  Differenza di rating massima accettata.
+     * @param limit   Numero massimo di giocatori da visitare.
+     * @param visitor Destinatario degli ID dei giocatori.
+     */
+    public void forEachNearest(int rating, int maxGap, int limit, Consumer<String> visitor) {
+        long pivot = (long) Math.max(rating, 0) << SEQ_BITS;
+        Iterator<Map.Entry<Long, String>> below = byRating.headMap(pivot, false).descendingMap().entrySet().iterator();
+        Iterator<Map.Entry<Long, String>> above = byRating.tailMap(pivot, true).entrySet().iterator();
+        Map.Entry<Long, String> lower = below.hasNext() ? below.next() : null;
+        Map.Entry<Long, String> higher = above.hasNext() ? above.next() : null;
+
+        for (int visited = 0; visited < limit && (lower != null || higher != null); visited++) {
+            int lowerGap = lower != null ? rating - ratingOf(lower.getKey()) : Integer.MAX_VALUE;
+            int higherGap = higher != null ? ratingOf(higher.getKey()) - rating : Integer.MAX_VALUE;
+            boolean takeLower = lowerGap < higherGap
+                    || (lowerGap == higherGap && seqOf(lower.getKey()) < seqOf(higher.getKey()));
+            if (Math.min(lowerGap, higherGap) > maxGap) {
+                return;
+            }
+            if (takeLower) {
+                visitor.accept(lower.getValue());
+                lower = below.hasNext() ? below.next() : null;
+            } else {
+                visitor.accept(higher.getValue());
+                higher = above.hasNext() ? above.next() : null;
+            }
+        }
+    }
+
+    private static int ratingOf(long key) {
+        return (int) (key >>> SEQ_BITS);
+    }
+
+    private static long seqOf(long key) {
+        return key & SEQ_MASK;
+    }
+}
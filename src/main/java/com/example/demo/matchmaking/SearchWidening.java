@@ -0,0 +1,63 @@
+package com.example.demo.matchmaking;
+
+/**
+ * Politica di allargamento della finestra di rating per i giocatori in attesa.
+ * La finestra parte da {@code baseGap} e cresce di {@code stepGap} ogni {@code stepMillis}
+ * di attesa, fino a {@code maxGap}.
+ *
+ * @param baseGap    Differenza di rating accettata all'ingresso in coda.
+ * @param stepGap    Incremento della finestra a ogni passo (0 = nessun allargamento).
+ * @param maxGap     Finestra massima.
+ * @param stepMillis Durata di un passo, in millisecondi.
+ */
+public record SearchWidening(int baseGap, int stepGap, int maxGap, long stepMillis) {
+
+    public SearchWidening {
+        if (baseGap < 0 || stepGap < 0 || stepMillis <= 0) {
+            throw new IllegalArgumentException("Invalid search widening: gaps cannot be negative and the step must be positive.");
+        }
+        maxGap = Math.max(baseGap, maxGap);
+    }
+
+    /**
+     * @param gap Differenza di rating fissa.
+     * @return Una politica senza allargamento.
+     */
+    public static SearchWidening fixed(int gap) {
+        return new SearchWidening(gap, 0, gap, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return true se la finestra viene allargata nel tempo.
+     */
+    public boolean isEnabled() {
+        return stepGap > 0 && maxGap > baseGap;
+    }
+
+    /**
+     * @param waitedMillis Tempo di attesa.
+     * @return La finestra spettante dopo l'attesa indicata.
+     */
+    public int windowAfter(long waitedMillis) {
+        if (!isEnabled() || waitedMillis < stepMillis) {
+            return baseGap;
+        }
+        return (int) Math.min(maxGap, baseGap + (waitedMillis / stepMillis) * stepGap);
+    }
+
+    /**
+     * @param waitedMillis Tempo di attesa.
+     * @return Millisecondi mancanti al prossimo passo di allargamento.
+     */
+    public long untilNextStep(long waitedMillis) {
+        return stepMillis - Math.max(0, waitedMillis) % stepMillis;
+    }
+
+    /**
+     * @param window Finestra corrente.
+     * @return La finestra dopo un passo di allargamento.
+     */
+    public int widen(int window) {
+        return (int) Math.min(maxGap, (long) window + stepGap);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo.matchmaking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Composizione di squadre bilanciate a partire dai party in attesa.
+ *
+ * <p>I party sono indicizzati per rating in un {@link RatingIndex} per ogni dimensione.
+ * Per comporre un match attorno a un party (l'ancora) l'algoritmo:</p>
+ * <ol>
+ *     <li>raccoglie da ogni indice i party di rating più vicino all'ancora, solo quanti
+ *     potrebbero servire per riempire due squadre;</li>
+ *     <li>riempie due squadre della dimensione richiesta con un bin-packing
+ *     first-fit decreasing (prima i party più grandi, a parità di dimensione i più vicini
+ *     per rating);</li>
+ *     <li>ridistribuisce i party scelti tra le due squadre provando tutte le suddivisioni
+ *     valide (al più 2<sup>10</sup>) e tiene quella con la minore differenza di rating.</li>
+ * </ol>
+ * <p>Il costo di una composizione non dipende dalla profondità della coda, se non per
+ * le ricerche logaritmiche negli indici.</p>
+ *
+ * <p>La classe non è thread-safe: l'accesso deve essere sincronizzato dal chiamante.</p>
+ */
+public class TeamAssembler {
+
+    private final int teamSize;
+    private final int maxRatingGap;
+
+    // Un indice per ogni dimensione di party: buckets[size]
+    private final RatingIndex[] buckets;
+    private final Map<String, Party> parties = new HashMap<>();
+
+    /**
+     * @param teamSize     Numero di giocatori per squadra (da 1 a {@link Party#MAX_SIZE}).
+     * @param maxRatingGap Differenza massima tra il rating medio dell'ancora e quello degli altri party.
+     */
+    public TeamAssembler(int teamSize, int maxRatingGap) {
+        if (teamSize < 1 || teamSize > Party.MAX_SIZE) {
+            throw new IllegalArgumentException("Team size must be between 1 and " + Party.MAX_SIZE + ": " + teamSize);
+        }
+        this.teamSize = teamSize;
+        this.maxRatingGap = maxRatingGap;
+        this.buckets = new RatingIndex[teamSize + 1];
+        for (int size = 1; size <= teamSize; size++) {
+            buckets[size] = new RatingIndex();
+        }
+    }
+
+    /**
+     * @return Numero di giocatori per squadra.
+     */
+    public int getTeamSize() {
+        return teamSize;
+    }
+
+    /**
+     * Aggiunge un party al pool.
+     *
+     * @param party Party da aggiungere.
+     * @return true se il party è stato aggiunto, false se era già presente.
+     * @throws IllegalArgumentException Se il party è più grande di una squadra.
+     */
+    public boolean add(Party party) {
+        if (party.size() > teamSize) {
+            throw new IllegalArgumentException("Party size cannot exceed the team size of " + teamSize + ".");
+        }
+        if (parties.putIfAbsent(party.getPlayerId(), party) != null) {
+            return false;
+        }
+        buckets[party.size()].add(party.getPlayerId(), party.getRating());
+        return true;
+    }
+
+    /**
+     * Rimuove un party dal pool.
+     *
+     * @param party Party da rimuovere.
+     * @return true se il party era presente.
+     */
+    public boolean remove(Party party) {
+        if (!parties.remove(party.getPlayerId(), party)) {
+            return false;
+        }
+        buckets[party.size()].remove(party.getPlayerId());
+        return true;
+    }
+
+    /**
+     * @param party Party.
+     * @return true se il party è nel pool.
+     */
+    public boolean contains(Party party) {
+        return parties.get(party.getPlayerId()) == party;
+    }
+
+    /**
+     * @return Numero di party nel pool.
+     */
+    public int size() {
+        return parties.size();
+    }
+
+    /**
+     * Compone un match che include il party indicato. I party non vengono rimossi dal pool.
+     *
+     * @param anchor Party attorno a cui comporre il match (deve essere nel pool).
+     * @return Il match composto, o null se i party compatibili non bastano a riempire due squadre.
+     */
+    public TeamMatch assemble(Party anchor) {
+        if (!contains(anchor)) {
+            return null;
+        }
+        int remaining = 2 * teamSize - anchor.size();
+
+        // 1. Candidati: per ogni dimensione, solo quanti party potrebbero servire
+        List<Party> candidates = new ArrayList<>();
+        for (int size = 1; size <= teamSize; size++) {
+            buckets[size].forEachNearest(anchor.getRating(), maxRatingGap, remaining / size + 1, partyId -> {
+                if (!partyId.equals(anchor.getPlayerId())) {
+                    candidates.add(parties.get(partyId));
+                }
+            });
+        }
+
+        // 2. First-fit decreasing su due squadre, con l'ancora già nella prima
+        candidates.sort(Comparator.comparingInt(Party::size).reversed()
+                .thenComparingInt(party -> Math.abs(party.getRating() - anchor.getRating()))
+                .thenComparingLong(Party::getEnqueuedAtNanos));
+        List<Party> selected = new ArrayList<>();
+        selected.add(anchor);
+        int[] filled = {anchor.size(), 0};
+        for (Party candidate : candidates) {
+            if (filled[0] == teamSize && filled[1] == teamSize) {
+                break;
+            }
+            for (int team = 0; team < 2; team++) {
+                if (filled[team] + candidate.size() <= teamSize) {
+                    filled[team] += candidate.size();
+                    selected.add(candidate);
+                    break;
+                }
+            }
+        }
+        if (filled[0] != teamSize || filled[1] != teamSize) {
+            return null;
+        }
+
+        // 3. Bilanciamento: la suddivisione valida con la minore differenza di rating
+        return balance(selected);
+    }
+
+    /**
+     * Divide i party in due squadre della dimensione richiesta minimizzando la differenza
+     * tra la somma dei rating. L'ancora (primo elemento) resta sempre nella prima squadra,
+     * così ogni suddivisione viene valutata una sola volta.
+     */
+    private TeamMatch balance(List<Party> selected) {
+        int count = selected.size();
+        int totalRating = 0;
+        for (Party party : selected) {
+            totalRating += party.getTotalRating();
+        }
+
+        int bestMask = -1;
+        long bestDifference = Long.MAX_VALUE;
+        for (int mask = 1; mask < (1 << count); mask += 2) {
+            int members = 0;
+            int rating = 0;
+            for (int i = 0; i < count; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    members += selected.get(i).size();
+                    rating += selected.get(i).getTotalRating();
+                }
+            }
+            if (members != teamSize) {
+                continue;
+            }
+            long difference = Math.abs(2L * rating - totalRating);
+            if (difference < bestDifference) {
+                bestDifference = difference;
+                bestMask = mask;
+            }
+        }
+
+        List<Party> firstTeam = new ArrayList<>();
+        List<Party> secondTeam = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ((bestMask & (1 << i)) != 0 ? firstTeam : secondTeam).add(selected.get(i));
+        }
+        return new TeamMatch(firstTeam, secondTeam);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.matchmaking;
+
+import java.util.List;
+
+/**
+ * Match tra due squadre, ognuna composta da uno o più party.
+ *
+ * @param firstTeam  Party della prima squadra.
+ * @param secondTeam Party della seconda squadra.
+ */
+public record TeamMatch(List<Party> firstTeam, List<Party> secondTeam) {
+
+    /**
+     * @return ID dei giocatori della prima squadra.
+     */
+    public List<String> firstTeamMembers() {
+        return members(firstTeam);
+    }
+
+    /**
+     * @return ID dei giocatori della seconda squadra.
+     */
+    public List<String> secondTeamMembers() {
+        return members(secondTeam);
+    }
+
+    /**
+     * @return Differenza assoluta tra la somma dei rating delle due squadre.
+     */
+    public int ratingDifference() {
+        return Math.abs(totalRating(firstTeam) - totalRating(secondTeam));
+    }
+
+    private static List<String> members(List<Party> team) {
+        return team.stream().flatMap(party -> party.getMemberIds().stream()).toList();
+    }
+
+    private static int totalRating(List<Party> team) {
+        return team.stream().mapToInt(Party::getTotalRating).sum();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.matchmaking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Matcher a tick delle squadre di uno shard di matchmaking.
+ * I party entrano ed escono dalla coda dal thread della richiesta; a ogni tick il matcher
+ * preleva un lotto di nuovi party e prova a comporre un match attorno a ognuno con
+ * {@link TeamAssembler}.
+ *
+ * <p>Le code dei party sono locali all'istanza. I party con un membro disconnesso restano
+ * in coda fuori dal pool e vi rientrano quando tutti i membri risultano connessi.</p>
+ */
+public class TeamMatchmaker {
+
+    /**
+     * Riceve i match creati a ogni tick.
+     */
+    @FunctionalInterface
+    public interface TeamMatchListener {
+
+        /**
+         * @param match Match tra le due squadre.
+         */
+        void onMatch(TeamMatch match);
+    }
+
+    // Party entrati in coda e non ancora consegnati al tick
+    private final ConcurrentLinkedDeque<Party> pendingJoins = new ConcurrentLinkedDeque<>();
+    // Party usciti dalla coda, da rimuovere dal pool
+    private final ConcurrentLinkedQueue<Party> departures = new ConcurrentLinkedQueue<>();
+    // Party in attesa, letti anche fuori dal thread del tick
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Pool del thread del tick
+    private final TeamAssembler assembler;
+    // Party in attesa con membri disconnessi, esclusi dal pool
+    private final Map<String, Party> parkedParties = new HashMap<>();
+
+    private final int batchSize;
+    private final Predicate<String> presence;
+    private final TeamMatchListener listener;
+
+    /**
+     * @param teamSize     Numero di giocatori per squadra.
+     * @param maxRatingGap Differenza massima di rating medio tra i party di un match.
+     * @param batchSize    Numero massimo di party prelevati a ogni tick.
+     * @param listener     Destinatario dei match creati.
+     */
+    public TeamMatchmaker(int teamSize, int maxRatingGap, int batchSize, TeamMatchListener listener) {
+        this(teamSize, maxRatingGap, batchSize, playerId -> true, listener);
+    }
+
+    /**
+     * @param teamSize     Numero di giocatori per squadra.
+     * @param maxRatingGap Differenza massima di rating medio tra i party di un match.
+     * @param batchSize    Numero massimo di party prelevati a ogni tick.
+     * @param presence     Indica se un giocatore è connesso e può quindi essere accoppiato.
+     * @param listener     Destinatario dei match creati.
+     */
+    public TeamMatchmaker(int teamSize, int maxRatingGap, int batchSize, Predicate<String> presence,
+                          TeamMatchListener listener) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.assembler = new TeamAssembler(teamSize, maxRatingGap);
+        this.batchSize = batchSize;
+        this.presence = presence;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Numero di giocatori per squadra.
+     */
+    public int getTeamSize() {
+        return assembler.getTeamSize();
+    }
+
+    /**
+     * @return Numero di party in attesa.
+     */
+    public int size() {
+        return waiting.get();
+    }
+
+    /**
+     * Accoda un party. Il party verrà considerato al prossimo tick.
+     *
+     * @param party Party da accodare.
+     */
+    public void join(Party party) {
+        if (party.size() > assembler.getTeamSize()) {
+            throw new IllegalArgumentException("Party size cannot exceed the team size of " + assembler.getTeamSize() + ".");
+        }
+        waiting.incrementAndGet();
+        pendingJoins.offer(party);
+    }
+
+    /**
+     * Rimette in coda un party dopo l'annullamento del suo match. Il party viene
+     * considerato al prossimo tick prima dei nuovi arrivi.
+     *
+     * @param party Nuova voce del party, con l'istante di ingresso originale.
+     */
+    public void requeue(Party party) {
+        waiting.incrementAndGet();
+        pendingJoins.offerFirst(party);
+    }
+
+    /**
+     * Rimuove un party dalla coda.
+     *
+     * @param party Party da rimuovere.
+     * @return true se il party era in attesa, false se è già stato accoppiato o è già uscito.
+     */
+    public boolean leave(Party party) {
+        if (!party.leave()) {
+            return false;
+        }
+        waiting.decrementAndGet();
+        departures.offer(party);
+        return true;
+    }
+
+    /**
+     * Esegue un tick: rimuove dal pool i party usciti, preleva fino a un lotto di nuovi
+     * party e prova a comporre un match attorno a ognuno.
+     * Deve essere invocato sempre dallo stesso thread, o comunque mai in parallelo.
+     *
+     * @return Numero di party prelevati in questo tick.
+     */
+    public int tick() {
+        Party departed;
+        while ((departed = departures.poll()) != null) {
+            assembler.remove(departed);
+            parkedParties.remove(departed.getPlayerId(), departed);
+        }
+
+        List<Party> batch = new ArrayList<>();
+        Iterator<Party> parked = parkedParties.values().iterator();
+        while (parked.hasNext()) {
+            Party candidate = parked.next();
+            if (!candidate.isWaiting()) {
+                parked.remove();
+            } else if (isOnline(candidate)) {
+                parked.remove();
+                if (assembler.add(candidate)) {
+                    batch.add(candidate);
+                }
+            }
+        }
+
+        Party party;
+        while (batch.size() < batchSize && (party = pendingJoins.poll()) != null) {
+            if (party.isWaiting() && assembler.add(party)) {
+                batch.add(party);
+            }
+        }
+
+        for (Party anchor : batch) {
+            assembleAround(anchor);
+        }
+        return batch.size();
+    }
+
+    private void assembleAround(Party anchor) {
+        TeamMatch match;
+        while ((match = assembler.assemble(anchor)) != null) {
+            List<Party> parties = new ArrayList<>(match.firstTeam());
+            parties.addAll(match.secondTeam());
+            List<Party> offline = parties.stream().filter(p -> !isOnline(p)).toList();
+            if (!offline.isEmpty()) {
+                // I party disconnessi escono dal pool ma restano in coda
+                offline.forEach(this::park);
+                if (offline.contains(anchor)) {
+                    return;
+                }
+                continue;
+            }
+            if (QueuedPlayer.claimAll(parties)) {
+                parties.forEach(assembler::remove);
+                waiting.addAndGet(-parties.size());
+                listener.onMatch(match);
+                return;
+            }
+            // Qualche party è uscito nel frattempo: lo si scarta e si riprova
+            parties.stream().filter(p -> !p.isWaiting()).forEach(assembler::remove);
+        }
+    }
+
+    private boolean isOnline(Party party) {
+        return party.getMemberIds().stream().allMatch(presence);
+    }
+
+    private void park(Party party) {
+        assembler.remove(party);
+        parkedParties.put(party.getPlayerId(), party);
+    }
+}
@@ -3,6 +3,8 @@ package com.example.demo.repository;
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -10,6 +12,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Metodo per trovare un utente tramite username
     Optional<User> findByUsername(String username);
 
+    // Metodo per trovare in blocco gli utenti tramite username
+    List<User> findAllByUsernameIn(Collection<String> usernames);
+
     // Metodo per trovare un utente tramite email (se necessario)
     Optional<User> findByEmail(String email);
 
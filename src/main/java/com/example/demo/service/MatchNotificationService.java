@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.config.MatchmakingConfig;
+import com.example.demo.matchmaking.MatchmakingMetrics;
+import com.example.demo.websocket.WebSocketMessageHandler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servizio di consegna asincrona delle notifiche del matchmaking.
+ * Le notifiche vengono accodate e inviate da thread dedicati, così che un socket lento
+ * non blocchi i thread dei matcher. Ogni giocatore è assegnato sempre allo stesso thread,
+ * quindi le sue notifiche arrivano nell'ordine in cui sono state accodate.
+ */
+@Service
+public class MatchNotificationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchNotificationService.class);
+
+    private final WebSocketMessageHandler webSocketHandler;
+
+    private final MatchmakingMetrics matchmakingMetrics;
+
+    // Un thread con la propria coda per ogni corsia di consegna
+    private final ExecutorService[] lanes;
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param webSocketHandler   Gestore dei messaggi WebSocket.
+     * @param matchmakingMetrics Metriche del matchmaking.
+     * @param matchmakingConfig  Configurazione del matchmaking.
+     */
+    public MatchNotificationService(WebSocketMessageHandler webSocketHandler, MatchmakingMetrics matchmakingMetrics,
+                                    MatchmakingConfig matchmakingConfig) {
+        this.webSocketHandler = webSocketHandler;
+        this.matchmakingMetrics = matchmakingMetrics;
+        this.lanes = new ExecutorService[Math.max(1, matchmakingConfig.getNotificationThreads())];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "match-notifier-" + (i + 1);
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(matchmakingConfig.getNotificationQueueCapacity()),
+                    runnable -> new Thread(runnable, name));
+        }
+    }
+
+    /**
+     * Accoda una notifica per un giocatore.
+     *
+     * @param playerId ID del giocatore.
+     * @param message  Messaggio da inviare.
+     */
+    public void send(String playerId, String message) {
+        send(playerId, message, null);
+    }
+
+    /**
+     * Accoda una notifica per un giocatore. Se la notifica non può essere consegnata
+     * (giocatore senza sessione aperta, errore di invio o coda piena) viene eseguita
+     * l'azione indicata, dal thread di consegna.
+     *
+     * @param playerId  ID del giocatore.
+     * @param message   Messaggio da inviare.
+     * @param onFailure Azione da eseguire se la consegna fallisce (opzionale).
+     */
+    public void send(String playerId, String message, Runnable onFailure) {
+        try {
+            lanes[Math.floorMod(playerId.hashCode(), lanes.length)].execute(() -> deliver(playerId, message, onFailure));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Notification queue full, dropping message for player [{}].", playerId);
+            fail(playerId, onFailure);
+        }
+    }
+
+    /**
+     * Arresta i thread di consegna, attendendo l'invio delle notifiche già accodate.
+     */
+    @PreDestroy
+    public void stop() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(String playerId, String message, Runnable onFailure) {
+        try {
+            if (webSocketHandler.sendMessageToUser(playerId, message)) {
+                return;
+            }
+        } catch (Exception e) {
+            logger.error("Error notifying player [{}]: {}", playerId, e.getMessage());
+        }
+        fail(playerId, onFailure);
+    }
+
+    private void fail(String playerId, Runnable onFailure) {
+        matchmakingMetrics.recordNotificationFailure();
+        if (onFailure == null) {
+            return;
+        }
+        try {
+            onFailure.run();
+        } catch (Exception e) {
+            logger.error("Error handling failed notification for player [{}]: {}", playerId, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import com.example.demo.config.MatchmakingConfig;
+import com.example.demo.matchmaking.Match;
+import com.example.demo.matchmaking.MatchRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servizio per la gestione del ciclo di vita dei match creati dal matchmaking.
+ * I risultati dei match terminati vengono accumulati e applicati alle statistiche
+ * degli utenti in blocco, a intervalli regolari.
+ */
+@Service
+public class MatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchService.class);
+
+    private final MatchRegistry matchRegistry;
+
+    private final UserService userService;
+
+    private final MatchmakingConfig matchmakingConfig;
+
+    // Match terminati i cui risultati non sono ancora stati applicati alle statistiche
+    private final ConcurrentLinkedQueue<Match> pendingResults = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService statsExecutor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "match-stats"));
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param matchRegistry     Registro dei match.
+     * @param userService       Servizio per la gestione degli utenti.
+     * @param matchmakingConfig Configurazione del matchmaking.
+     */
+    public MatchService(MatchRegistry matchRegistry, UserService userService, MatchmakingConfig matchmakingConfig) {
+        this.matchRegistry = matchRegistry;
+        this.userService = userService;
+        this.matchmakingConfig = matchmakingConfig;
+    }
+
+    /**
+     * Avvia l'applicazione periodica dei risultati alle statistiche.
+     */
+    @PostConstruct
+    public void start() {
+        long interval = matchmakingConfig.getStatsFlushIntervalMs();
+        statsExecutor.scheduleWithFixedDelay(this::flushResults, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applica i risultati ancora in sospeso e arresta l'aggiornamento periodico.
+     */
+    @PreDestroy
+    public void stop() {
+        statsExecutor.shutdown();
+        flushResults();
+    }
+
+    /**
+     * @param matchId ID del match.
+     * @return Il match, se esiste.
+     */
+    public Optional<Match> getMatch(String matchId) {
+        return matchRegistry.find(matchId);
+    }
+
+    /**
+     * Registra la conferma di un giocatore. Con l'ultima conferma il match passa a READY.
+     *
+     * @param match    Match.
+     * @param playerId ID numerico o username del giocatore.
+     * @throws IllegalArgumentException Se il giocatore non partecipa o il match non attende conferme.
+     */
+    public void markReady(Match match, String playerId) {
+        if (matchRegistry.markReady(match, userService.canonicalPlayerId(playerId))) {
+            logger.info("All players ready for match [{}].", match.getMatchId());
+        }
+    }
+
+    /**
+     * Avvia la partita di un match pronto, su richiesta di uno dei partecipanti.
+     *
+     * @param match    Match.
+     * @param playerId ID numerico o username del giocatore che avvia la partita.
+     * @throws IllegalArgumentException Se il giocatore non partecipa o il match non è pronto.
+     */
+    public void start(Match match, String playerId) {
+        requireParticipant(match, playerId);
+        matchRegistry.start(match);
+        logger.info("Match [{}] started by player [{}].", match.getMatchId(), playerId);
+    }
+
+    /**
+     * Registra il risultato di una partita in corso. Le statistiche dei giocatori vengono
+     * aggiornate al prossimo aggiornamento in blocco.
+     *
+     * @param match       Match.
+     * @param playerId    ID numerico o username del giocatore che riporta il risultato.
+     * @param winningTeam Squadra vincitrice (1 o 2).
+     * @throws IllegalArgumentException Se il giocatore non partecipa, la squadra non è valida
+     *                                  o la partita non è in corso.
+     */
+    public void reportResult(Match match, String playerId, int winningTeam) {
+        requireParticipant(match, playerId);
+        matchRegistry.finish(match, winningTeam);
+        pendingResults.offer(match);
+        logger.info("Match [{}] finished, team {} won (reported by player [{}]).", match.getMatchId(), winningTeam, playerId);
+    }
+
+    private void requireParticipant(Match match, String playerId) {
+        if (playerId == null || !match.hasPlayer(userService.canonicalPlayerId(playerId))) {
+            throw new IllegalArgumentException("Player " + playerId + " is not part of match " + match.getMatchId() + ".");
+        }
+    }
+
+    /**
+     * Applica alle statistiche degli utenti i risultati accumulati, con un solo
+     * aggiornamento in blocco. In caso di errore i risultati vengono rimessi in coda.
+     */
+    void flushResults() {
+        List<Match> drained = new ArrayList<>();
+        Match match;
+        while ((match = pendingResults.poll()) != null) {
+            drained.add(match);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Map<String, UserService.GameStatsDelta> deltas = new HashMap<>();
+        for (Match finished : drained) {
+            List<String> winners = finished.getWinningTeam() == 1 ? finished.getFirstTeam() : finished.getSecondTeam();
+            for (String playerId : finished.getPlayers()) {
+                UserService.GameStatsDelta delta = new UserService.GameStatsDelta(1, winners.contains(playerId) ? 1 : 0);
+                deltas.merge(playerId, delta, UserService.GameStatsDelta::plus);
+            }
+        }
+
+        try {
+            userService.applyGameStats(deltas);
+        } catch (Exception e) {
+            logger.error("Unable to apply results of {} matches to game stats: {}", drained.size(), e.getMessage(), e);
+            pendingResults.addAll(drained);
+        }
+    }
+}
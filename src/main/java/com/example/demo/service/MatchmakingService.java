@@ -1,64 +1,252 @@
 package com.example.demo.service;
 
-import com.example.demo.websocket.WebSocketMessageHandler;
+import com.example.demo.config.MatchmakingConfig;
+import com.example.demo.dtos.QueueStatusResponse;
+import com.example.demo.matchmaking.Match;
+import com.example.demo.matchmaking.MatchRegistry;
+import com.example.demo.matchmaking.Matchmaker;
+import com.example.demo.matchmaking.MatchmakingQueueBackend;
+import com.example.demo.matchmaking.Party;
+import com.example.demo.matchmaking.MatchmakingMetrics;
+import com.example.demo.matchmaking.PlayerRating;
+import com.example.demo.matchmaking.QueueKey;
+import com.example.demo.matchmaking.QueuedPlayer;
+import com.example.demo.matchmaking.SearchWidening;
+import com.example.demo.matchmaking.TeamMatch;
+import com.example.demo.matchmaking.TeamMatchmaker;
+import com.example.demo.model.User;
+import com.example.demo.websocket.PlayerPresence;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Servizio per la gestione del matchmaking.
+ * Ogni combinazione di modalità e regione ha il proprio shard, con una coda e un matcher
+ * indipendenti; i matcher sono distribuiti su un pool di thread configurabile.
+ * Gli ingressi e le uscite dalla coda vengono solo registrati dal thread della richiesta;
+ * l'accoppiamento per rating è eseguito a intervalli regolari dal matcher dello shard.
+ * Le code sono mantenute da un {@link MatchmakingQueueBackend}: con un backend condiviso
+ * più istanze dell'applicazione servono le stesse code.
+ *
+ * <p>Oltre alla coda 1 contro 1, ogni shard ha una coda a squadre: party da 1 a 5 giocatori
+ * vengono composti in due squadre bilanciate della dimensione configurata. Le code dei party
+ * sono locali all'istanza.</p>
+ *
+ * <p>Ogni match trovato viene notificato in modo asincrono e deve essere confermato da
+ * tutti i giocatori entro il timeout del ready-check. Se un giocatore non conferma, o non
+ * può essere raggiunto, il match viene annullato e gli altri giocatori tornano in coda con
+ * l'istante di ingresso originale.</p>
+ *
+ * <p>Con la presenza attiva i matcher accoppiano solo giocatori con una connessione
+ * WebSocket aperta, e un giocatore che si disconnette viene rimosso dalla coda se non si
+ * riconnette entro il periodo di tolleranza.</p>
  */
 @Service
 public class MatchmakingService {
 
     private static final Logger logger = LoggerFactory.getLogger(MatchmakingService.class);
 
-    // Gestore dei messaggi WebSocket per notificare i giocatori
-    private final WebSocketMessageHandler webSocketHandler;
+    // Consegna asincrona delle notifiche ai giocatori
+    private final MatchNotificationService notificationService;
 
-    // Coda per gestire i giocatori in attesa di un match
-    private final Queue<String> matchmakingQueue = new ConcurrentLinkedQueue<>();
+    // Servizio utenti, usato per calcolare il rating dei giocatori
+    private final UserService userService;
+
+    private final MatchmakingConfig matchmakingConfig;
+
+    private final MatchmakingMetrics matchmakingMetrics;
+
+    // Shard di matchmaking, uno per ogni modalità e regione configurate
+    private final Map<QueueKey, Matchmaker> shards;
+
+    // Matcher delle squadre, uno per ogni shard
+    private final Map<QueueKey, TeamMatchmaker> teamShards;
+
+    // Archivio delle code, eventualmente condiviso tra più istanze
+    private final MatchmakingQueueBackend queueBackend;
+
+    // Registro dei match creati
+    private final MatchRegistry matchRegistry;
+
+    // Party in coda di ogni giocatore: un giocatore può essere in un solo party
+    private final ConcurrentHashMap<String, QueuedParty> partyMembers = new ConcurrentHashMap<>();
+
+    private final QueueKey defaultKey;
+
+    // Pool di thread su cui vengono eseguiti i tick dei matcher
+    private final ScheduledExecutorService matcherExecutor;
+
+    // Scadenze dei ready-check dei match trovati e delle rimozioni dei giocatori disconnessi
+    private final ScheduledExecutorService timerExecutor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "matchmaking-timers"));
+
+    // Presenza dei giocatori sulle connessioni WebSocket
+    private final PlayerPresence playerPresence;
+
+    // Rimozioni programmate dei giocatori disconnessi, annullate alla riconnessione
+    private final ConcurrentHashMap<String, ScheduledFuture<?>> pendingEvictions = new ConcurrentHashMap<>();
 
     /**
      * Costruttore con iniezione delle dipendenze.
      *
-     * @param webSocketHandler Gestore dei messaggi WebSocket.
+     * @param notificationService Servizio di consegna delle notifiche.
+     * @param userService         Servizio per la gestione degli utenti.
+     * @param matchmakingConfig   Configurazione del matchmaking.
+     * @param matchmakingMetrics  Metriche del matchmaking.
+     * @param queueBackend        Archivio delle code di matchmaking.
+     * @param matchRegistry       Registro dei match creati.
+     * @param playerPresence      Presenza dei giocatori sulle connessioni WebSocket.
      */
-    public MatchmakingService(WebSocketMessageHandler webSocketHandler) {
-        this.webSocketHandler = webSocketHandler;
+    public MatchmakingService(MatchNotificationService notificationService, UserService userService,
+                              MatchmakingConfig matchmakingConfig, MatchmakingMetrics matchmakingMetrics,
+                              MatchmakingQueueBackend queueBackend, MatchRegistry matchRegistry,
+                              PlayerPresence playerPresence) {
+        this.notificationService = notificationService;
+        this.userService = userService;
+        this.matchmakingConfig = matchmakingConfig;
+        this.matchmakingMetrics = matchmakingMetrics;
+        this.queueBackend = queueBackend;
+        this.matchRegistry = matchRegistry;
+        this.playerPresence = playerPresence;
+
+        Predicate<String> presence = matchmakingConfig.isPresenceEnabled() ? playerPresence::isOnline : playerId -> true;
+        SearchWidening widening = new SearchWidening(matchmakingConfig.getMaxRatingGap(),
+                matchmakingConfig.getWideningStepGap(), matchmakingConfig.getWideningMaxGap(),
+                matchmakingConfig.getWideningStepMs());
+        Map<QueueKey, Matchmaker> configuredShards = new LinkedHashMap<>();
+        Map<QueueKey, TeamMatchmaker> configuredTeamShards = new LinkedHashMap<>();
+        for (String mode : matchmakingConfig.getModes()) {
+            for (String region : matchmakingConfig.getRegions()) {
+                QueueKey key = QueueKey.of(mode, region);
+                configuredShards.put(key, new Matchmaker(key, queueBackend, widening, matchmakingConfig.getTickIntervalMs(),
+                        matchmakingConfig.getTickBatchSize(), presence, (first, second) -> onMatch(key, first, second)));
+                configuredTeamShards.put(key, new TeamMatchmaker(matchmakingConfig.getTeamSize(),
+                        matchmakingConfig.getMaxRatingGap(), matchmakingConfig.getTickBatchSize(), presence,
+                        match -> onTeamMatch(key, match)));
+            }
+        }
+        this.shards = Collections.unmodifiableMap(configuredShards);
+        this.teamShards = Collections.unmodifiableMap(configuredTeamShards);
+        configuredShards.keySet().forEach(key -> matchmakingMetrics.registerShard(key,
+                () -> queueBackend.size(key), () -> configuredTeamShards.get(key).size()));
+        this.defaultKey = configuredShards.keySet().iterator().next();
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.matcherExecutor = Executors.newScheduledThreadPool(matchmakingConfig.getMatcherThreads(),
+                runnable -> new Thread(runnable, "matcher-" + threadCounter.incrementAndGet()));
+    }
+
+    /**
+     * Avvia i matcher di tutti gli shard e, con la presenza attiva, la rimozione dei
+     * giocatori disconnessi.
+     */
+    @PostConstruct
+    public void start() {
+        if (matchmakingConfig.isPresenceEnabled()) {
+            playerPresence.addListener(new PlayerPresence.PresenceListener() {
+                @Override
+                public void onConnected(String playerId) {
+                    cancelEviction(playerId);
+                }
+
+                @Override
+                public void onDisconnected(String playerId) {
+                    scheduleEviction(playerId);
+                }
+            });
+        }
+        long interval = matchmakingConfig.getTickIntervalMs();
+        // Ogni shard ha il proprio task: lo stesso shard non viene mai eseguito in parallelo
+        shards.keySet().forEach(key -> matcherExecutor.scheduleWithFixedDelay(
+                () -> runTick(key), interval, interval, TimeUnit.MILLISECONDS));
+        logger.info("Matchmaking started: {} shards on {} threads, tick every {} ms, batch size {}.",
+                shards.size(), matchmakingConfig.getMatcherThreads(), interval, matchmakingConfig.getTickBatchSize());
     }
 
     /**
-     * Aggiunge un giocatore alla coda di matchmaking.
+     * Arresta i matcher di tutti gli shard.
+     */
+    @PreDestroy
+    public void stop() {
+        matcherExecutor.shutdownNow();
+        timerExecutor.shutdownNow();
+        logger.info("Matchmaking stopped.");
+    }
+
+    /**
+     * Aggiunge un giocatore alla coda di matchmaking dello shard di default.
      *
      * @param playerId ID del giocatore (ad esempio, username o ID univoco).
      * @return Messaggio di conferma.
      */
     public String addToQueue(String playerId) {
+        return addToQueue(playerId, null, null);
+    }
+
+    /**
+     * Aggiunge un giocatore alla coda di matchmaking di una modalità e regione.
+     * Il giocatore verrà accoppiato al prossimo tick del matcher dello shard.
+     *
+     * @param playerId ID del giocatore (ad esempio, username o ID univoco).
+     * @param mode     Modalità di gioco, o null per quella di default.
+     * @param region   Regione, o null per quella di default.
+     * @return Messaggio di conferma.
+     * @throws IllegalArgumentException Se la modalità o la regione non sono configurate.
+     */
+    public String addToQueue(String playerId, String mode, String region) {
         if (playerId == null || playerId.isBlank()) {
             logger.warn("Invalid player ID provided for matchmaking.");
             return "Player ID cannot be null or empty.";
         }
 
-        if (matchmakingQueue.contains(playerId)) {
+        QueueKey key = resolveKey(mode, region);
+        ResolvedPlayer resolved = resolvePlayer(playerId);
+        playerId = resolved.playerId();
+
+        // Verifica veloce prima di creare la voce di coda; join() resta l'unico controllo atomico
+        if (queueBackend.queueOf(playerId) != null || partyMembers.containsKey(playerId)) {
             logger.info("Player [{}] is already in the matchmaking queue.", playerId);
             return "You are already in the matchmaking queue.";
         }
 
-        matchmakingQueue.add(playerId);
-        logger.info("Player [{}] added to the matchmaking queue.", playerId);
-
-        // Prova a creare un match
-        tryToMatch();
+        int rating = resolved.rating();
+        if (!queueBackend.join(key, new QueuedPlayer(playerId, rating))) {
+            logger.info("Player [{}] is already in the matchmaking queue.", playerId);
+            return "You are already in the matchmaking queue.";
+        }
+        // Il giocatore potrebbe essere entrato in un party nel frattempo
+        if (partyMembers.containsKey(playerId) && queueBackend.leave(playerId)) {
+            logger.info("Player [{}] is already in the matchmaking queue.", playerId);
+            return "You are already in the matchmaking queue.";
+        }
+        logger.info("Player [{}] added to the matchmaking queue [{}] with rating {}.", playerId, key, rating);
 
         return "You have been added to the matchmaking queue.";
     }
 
     /**
-     * Rimuove un giocatore dalla coda di matchmaking.
+     * Rimuove un giocatore dalla coda di matchmaking in cui si trova.
      *
      * @param playerId ID del giocatore.
      * @return Messaggio di conferma.
@@ -68,9 +256,12 @@ public class MatchmakingService {
             logger.warn("Invalid player ID provided for matchmaking removal.");
             return "Player ID cannot be null or empty.";
         }
+        playerId = canonicalId(playerId);
 
-        if (matchmakingQueue.remove(playerId)) {
-            logger.info("Player [{}] removed from the matchmaking queue.", playerId);
+        QueueKey key = queueBackend.queueOf(playerId);
+        if (key != null && queueBackend.leave(playerId)) {
+            matchmakingMetrics.recordLeave(MatchmakingMetrics.SOLO);
+            logger.info("Player [{}] removed from the matchmaking queue [{}].", playerId, key);
             return "You have been removed from the matchmaking queue.";
         } else {
             logger.info("Player [{}] is not in the matchmaking queue.", playerId);
@@ -79,35 +270,427 @@ public class MatchmakingService {
     }
 
     /**
-     * Prova a creare un match accoppiando due giocatori.
+     * Aggiunge un party alla coda a squadre di una modalità e regione.
+     * Il party verrà inserito in una delle due squadre di un match al prossimo tick utile.
+     *
+     * @param playerIds ID dei membri del party (da 1 alla dimensione di una squadra).
+     * @param mode      Modalità di gioco, o null per quella di default.
+     * @param region    Regione, o null per quella di default.
+     * @return Messaggio di conferma.
+     * @throws IllegalArgumentException Se il party non è valido o lo shard non esiste.
+     */
+    public String addPartyToQueue(List<String> playerIds, String mode, String region) {
+        if (playerIds == null || playerIds.isEmpty() || playerIds.stream().anyMatch(id -> id == null || id.isBlank())) {
+            logger.warn("Invalid party provided for matchmaking.");
+            return "Player ID cannot be null or empty.";
+        }
+        int maxPartySize = Math.min(Party.MAX_SIZE, matchmakingConfig.getTeamSize());
+        if (playerIds.size() > maxPartySize) {
+            throw new IllegalArgumentException("Party size must be between 1 and " + maxPartySize + ".");
+        }
+        List<ResolvedPlayer> members = playerIds.stream().map(this::resolvePlayer).toList();
+        playerIds = members.stream().map(ResolvedPlayer::playerId).toList();
+        if (new HashSet<>(playerIds).size() != playerIds.size()) {
+            throw new IllegalArgumentException("Party members must be distinct.");
+        }
+
+        QueueKey key = resolveKey(mode, region);
+        if (playerIds.stream().anyMatch(id -> queueBackend.queueOf(id) != null || partyMembers.containsKey(id))) {
+            logger.info("Party {} has members already in the matchmaking queue.", playerIds);
+            return "One or more party members are already in the matchmaking queue.";
+        }
+
+        int totalRating = members.stream().mapToInt(ResolvedPlayer::rating).sum();
+        QueuedParty queued = new QueuedParty(key, new Party("party-" + UUID.randomUUID(), playerIds, totalRating));
+
+        if (!registerMembers(queued)) {
+            logger.info("Party {} has members already in the matchmaking queue.", playerIds);
+            return "One or more party members are already in the matchmaking queue.";
+        }
+        teamShards.get(key).join(queued.party());
+        logger.info("Party [{}] {} added to the team matchmaking queue [{}] with rating {}.",
+                queued.party().getPlayerId(), playerIds, key, queued.party().getRating());
+
+        return "Your party has been added to the matchmaking queue.";
+    }
+
+    /**
+     * Rimuove dalla coda a squadre il party di un giocatore. Qualsiasi membro può ritirare il party.
+     *
+     * @param playerId ID di un membro del party.
+     * @return Messaggio di conferma.
      */
-    private void tryToMatch() {
-        while (matchmakingQueue.size() >= 2) {
-            String player1 = matchmakingQueue.poll();
-            String player2 = matchmakingQueue.poll();
+    public String removePartyFromQueue(String playerId) {
+        if (playerId == null || playerId.isBlank()) {
+            logger.warn("Invalid player ID provided for party removal.");
+            return "Player ID cannot be null or empty.";
+        }
+        playerId = canonicalId(playerId);
 
-            if (player1 != null && player2 != null) {
-                logger.info("Match created between [{}] and [{}].", player1, player2);
-                notifyPlayers(player1, player2);
-            } else {
-                logger.warn("Matchmaking failed due to insufficient players.");
+        QueuedParty queued = partyMembers.get(playerId);
+        if (queued != null && teamShards.get(queued.key()).leave(queued.party())) {
+            queued.party().getMemberIds().forEach(id -> partyMembers.remove(id, queued));
+            matchmakingMetrics.recordLeave(MatchmakingMetrics.PARTY);
+            logger.info("Party [{}] removed from the team matchmaking queue [{}].", queued.party().getPlayerId(), queued.key());
+            return "Your party has been removed from the matchmaking queue.";
+        } else {
+            logger.info("Player [{}] is not in a party matchmaking queue.", playerId);
+            return "Your party is not in the matchmaking queue.";
+        }
+    }
+
+    /**
+     * Restituisce lo stato di un giocatore nella coda 1 contro 1: la finestra di rating
+     * accettata in questo momento e il tempo trascorso in coda.
+     *
+     * @param playerId ID del giocatore.
+     * @return Lo stato del giocatore, o vuoto se non è in coda.
+     */
+    public Optional<QueueStatusResponse> getQueueStatus(String playerId) {
+        if (playerId == null || playerId.isBlank()) {
+            return Optional.empty();
+        }
+        playerId = canonicalId(playerId);
+        QueueKey key = queueBackend.queueOf(playerId);
+        QueuedPlayer player = queueBackend.find(playerId);
+        if (key == null || player == null) {
+            return Optional.empty();
+        }
+        // Finché il matcher non ha preso in carico il giocatore vale la finestra iniziale
+        int window = player.getRatingWindow() >= 0 ? player.getRatingWindow() : matchmakingConfig.getMaxRatingGap();
+        long waited = Math.max(0, System.currentTimeMillis() - player.getEnqueuedAtMillis());
+        return Optional.of(new QueueStatusResponse(playerId, key.toString(), window, waited));
+    }
+
+    /**
+     * Risolve lo shard di una modalità e regione.
+     *
+     * @param mode   Modalità di gioco, o null per quella di default.
+     * @param region Regione, o null per quella di default.
+     * @return La chiave dello shard.
+     * @throws IllegalArgumentException Se lo shard non esiste.
+     */
+    private QueueKey resolveKey(String mode, String region) {
+        QueueKey key = QueueKey.of(
+                mode == null || mode.isBlank() ? defaultKey.mode() : mode,
+                region == null || region.isBlank() ? defaultKey.region() : region);
+        if (!shards.containsKey(key)) {
+            throw new IllegalArgumentException("Unknown matchmaking queue: " + key);
+        }
+        return key;
+    }
+
+    /**
+     * Esegue un tick dei matcher (1 contro 1 e a squadre) di uno shard e ne registra la durata.
+     * Le eccezioni vengono solo registrate, per non interrompere l'esecuzione periodica.
+     *
+     * @param key Shard.
+     */
+    private void runTick(QueueKey key) {
+        long start = System.nanoTime();
+        try {
+            int drained = shards.get(key).tick() + teamShards.get(key).tick();
+            matchmakingMetrics.recordTick(System.nanoTime() - start, drained);
+        } catch (Exception e) {
+            logger.error("Matchmaker tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gestisce una coppia creata dal matcher di uno shard.
+     *
+     * @param key    Shard in cui è stato creato il match.
+     * @param first  Giocatore in coda da più tempo.
+     * @param second Avversario assegnato.
+     */
+    private void onMatch(QueueKey key, QueuedPlayer first, QueuedPlayer second) {
+        matchmakingMetrics.recordMatch(key, MatchmakingMetrics.SOLO, List.of(first, second), System.currentTimeMillis());
+        Match match = matchRegistry.create(key, List.of(first.getPlayerId()), List.of(second.getPlayerId()),
+                List.of(first, second));
+        logger.info("Match [{}] created in [{}] between [{}] and [{}].",
+                match.getMatchId(), key, first.getPlayerId(), second.getPlayerId());
+        startReadyCheck(match);
+        notifyPlayers(match, first.getPlayerId(), second.getPlayerId());
+    }
+
+    /**
+     * Gestisce un match a squadre creato dal matcher di uno shard.
+     *
+     * @param key   Shard in cui è stato creato il match.
+     * @param match Match tra le due squadre.
+     */
+    private void onTeamMatch(QueueKey key, TeamMatch match) {
+        List<String> firstTeam = match.firstTeamMembers();
+        List<String> secondTeam = match.secondTeamMembers();
+        for (List<Party> team : List.of(match.firstTeam(), match.secondTeam())) {
+            for (Party party : team) {
+                party.getMemberIds().forEach(id -> partyMembers.computeIfPresent(id,
+                        (memberId, queued) -> queued.party() == party ? null : queued));
             }
         }
+        List<Party> parties = new ArrayList<>(match.firstTeam());
+        parties.addAll(match.secondTeam());
+        matchmakingMetrics.recordMatch(key, MatchmakingMetrics.PARTY, parties, System.currentTimeMillis());
+        Match created = matchRegistry.create(key, firstTeam, secondTeam, parties);
+        logger.info("Team match [{}] created in [{}]: {} vs {} (rating difference {}).",
+                created.getMatchId(), key, firstTeam, secondTeam, match.ratingDifference());
+        startReadyCheck(created);
+        notifyTeams(created, firstTeam, secondTeam);
+        notifyTeams(created, secondTeam, firstTeam);
     }
 
     /**
-     * Notifica i giocatori accoppiati.
+     * Programma la scadenza del ready-check di un match appena creato.
      *
-     * @param player1 Giocatore 1.
-     * @param player2 Giocatore 2.
+     * @param match Match in attesa delle conferme.
+     */
+    private void startReadyCheck(Match match) {
+        try {
+            timerExecutor.schedule(() -> expireReadyCheck(match),
+                    matchmakingConfig.getReadyCheckTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to schedule ready check for match [{}]: matchmaking is stopping.", match.getMatchId());
+        }
+    }
+
+    /**
+     * Programma la rimozione dalla coda di un giocatore disconnesso allo scadere del periodo
+     * di tolleranza. Se il giocatore non è in coda non fa nulla.
+     *
+     * @param playerId ID del giocatore.
+     */
+    private void scheduleEviction(String playerId) {
+        if (queueBackend.queueOf(playerId) == null && !partyMembers.containsKey(playerId)) {
+            return;
+        }
+        long gracePeriod = matchmakingConfig.getPresenceGracePeriodMs();
+        if (gracePeriod <= 0) {
+            evict(playerId);
+            return;
+        }
+        try {
+            ScheduledFuture<?> eviction = timerExecutor.schedule(() -> {
+                pendingEvictions.remove(playerId);
+                evict(playerId);
+            }, gracePeriod, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> previous = pendingEvictions.put(playerId, eviction);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to schedule eviction of player [{}]: matchmaking is stopping.", playerId);
+        }
+    }
+
+    /**
+     * Annulla la rimozione programmata di un giocatore che si è riconnesso.
+     *
+     * @param playerId ID del giocatore.
+     */
+    private void cancelEviction(String playerId) {
+        ScheduledFuture<?> eviction = pendingEvictions.remove(playerId);
+        if (eviction != null) {
+            eviction.cancel(false);
+            logger.info("Player [{}] reconnected within the grace period.", playerId);
+        }
+    }
+
+    /**
+     * Rimuove dalla coda, o dalla coda a squadre con il suo party, un giocatore ancora disconnesso.
+     *
+     * @param playerId ID del giocatore.
+     */
+    private void evict(String playerId) {
+        if (playerPresence.isOnline(playerId)) {
+            return;
+        }
+        QueueKey key = queueBackend.queueOf(playerId);
+        QueuedParty queued = partyMembers.get(playerId);
+        boolean evicted = key != null && queueBackend.leave(playerId);
+        if (queued != null && teamShards.get(queued.key()).leave(queued.party())) {
+            queued.party().getMemberIds().forEach(id -> partyMembers.remove(id, queued));
+            evicted = true;
+        }
+        if (evicted) {
+            matchmakingMetrics.recordEviction();
+            logger.info("Player [{}] removed from the matchmaking queue after disconnecting.", playerId);
+        }
+    }
+
+    /**
+     * Annulla un match non confermato da tutti i giocatori allo scadere del ready-check.
+     * Se nel frattempo il match è diventato pronto non fa nulla.
+     *
+     * @param match Match.
+     */
+    private void expireReadyCheck(Match match) {
+        Set<String> absent = new HashSet<>(match.getPlayers());
+        absent.removeAll(match.getReadyPlayers());
+        cancelMatch(match, absent, "not all players accepted it in time");
+    }
+
+    /**
+     * Annulla un match ancora in attesa delle conferme. Le voci di coda (giocatori o party)
+     * senza membri assenti tornano in coda con l'istante di ingresso originale; le altre
+     * vengono scartate.
+     *
+     * @param match  Match da annullare.
+     * @param absent Giocatori che non hanno confermato o non sono raggiungibili.
+     * @param reason Motivo dell'annullamento, per i log.
+     */
+    private void cancelMatch(Match match, Set<String> absent, String reason) {
+        if (!matchRegistry.cancel(match)) {
+            return;
+        }
+        matchmakingMetrics.recordCancelledMatch();
+        logger.info("Match [{}] cancelled because {}: absent players {}.", match.getMatchId(), reason, absent);
+
+        for (QueuedPlayer entry : match.getEntries()) {
+            boolean requeued = entry.getMemberIds().stream().noneMatch(absent::contains) && requeue(match.getQueue(), entry);
+            String message = requeued
+                    ? "Match " + match.getMatchId() + " was cancelled because not all players accepted it. "
+                    + "You have been returned to the matchmaking queue."
+                    : "Match " + match.getMatchId() + " was cancelled because not all players accepted it. "
+                    + "You have been removed from the matchmaking queue.";
+            entry.getMemberIds().forEach(playerId -> notificationService.send(playerId, message));
+        }
+    }
+
+    /**
+     * Rimette in coda un giocatore o un party di un match annullato, con l'istante di
+     * ingresso originale.
+     *
+     * @param key   Coda da cui proviene.
+     * @param entry Voce di coda del match annullato.
+     * @return true se la voce è tornata in coda, false se un membro è già in un'altra coda.
+     */
+    private boolean requeue(QueueKey key, QueuedPlayer entry) {
+        if (entry instanceof Party party) {
+            QueuedParty queued = new QueuedParty(key, party.requeued());
+            if (!registerMembers(queued)) {
+                logger.info("Party [{}] not requeued: members already in the matchmaking queue.", party.getPlayerId());
+                return false;
+            }
+            teamShards.get(key).requeue(queued.party());
+            logger.info("Party [{}] returned to the team matchmaking queue [{}].", party.getPlayerId(), key);
+            return true;
+        }
+        if (partyMembers.containsKey(entry.getPlayerId()) || !queueBackend.requeue(key, entry.requeued())) {
+            logger.info("Player [{}] not requeued: already in the matchmaking queue.", entry.getPlayerId());
+            return false;
+        }
+        logger.info("Player [{}] returned to the matchmaking queue [{}].", entry.getPlayerId(), key);
+        return true;
+    }
+
+    /**
+     * Registra tutti i membri di un party in coda. La registrazione viene annullata se
+     * uno dei membri è già in un party o in una coda.
+     *
+     * @param queued Party da registrare.
+     * @return true se tutti i membri sono stati registrati.
      */
-    private void notifyPlayers(String player1, String player2) {
+    private boolean registerMembers(QueuedParty queued) {
+        List<String> registered = new ArrayList<>();
+        for (String playerId : queued.party().getMemberIds()) {
+            if (partyMembers.putIfAbsent(playerId, queued) != null || queueBackend.queueOf(playerId) != null) {
+                partyMembers.remove(playerId, queued);
+                registered.forEach(id -> partyMembers.remove(id, queued));
+                return false;
+            }
+            registered.add(playerId);
+        }
+        return true;
+    }
+
+    /**
+     * Risolve un giocatore che entra in coda: l'ID in coda e il rating calcolato dalle
+     * statistiche. L'ID ricevuto può essere l'ID numerico dell'utente o il suo username;
+     * in coda va sempre l'ID numerico, lo stesso con cui il giocatore si connette via
+     * WebSocket, così che presenza e notifiche lo riconoscano.
+     *
+     * @param playerId ID del giocatore.
+     * @return L'ID numerico e il rating dell'utente o, se l'utente non esiste, l'ID ricondotto
+     * da {@link UserService#canonicalPlayerId} e il rating di default.
+     */
+    private ResolvedPlayer resolvePlayer(String playerId) {
+        try {
+            Optional<User> user = userService.findByPlayerId(playerId);
+            if (user.isPresent()) {
+                return new ResolvedPlayer(user.get().getId().toString(), PlayerRating.of(user.get()));
+            }
+            // Utente non registrato: in coda con lo stesso ID a cui vengono ricondotte le richieste successive
+            return new ResolvedPlayer(userService.canonicalPlayerId(playerId), PlayerRating.DEFAULT_RATING);
+        } catch (Exception e) {
+            logger.warn("Unable to resolve player [{}]: {}", playerId, e.getMessage());
+            return new ResolvedPlayer(playerId, PlayerRating.DEFAULT_RATING);
+        }
+    }
+
+    /**
+     * Riconduce l'ID ricevuto da una richiesta all'ID con cui il giocatore è in coda, tramite
+     * {@link UserService#canonicalPlayerId}. Se la ricerca dello username non riesce viene usato
+     * l'ID ricevuto, come in {@link #resolvePlayer}.
+     *
+     * @param playerId ID numerico o username del giocatore.
+     * @return L'ID del giocatore in coda.
+     */
+    private String canonicalId(String playerId) {
         try {
-            webSocketHandler.sendMessageToUser(player1, "Match found! Your opponent is " + player2);
-            webSocketHandler.sendMessageToUser(player2, "Match found! Your opponent is " + player1);
-            logger.info("Notified players [{}] and [{}] of their match.", player1, player2);
+            return userService.canonicalPlayerId(playerId);
         } catch (Exception e) {
-            logger.error("Error notifying players [{}] and [{}]: {}", player1, player2, e.getMessage());
+            logger.warn("Unable to resolve player [{}]: {}", playerId, e.getMessage());
+            return playerId;
         }
     }
+
+    /**
+     * Accoda le notifiche per i giocatori accoppiati. Se un giocatore non è raggiungibile
+     * il match viene annullato subito, senza attendere il ready-check.
+     *
+     * @param match   Match creato.
+     * @param player1 Giocatore 1.
+     * @param player2 Giocatore 2.
+     */
+    private void notifyPlayers(Match match, String player1, String player2) {
+        notifyPlayer(match, player1, "Match found! Your opponent is " + player2 + ". " + readyCheckInstructions(match));
+        notifyPlayer(match, player2, "Match found! Your opponent is " + player1 + ". " + readyCheckInstructions(match));
+    }
+
+    /**
+     * Accoda le notifiche per i giocatori di una squadra.
+     *
+     * @param match     Match creato.
+     * @param team      Giocatori della squadra da notificare.
+     * @param opponents Giocatori della squadra avversaria.
+     */
+    private void notifyTeams(Match match, List<String> team, List<String> opponents) {
+        String message = "Match found! Your team is " + String.join(", ", team)
+                + ". Your opponents are " + String.join(", ", opponents) + ". " + readyCheckInstructions(match);
+        for (String playerId : team) {
+            notifyPlayer(match, playerId, message);
+        }
+    }
+
+    private void notifyPlayer(Match match, String playerId, String message) {
+        notificationService.send(playerId, message,
+                () -> cancelMatch(match, Set.of(playerId), "player " + playerId + " could not be notified"));
+    }
+
+    private String readyCheckInstructions(Match match) {
+        return "Match ID: " + match.getMatchId() + ". Confirm within "
+                + matchmakingConfig.getReadyCheckTimeoutMs() / 1000 + " seconds.";
+    }
+
+    /**
+     * Giocatore che entra in coda, con l'ID numerico dell'utente se registrato.
+     */
+    private record ResolvedPlayer(String playerId, int rating) {
+    }
+
+    /**
+     * Party in coda con lo shard in cui si trova.
+     */
+    private record QueuedParty(QueueKey key, Party party) {
+    }
 }
@@ -6,10 +6,16 @@ import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -37,6 +43,43 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * Trova un utente tramite ID.
+     *
+     * @param id ID dell'utente da cercare.
+     * @return Optional contenente l'utente se trovato.
+     */
+    public Optional<User> findById(Long id) {
+        log.debug("Searching for user by id: {}", id);
+        return userRepository.findById(id);
+    }
+
+    /**
+     * Riconduce l'ID di un giocatore all'ID numerico dell'utente, con cui il giocatore è
+     * identificato in coda e nei match. Gli ID numerici non richiedono accessi al database.
+     *
+     * @param playerId ID numerico o username del giocatore.
+     * @return L'ID numerico dell'utente, o l'ID ricevuto se non corrisponde a un utente registrato.
+     */
+    public String canonicalPlayerId(String playerId) {
+        if (isNumericId(playerId)) {
+            return Long.toString(Long.parseLong(playerId));
+        }
+        return userRepository.findByUsername(playerId)
+                .map(user -> user.getId().toString())
+                .orElse(playerId);
+    }
+
+    /**
+     * Trova l'utente di un giocatore a partire dall'ID numerico o dallo username.
+     *
+     * @param playerId ID numerico o username del giocatore.
+     * @return Optional contenente l'utente se trovato.
+     */
+    public Optional<User> findByPlayerId(String playerId) {
+        return isNumericId(playerId) ? findById(Long.parseLong(playerId)) : findByUsername(playerId);
+    }
+
     /**
      * Trova un utente tramite email.
      *
@@ -95,6 +138,67 @@ public class UserService {
         });
     }
 
+    /**
+     * Incremento delle statistiche di gioco di un giocatore.
+     *
+     * @param gamesPlayed Partite giocate da aggiungere.
+     * @param gamesWon    Partite vinte da aggiungere.
+     */
+    public record GameStatsDelta(int gamesPlayed, int gamesWon) {
+
+        public GameStatsDelta plus(GameStatsDelta other) {
+            return new GameStatsDelta(gamesPlayed + other.gamesPlayed, gamesWon + other.gamesWon);
+        }
+    }
+
+    /**
+     * Applica in blocco gli incrementi delle statistiche di più giocatori, con una lettura
+     * e una scrittura per l'intero lotto invece di una per giocatore.
+     * I giocatori sono identificati dall'ID numerico dell'utente o dallo username;
+     * quelli che non corrispondono a un utente registrato vengono ignorati. Gli incrementi
+     * dello stesso utente, riportato sia per ID sia per username, vengono sommati.
+     *
+     * @param deltas Incrementi per ID del giocatore.
+     * @return Numero di utenti aggiornati.
+     */
+    @Transactional
+    public int applyGameStats(Map<String, GameStatsDelta> deltas) {
+        Map<Long, GameStatsDelta> byId = new HashMap<>();
+        Map<String, GameStatsDelta> byUsername = new HashMap<>();
+        deltas.forEach((playerId, delta) -> {
+            if (isNumericId(playerId)) {
+                byId.merge(Long.parseLong(playerId), delta, GameStatsDelta::plus);
+            } else {
+                byUsername.merge(playerId, delta, GameStatsDelta::plus);
+            }
+        });
+
+        // Incrementi riportati all'ID dell'utente, così che ogni utente venga aggiornato una volta sola
+        Map<Long, User> usersById = new LinkedHashMap<>();
+        Map<Long, GameStatsDelta> merged = new HashMap<>();
+        if (!byId.isEmpty()) {
+            for (User user : userRepository.findAllById(byId.keySet())) {
+                usersById.put(user.getId(), user);
+                merged.merge(user.getId(), byId.get(user.getId()), GameStatsDelta::plus);
+            }
+        }
+        if (!byUsername.isEmpty()) {
+            for (User user : userRepository.findAllByUsernameIn(byUsername.keySet())) {
+                usersById.putIfAbsent(user.getId(), user);
+                merged.merge(user.getId(), byUsername.get(user.getUsername()), GameStatsDelta::plus);
+            }
+        }
+        List<User> users = new ArrayList<>(usersById.values());
+        for (User user : users) {
+            GameStatsDelta delta = merged.get(user.getId());
+            user.setGamesPlayed(user.getGamesPlayed() + delta.gamesPlayed());
+            user.setGamesWon(user.getGamesWon() + delta.gamesWon());
+        }
+        userRepository.saveAll(users);
+        log.info("Game stats applied in batch to {} users ({} players reported).", users.size(), deltas.size());
+        return users.size();
+    }
+
     /**
      * Aggiorna lo stato di un utente nel gioco.
      *
@@ -120,4 +224,8 @@ public class UserService {
         userRepository.delete(user);
         log.info("User deleted successfully: {}", user.getUsername());
     }
+
+    private static boolean isNumericId(String playerId) {
+        return !playerId.isEmpty() && playerId.length() < 19 && playerId.chars().allMatch(Character::isDigit);
+    }
 }
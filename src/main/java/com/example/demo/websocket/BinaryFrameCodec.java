@@ -0,0 +1,245 @@
+package com.example.demo.websocket;
+
+import com.example.demo.dtos.MatchResponse;
+import com.example.demo.dtos.QueueStatusResponse;
+import com.example.demo.dtos.SocketCommand;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Codifica e decodifica dei frame del protocollo binario della connessione WebSocket.
+ *
+ * <p>Ogni frame inizia con la versione del protocollo (uint8), il {@link FrameType} (uint8)
+ * e il requestId del client; seguono i campi del tipo. Gli interi sono big-endian, le
+ * stringhe sono precedute dalla lunghezza in byte (uint16, {@code 0xFFFF} per null) e
+ * codificate in UTF-8.</p>
+ *
+ * <p>La codifica scrive in un buffer di lavoro preso da un {@link BufferPool} e copia il
+ * frame in un array della dimensione esatta, l'unica allocazione per messaggio; la
+ * decodifica legge i campi direttamente dal payload ricevuto.</p>
+ */
+@Component
+public class BinaryFrameCodec {
+
+    /**
+     * Versione del protocollo scritta in ogni frame.
+     */
+    public static final int VERSION = 1;
+
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private final BufferPool bufferPool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+    /**
+     * Decodifica un comando inviato dal client.
+     *
+     * @param frame Payload del messaggio binario.
+     * @return Il comando, con lo stesso significato della sua forma JSON.
+     * @throws IllegalArgumentException Se il frame è troncato, di un'altra versione o non è un comando.
+     */
+    public SocketCommand decodeCommand(ByteBuffer frame) {
+        try {
+            int version = Byte.toUnsignedInt(frame.get());
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported protocol version: " + version);
+            }
+            FrameType type = FrameType.fromCode(Byte.toUnsignedInt(frame.get()));
+            if (type == null || type.getCommand() == null) {
+                throw new IllegalArgumentException("Unknown command frame.");
+            }
+            String requestId = getString(frame);
+            return switch (type) {
+                case JOIN -> new SocketCommand(type.getCommand(), requestId, getString(frame), getString(frame), null);
+                case ACCEPT_MATCH -> new SocketCommand(type.getCommand(), requestId, null, null, getString(frame));
+                default -> new SocketCommand(type.getCommand(), requestId, null, null, null);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame.");
+        }
+    }
+
+    /**
+     * Codifica la risposta a un comando, nella forma prodotta dal {@link CommandRouter}.
+     *
+     * @param reply Risposta con type, requestId e message, data o error e code.
+     * @return Il frame da inviare.
+     */
+    public BinaryMessage encodeReply(Map<String, Object> reply) {
+        FrameType command = FrameType.fromCommand((String) reply.get("type"));
+        int commandCode = command == null ? 0 : command.getCode();
+        String requestId = (String) reply.get("requestId");
+        Object data = reply.get("data");
+
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            if (reply.containsKey("error")) {
+                header(buffer, FrameType.ERROR, requestId);
+                buffer.put((byte) commandCode);
+                buffer.putShort((short) ((Integer) reply.get("code")).intValue());
+                putString(buffer, (String) reply.get("error"));
+            } else if (data instanceof QueueStatusResponse status) {
+                header(buffer, FrameType.QUEUE_STATUS, requestId);
+                putString(buffer, status.getQueue());
+                buffer.putInt(status.getRatingWindow());
+                buffer.putLong(status.getWaitedMs());
+            } else if (data instanceof MatchResponse match) {
+                header(buffer, FrameType.MATCH, requestId);
+                putString(buffer, match.getMatchId());
+                putString(buffer, match.getQueue());
+                putString(buffer, match.getState().name());
+                putStrings(buffer, match.getReadyPlayers());
+            } else {
+                header(buffer, FrameType.OK, requestId);
+                buffer.put((byte) commandCode);
+                putString(buffer, (String) reply.get("message"));
+            }
+            return toMessage(buffer);
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Reply exceeds the maximum frame size.");
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Codifica una notifica inviata dal server.
+     *
+     * @param text Testo della notifica.
+     * @return Il frame da inviare.
+     */
+    public BinaryMessage encodeNotification(String text) {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            header(buffer, FrameType.NOTIFICATION, null);
+            putString(buffer, text);
+            return toMessage(buffer);
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Notification exceeds the maximum frame size.");
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Codifica una notifica numerata, conservata per il replay.
+     *
+     * @param sequence Sequence ID della notifica.
+     * @param text     Testo della notifica.
+     * @return Il frame da inviare.
+     */
+    public BinaryMessage encodeEvent(long sequence, String text) {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            header(buffer, FrameType.EVENT, null);
+            buffer.putLong(sequence);
+            putString(buffer, text);
+            return toMessage(buffer);
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Notification exceeds the maximum frame size.");
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * @return Il frame che chiede al client di ricaricare lo stato completo.
+     */
+    public BinaryMessage encodeResync() {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            header(buffer, FrameType.RESYNC, null);
+            return toMessage(buffer);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private static void header(ByteBuffer buffer, FrameType type, String requestId) {
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type.getCode());
+        putString(buffer, requestId);
+    }
+
+    private static BinaryMessage toMessage(ByteBuffer buffer) {
+        return new BinaryMessage(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private static void putStrings(ByteBuffer buffer, Collection<String> values) {
+        buffer.putShort((short) values.size());
+        for (String value : values) {
+            putString(buffer, value);
+        }
+    }
+
+    /**
+     * Scrive una stringa in UTF-8 direttamente nel buffer, senza array intermedi, e
+     * completa poi il prefisso con la lunghezza in byte.
+     */
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_LENGTH);
+            return;
+        }
+        int lengthPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int start = buffer.position();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Surrogato isolato: sostituito come farebbe l'encoder UTF-8 del JDK
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        int length = buffer.position() - start;
+        if (length >= NULL_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        buffer.putShort(lengthPosition, (short) length);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool limitato di buffer di lavoro di dimensione fissa, riusati tra una codifica e l'altra.
+ * Se il pool è vuoto viene allocato un nuovo buffer; i buffer restituiti oltre il limite
+ * vengono lasciati al garbage collector.
+ */
+public class BufferPool {
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final int bufferSize;
+    private final int maxPooled;
+
+    /**
+     * @param bufferSize Dimensione di ogni buffer, in byte.
+     * @param maxPooled  Numero massimo di buffer conservati nel pool.
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("Buffer size must be positive and pool size not negative.");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return Un buffer vuoto, da restituire con {@link #release(ByteBuffer)}.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Restituisce un buffer al pool.
+     *
+     * @param buffer Buffer ottenuto da {@link #acquire()}.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.dtos.SocketCommand;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Router dei comandi ricevuti sulle connessioni WebSocket: associa ogni tipo di comando al
+ * suo {@link CommandHandler} e lo esegue su un virtual thread, così che le chiamate
+ * bloccanti dei gestori (database, lock) non occupino i thread di I/O del container.
+ *
+ * <p>Ogni sessione può avere al massimo {@code websocket.commands.max-in-flight} comandi in
+ * esecuzione: oltre il limite il comando viene rifiutato subito con il codice 429. Le
+ * risposte di comandi concorrenti possono arrivare in un ordine diverso da quello di invio
+ * e vanno associate ai comandi tramite il requestId.</p>
+ *
+ * <p>Le risposte riportano il {@code type} e il {@code requestId} del comando, con
+ * {@code message} o {@code data} in caso di successo e {@code error} e {@code code} in caso
+ * di errore, come le risposte HTTP.</p>
+ */
+@Component
+public class CommandRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandRouter.class);
+
+    // Attributo di sessione con i permessi dei comandi in esecuzione
+    private static final String PERMITS_ATTRIBUTE = "commandPermits";
+
+    /**
+     * Gestore di un tipo di comando.
+     */
+    @FunctionalInterface
+    public interface CommandHandler {
+
+        /**
+         * @param playerId ID del giocatore autenticato della sessione.
+         * @param command  Comando ricevuto.
+         * @return Risposta da inviare al client.
+         * @throws IllegalArgumentException Se il comando non è valido; la risposta avrà codice 400.
+         */
+        Map<String, Object> handle(String playerId, SocketCommand command);
+    }
+
+    private record Route(CommandHandler handler, Timer latency) {
+    }
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final WebSocketMetrics webSocketMetrics;
+    private final int maxInFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param objectMapper     Serializzatore JSON.
+     * @param webSocketMetrics Metriche delle connessioni WebSocket.
+     * @param sessionConfig    Configurazione delle sessioni WebSocket.
+     */
+    public CommandRouter(ObjectMapper objectMapper, WebSocketMetrics webSocketMetrics,
+                         WebSocketSessionConfig sessionConfig) {
+        this.objectMapper = objectMapper;
+        this.webSocketMetrics = webSocketMetrics;
+        this.maxInFlight = Math.max(1, sessionConfig.getMaxCommandsInFlight());
+    }
+
+    /**
+     * Associa un gestore a un tipo di comando.
+     *
+     * @param type    Tipo di comando.
+     * @param handler Gestore del comando.
+     * @throws IllegalArgumentException Se il tipo ha già un gestore.
+     */
+    public void register(String type, CommandHandler handler) {
+        Route route = new Route(handler, webSocketMetrics.commandTimer(type));
+        if (routes.putIfAbsent(type, route) != null) {
+            throw new IllegalArgumentException("A handler is already registered for command type: " + type);
+        }
+    }
+
+    /**
+     * Prepara una sessione appena aperta a ricevere comandi.
+     *
+     * @param session Sessione WebSocket.
+     */
+    public void attach(WebSocketSession session) {
+        session.getAttributes().put(PERMITS_ATTRIBUTE, new Semaphore(maxInFlight));
+    }
+
+    /**
+     * Decodifica un comando JSON.
+     *
+     * @param payload Testo del comando.
+     * @return Il comando.
+     * @throws IllegalArgumentException Se il testo non è un comando JSON valido.
+     */
+    public SocketCommand parse(String payload) {
+        try {
+            SocketCommand command = objectMapper.readValue(payload, SocketCommand.class);
+            if (command == null) {
+                throw new IllegalArgumentException("Malformed command.");
+            }
+            return command;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed command.");
+        }
+    }
+
+    /**
+     * Esegue un comando su un virtual thread e consegna la risposta. Se la sessione ha già
+     * troppi comandi in esecuzione la risposta di rifiuto è consegnata subito, dal thread
+     * chiamante.
+     *
+     * @param session  Sessione da cui è arrivato il comando.
+     * @param playerId ID del giocatore autenticato della sessione.
+     * @param command  Comando da eseguire.
+     * @param onReply  Invio della risposta, eseguito sul virtual thread del comando.
+     */
+    public void submit(WebSocketSession session, String playerId, SocketCommand command,
+                       Consumer<Map<String, Object>> onReply) {
+        Semaphore permits = (Semaphore) session.getAttributes().get(PERMITS_ATTRIBUTE);
+        if (permits == null || !permits.tryAcquire()) {
+            webSocketMetrics.recordRejectedCommand();
+            onReply.accept(error(command.type(), command.requestId(), HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many commands in flight."));
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    onReply.accept(execute(playerId, command));
+                } catch (Exception e) {
+                    logger.error("Error replying to command [{}] of player [{}]: {}",
+                            command.type(), playerId, e.getMessage(), e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            logger.warn("Command [{}] of player [{}] dropped: router is stopping.", command.type(), playerId);
+        }
+    }
+
+    /**
+     * Esegue un comando sul thread chiamante.
+     *
+     * @param playerId ID del giocatore autenticato della sessione.
+     * @param command  Comando da eseguire.
+     * @return Risposta da inviare al client.
+     */
+    public Map<String, Object> execute(String playerId, SocketCommand command) {
+        if (command.type() == null) {
+            return malformed("Command type is required.");
+        }
+        Route route = routes.get(command.type());
+        if (route == null) {
+            return error(command.type(), command.requestId(), HttpStatus.BAD_REQUEST,
+                    "Unknown command type: " + command.type());
+        }
+        long start = System.nanoTime();
+        try {
+            return route.handler().handle(playerId, command);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Command [{}] rejected for player [{}]: {}", command.type(), playerId, e.getMessage());
+            return error(command.type(), command.requestId(), HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Command [{}] failed for player [{}]: {}", command.type(), playerId, e.getMessage(), e);
+            return error(command.type(), command.requestId(), HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        } finally {
+            route.latency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Decodifica ed esegue un comando JSON sul thread chiamante.
+     *
+     * @param playerId ID del giocatore autenticato della sessione.
+     * @param payload  Testo del comando.
+     * @return Risposta JSON da inviare al client.
+     */
+    public String handle(String playerId, String payload) {
+        try {
+            return write(execute(playerId, parse(payload)));
+        } catch (IllegalArgumentException e) {
+            return write(malformed(e.getMessage()));
+        }
+    }
+
+    /**
+     * @param reply Risposta a un comando.
+     * @return La risposta in JSON.
+     */
+    public String write(Map<String, Object> reply) {
+        try {
+            return objectMapper.writeValueAsString(reply);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize command reply.", e);
+        }
+    }
+
+    /**
+     * Arresta l'esecuzione dei comandi.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param command Comando eseguito.
+     * @param message Esito del comando.
+     * @return Risposta con un messaggio.
+     */
+    public static Map<String, Object> message(SocketCommand command, String message) {
+        Map<String, Object> reply = reply(command.type(), command.requestId());
+        reply.put("message", message);
+        return reply;
+    }
+
+    /**
+     * @param command Comando eseguito.
+     * @param data    Dati restituiti.
+     * @return Risposta con dati.
+     */
+    public static Map<String, Object> data(SocketCommand command, Object data) {
+        Map<String, Object> reply = reply(command.type(), command.requestId());
+        reply.put("data", data);
+        return reply;
+    }
+
+    /**
+     * @param command Comando eseguito.
+     * @param status  Codice HTTP corrispondente all'errore.
+     * @param error   Descrizione dell'errore.
+     * @return Risposta di errore.
+     */
+    public static Map<String, Object> error(SocketCommand command, HttpStatus status, String error) {
+        return error(command.type(), command.requestId(), status, error);
+    }
+
+    /**
+     * @param error Descrizione dell'errore.
+     * @return Risposta a un comando non leggibile.
+     */
+    public static Map<String, Object> malformed(String error) {
+        return error("error", null, HttpStatus.BAD_REQUEST, error);
+    }
+
+    /**
+     * @param error Descrizione dell'errore.
+     * @return Avviso a un client che invia messaggi oltre il limite.
+     */
+    public static Map<String, Object> rateLimited(String error) {
+        return error("error", null, HttpStatus.TOO_MANY_REQUESTS, error);
+    }
+
+    private static Map<String, Object> error(String type, String requestId, HttpStatus status, String error) {
+        Map<String, Object> reply = reply(type, requestId);
+        reply.put("error", error);
+        reply.put("code", status.value());
+        return reply;
+    }
+
+    private static Map<String, Object> reply(String type, String requestId) {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", type);
+        if (requestId != null) {
+            reply.put("requestId", requestId);
+        }
+        return reply;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.demo.websocket;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Mappa concorrente con chiavi {@code long} primitive e indirizzamento aperto, pensata per
+ * milioni di voci: ogni voce occupa una cella di un array di chiavi e una di un array di
+ * valori, senza nodi, chiavi boxed o stringhe.
+ *
+ * <p>La mappa è divisa in segmenti, ognuno con la propria tabella a scansione lineare e il
+ * proprio {@link StampedLock}. Le letture sono ottimistiche: leggono la tabella senza lock e
+ * ripetono sotto lock di lettura solo se un inserimento o una rimozione concorrente le ha
+ * invalidate. Le scritture prendono il lock del solo segmento della chiave. Le rimozioni
+ * compattano la sequenza di scansione, così che la tabella non accumuli celle cancellate.</p>
+ *
+ * <p>I valori null non sono ammessi: una cella con valore null è libera.</p>
+ *
+ * @param <V> Tipo dei valori.
+ */
+public class ConcurrentLongMap<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Crea una mappa dimensionata per il numero di voci atteso; oltre quel numero le tabelle
+     * dei segmenti vengono raddoppiate.
+     *
+     * @param expectedSize Numero di voci atteso.
+     */
+    public ConcurrentLongMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        // Fattore di carico massimo 3/4
+        int perSegment = (int) Math.min(1 << 30, (long) expectedSize * 4 / 3 / SEGMENTS + 1);
+        int capacity = Math.max(MIN_SEGMENT_CAPACITY, Integer.highestOneBit(perSegment - 1) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * @param key Chiave.
+     * @return Il valore associato alla chiave, o null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = hash(key);
+        return (V) segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Associa un valore alla chiave, sostituendo atomicamente quello precedente.
+     *
+     * @param key   Chiave.
+     * @param value Valore, non null.
+     * @return Il valore sostituito, o null se la chiave non era presente.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not allowed.");
+        }
+        long hash = hash(key);
+        return (V) segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Rimuove la chiave solo se è associata al valore dato (stessa istanza).
+     *
+     * @param key   Chiave.
+     * @param value Valore atteso.
+     * @return true se la voce è stata rimossa.
+     */
+    public boolean remove(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value);
+    }
+
+    /**
+     * @return Numero di voci; con scritture concorrenti è un valore approssimato.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Visita tutti i valori, un segmento alla volta sotto il suo lock di lettura: le scritture
+     * sul segmento visitato attendono, quindi l'azione deve essere breve. Le voci inserite o
+     * rimosse durante la visita possono essere visitate o no.
+     *
+     * @param action Azione eseguita per ogni valore.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                Object[] values = segment.table.values;
+                for (Object value : values) {
+                    if (value != null) {
+                        action.accept((V) value);
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Mescola i bit della chiave (finalizzatore di MurmurHash3): gli ID consecutivi finiscono
+     * in segmenti e celle lontani. I bit alti scelgono il segmento, quelli bassi la cella.
+     */
+    private static long hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Tabella di un segmento. Chiavi e valori vengono sostituiti insieme al ridimensionamento,
+     * così che una lettura ottimistica veda sempre due array della stessa dimensione.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return La cella della chiave, o -1 se la chiave non è presente.
+         */
+        private int indexOf(long key, long hash) {
+            int index = (int) hash & mask;
+            // La scansione è limitata alla capacità anche se una lettura ottimistica vede
+            // la tabella a metà di una scrittura
+            for (int probes = 0; probes <= mask; probes++) {
+                if (values[index] == null) {
+                    return -1;
+                }
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        private Table table;
+        private volatile int size;
+
+        private Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        private Object get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Table current = table;
+                int index = current.indexOf(key, hash);
+                Object value = index < 0 ? null : current.values[index];
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                Table current = table;
+                int index = current.indexOf(key, hash);
+                return index < 0 ? null : current.values[index];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private Object put(long key, long hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int index = (int) hash & current.mask;
+                while (current.values[index] != null) {
+                    if (current.keys[index] == key) {
+                        Object previous = current.values[index];
+                        current.values[index] = value;
+                        return previous;
+                    }
+                    index = (index + 1) & current.mask;
+                }
+                current.keys[index] = key;
+                current.values[index] = value;
+                size++;
+                if (size > current.keys.length / 4 * 3) {
+                    resize();
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private boolean remove(long key, long hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int index = current.indexOf(key, hash);
+                if (index < 0 || current.values[index] != value) {
+                    return false;
+                }
+                delete(current, index);
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Libera una cella e riporta indietro le voci successive della stessa sequenza di
+         * scansione che non sarebbero più raggiungibili.
+         */
+        private static void delete(Table table, int index) {
+            int free = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & table.mask;
+                if (table.values[next] == null) {
+                    break;
+                }
+                int home = (int) hash(table.keys[next]) & table.mask;
+                // La voce può restare dov'è se la sua cella naturale è tra la cella libera
+                // (esclusa) e la sua posizione, tenendo conto del giro della tabella
+                boolean reachable = free <= next
+                        ? free < home && home <= next
+                        : free < home || home <= next;
+                if (!reachable) {
+                    table.keys[free] = table.keys[next];
+                    table.values[free] = table.values[next];
+                    free = next;
+                }
+            }
+            table.values[free] = null;
+        }
+
+        private void resize() {
+            Table old = table;
+            Table resized = new Table(old.keys.length * 2);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.values[i] != null) {
+                    int index = (int) hash(old.keys[i]) & resized.mask;
+                    while (resized.values[index] != null) {
+                        index = (index + 1) & resized.mask;
+                    }
+                    resized.keys[index] = old.keys[i];
+                    resized.values[index] = old.values[i];
+                }
+            }
+            table = resized;
+        }
+    }
+}
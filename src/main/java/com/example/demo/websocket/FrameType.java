@@ -0,0 +1,118 @@
+package com.example.demo.websocket;
+
+/**
+ * Tipi dei frame del protocollo binario. Il codice occupa il secondo byte di ogni frame,
+ * dopo la versione; i campi che seguono sono descritti per ogni tipo.
+ *
+ * <p>I codici da {@code 0x01} sono comandi inviati dal client, quelli da {@code 0x10} risposte
+ * ai comandi e quelli da {@code 0x20} messaggi inviati dal server di sua iniziativa. Nuovi
+ * tipi si aggiungono con un codice libero, senza cambiare quelli esistenti.</p>
+ */
+public enum FrameType {
+
+    /**
+     * Ingresso in coda: requestId, modalità, regione.
+     */
+    JOIN(0x01, "join"),
+
+    /**
+     * Uscita dalla coda: requestId.
+     */
+    LEAVE(0x02, "leave"),
+
+    /**
+     * Stato in coda: requestId.
+     */
+    STATUS(0x03, "status"),
+
+    /**
+     * Conferma di un match: requestId, ID del match.
+     */
+    ACCEPT_MATCH(0x04, "accept-match"),
+
+    /**
+     * Esito positivo: requestId, codice del comando, messaggio.
+     */
+    OK(0x10, null),
+
+    /**
+     * Errore: requestId, codice del comando (0 se il frame non era leggibile), codice HTTP, errore.
+     */
+    ERROR(0x11, null),
+
+    /**
+     * Stato in coda: requestId, coda, finestra di rating (int32), attesa in millisecondi (int64).
+     */
+    QUEUE_STATUS(0x12, null),
+
+    /**
+     * Stato di un match: requestId, ID del match, coda, stato, giocatori confermati (uint16 + stringhe).
+     */
+    MATCH(0x13, null),
+
+    /**
+     * Notifica: requestId vuoto, testo.
+     */
+    NOTIFICATION(0x20, null),
+
+    /**
+     * Notifica numerata, ripetuta alla ripresa della sessione: requestId vuoto, sequence (int64), testo.
+     */
+    EVENT(0x21, null),
+
+    /**
+     * Ripresa della sessione impossibile, il client deve ricaricare lo stato: requestId vuoto.
+     */
+    RESYNC(0x22, null);
+
+    private static final FrameType[] BY_CODE = new FrameType[256];
+
+    static {
+        for (FrameType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+    private final String command;
+
+    FrameType(int code, String command) {
+        this.code = code;
+        this.command = command;
+    }
+
+    /**
+     * @return Codice del tipo nel frame.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return Nome del comando corrispondente nel protocollo JSON, o null se non è un comando.
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @param code Codice letto dal frame.
+     * @return Il tipo corrispondente, o null se il codice non è definito.
+     */
+    public static FrameType fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    /**
+     * @param command Nome di un comando del protocollo JSON.
+     * @return Il tipo corrispondente, o null se il comando non ha un frame binario.
+     */
+    public static FrameType fromCommand(String command) {
+        for (FrameType type : values()) {
+            if (type.command != null && type.command.equals(command)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.websocket;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link NodeMessageBus} in memoria: l'inoltro invoca direttamente il destinatario del nodo,
+ * sul thread del mittente. Permette di provare l'instradamento tra più nodi nella stessa JVM.
+ */
+public class InProcessNodeMessageBus implements NodeMessageBus {
+
+    private final ConcurrentHashMap<String, NodeListener> nodes = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(String nodeId, NodeListener listener) {
+        nodes.put(nodeId, listener);
+    }
+
+    @Override
+    public void unsubscribe(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public boolean send(String nodeId, String playerId, String message) {
+        NodeListener listener = nodes.get(nodeId);
+        return listener != null && listener.deliver(playerId, message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.websocket;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SessionDirectory} in memoria, condivisa dai nodi che usano la stessa istanza.
+ * Con una singola istanza dell'applicazione contiene solo le sessioni locali; nei test
+ * permette di simulare più nodi nella stessa JVM.
+ */
+public class InProcessSessionDirectory implements SessionDirectory {
+
+    private final ConcurrentHashMap<String, String> locations = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String playerId, String nodeId) {
+        locations.put(playerId, nodeId);
+    }
+
+    @Override
+    public boolean unregister(String playerId, String nodeId) {
+        return locations.remove(playerId, nodeId);
+    }
+
+    @Override
+    public String locate(String playerId) {
+        return locations.get(playerId);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita i messaggi ricevuti sulle connessioni WebSocket, in numero e in byte, con dei
+ * {@link TokenBucket} per sessione e per giocatore: i limiti per giocatore valgono anche
+ * tra una riconnessione e l'altra.
+ *
+ * <p>I messaggi oltre il limite vengono scartati e contano come infrazioni, che si
+ * estinguono al ritmo di una al secondo. Alla soglia {@code websocket.inbound.warn-after}
+ * il client riceve un avviso, alla soglia {@code websocket.inbound.close-after} la sessione
+ * viene chiusa.</p>
+ *
+ * <p>I bucket della sessione sono nei suoi attributi e quelli del giocatore vi sono
+ * collegati alla connessione: un messaggio entro i limiti costa qualche compare-and-set,
+ * senza lock né allocazioni. I bucket di un giocatore contano le sessioni che li usano e
+ * vengono rimossi solo quando non ne resta nessuna, così che tutte le connessioni dello
+ * stesso giocatore condividano sempre lo stesso limite.</p>
+ */
+@Component
+public class InboundRateLimiter {
+
+    // Attributo di sessione con i bucket della sessione e del giocatore
+    private static final String LIMITS_ATTRIBUTE = "inboundLimits";
+
+    // Le infrazioni si estinguono al ritmo di una al secondo
+    private static final long STRIKES_PER_SECOND = 1;
+    private static final long STRIKE_MEMORY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final long SWEEP_INTERVAL_MS = 10_000;
+
+    /**
+     * Esito della verifica di un messaggio ricevuto.
+     */
+    public enum Verdict {
+        /** Messaggio entro i limiti. */
+        ACCEPT,
+        /** Messaggio scartato. */
+        DROP,
+        /** Messaggio scartato; il client va avvisato. */
+        WARN,
+        /** Messaggio scartato; la sessione va chiusa. */
+        CLOSE
+    }
+
+    private record Buckets(TokenBucket messages, TokenBucket bytes) {
+    }
+
+    private record SessionLimits(String playerId, Buckets session, Buckets player, TokenBucket strikes) {
+    }
+
+    /**
+     * Bucket di un giocatore con il numero di sessioni aperte che li usano, modificato solo
+     * dentro le operazioni atomiche della mappa.
+     */
+    private static final class PlayerBuckets {
+        private final Buckets buckets;
+        private int sessions;
+
+        private PlayerBuckets(Buckets buckets) {
+            this.buckets = buckets;
+        }
+    }
+
+    private final ConcurrentHashMap<String, PlayerBuckets> playerBuckets = new ConcurrentHashMap<>();
+    private final WebSocketMetrics webSocketMetrics;
+    private final long messagesPerSecond;
+    private final long bytesPerSecond;
+    private final long playerMessagesPerSecond;
+    private final long playerBytesPerSecond;
+    private final long burstNanos;
+    private final long warnAfter;
+    private final long closeAfter;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "ws-inbound-sweeper"));
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param webSocketMetrics Metriche delle connessioni WebSocket.
+     * @param sessionConfig    Configurazione delle sessioni WebSocket.
+     */
+    public InboundRateLimiter(WebSocketMetrics webSocketMetrics, WebSocketSessionConfig sessionConfig) {
+        if (sessionConfig.getInboundWarnAfter() >= sessionConfig.getInboundCloseAfter()) {
+            throw new IllegalArgumentException("websocket.inbound.warn-after must be lower than close-after");
+        }
+        this.webSocketMetrics = webSocketMetrics;
+        this.messagesPerSecond = sessionConfig.getInboundMessagesPerSecond();
+        this.bytesPerSecond = sessionConfig.getInboundBytesPerSecond();
+        this.playerMessagesPerSecond = sessionConfig.getInboundPlayerMessagesPerSecond();
+        this.playerBytesPerSecond = sessionConfig.getInboundPlayerBytesPerSecond();
+        this.burstNanos = TimeUnit.MILLISECONDS.toNanos(sessionConfig.getInboundBurstMs());
+        this.warnAfter = sessionConfig.getInboundWarnAfter();
+        this.closeAfter = sessionConfig.getInboundCloseAfter();
+    }
+
+    /**
+     * Avvia la rimozione dei bucket dei giocatori inattivi.
+     */
+    @PostConstruct
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Arresta la rimozione dei bucket.
+     */
+    @PreDestroy
+    public void stop() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Prepara i bucket di una sessione appena aperta, collegandola a quelli del giocatore.
+     *
+     * @param session  La sessione WebSocket.
+     * @param playerId ID del giocatore autenticato.
+     */
+    public void attach(WebSocketSession session, String playerId) {
+        long now = System.nanoTime();
+        PlayerBuckets player = playerBuckets.compute(playerId, (id, current) -> {
+            PlayerBuckets attached = current != null
+                    ? current
+                    : new PlayerBuckets(buckets(playerMessagesPerSecond, playerBytesPerSecond, now));
+            attached.sessions++;
+            return attached;
+        });
+        TokenBucket strikes = new TokenBucket(STRIKES_PER_SECOND, STRIKE_MEMORY_NANOS, now);
+        session.getAttributes().put(LIMITS_ATTRIBUTE,
+                new SessionLimits(playerId, buckets(messagesPerSecond, bytesPerSecond, now), player.buckets, strikes));
+    }
+
+    /**
+     * Scollega una sessione chiusa dai bucket del giocatore, che da quel momento possono
+     * essere rimossi. Può essere invocato più volte per la stessa sessione.
+     *
+     * @param session La sessione WebSocket.
+     */
+    public void detach(WebSocketSession session) {
+        if (!(session.getAttributes().remove(LIMITS_ATTRIBUTE) instanceof SessionLimits limits)) {
+            return;
+        }
+        playerBuckets.computeIfPresent(limits.playerId(), (id, player) -> {
+            player.sessions--;
+            return player;
+        });
+    }
+
+    /**
+     * Verifica un messaggio ricevuto contro i limiti della sessione e del giocatore.
+     * I messaggi di sessioni mai collegate non sono limitati.
+     *
+     * @param session La sessione da cui è arrivato il messaggio.
+     * @param size    Dimensione del messaggio.
+     * @return Il trattamento da riservare al messaggio.
+     */
+    public Verdict check(WebSocketSession session, int size) {
+        Object attribute = session.getAttributes().get(LIMITS_ATTRIBUTE);
+        if (!(attribute instanceof SessionLimits limits)) {
+            return Verdict.ACCEPT;
+        }
+        long now = System.nanoTime();
+        if (acquire(limits.session(), size, now) && acquire(limits.player(), size, now)) {
+            return Verdict.ACCEPT;
+        }
+        webSocketMetrics.recordDroppedInboundMessage();
+        long strikes = limits.strikes().charge(1, now);
+        if (strikes >= closeAfter) {
+            webSocketMetrics.recordFloodingSession();
+            return Verdict.CLOSE;
+        }
+        return strikes == warnAfter ? Verdict.WARN : Verdict.DROP;
+    }
+
+    private Buckets buckets(long messageRate, long byteRate, long now) {
+        return new Buckets(new TokenBucket(messageRate, burstNanos, now), new TokenBucket(byteRate, burstNanos, now));
+    }
+
+    /**
+     * Un messaggio rifiutato per i byte ha comunque consumato il suo token di conteggio:
+     * il limite risulta al più un po' più severo.
+     */
+    private static boolean acquire(Buckets buckets, int size, long now) {
+        return buckets.messages().tryAcquire(1, now) && buckets.bytes().tryAcquire(size, now);
+    }
+
+    /**
+     * Rimuove i bucket dei giocatori senza sessioni aperte e tornati pieni: ricrearli non
+     * cambia i limiti. Invocato periodicamente dal thread di pulizia.
+     */
+    public void sweep() {
+        long now = System.nanoTime();
+        for (String playerId : playerBuckets.keySet()) {
+            // Controllo e rimozione sono atomici rispetto a un attach concorrente
+            playerBuckets.computeIfPresent(playerId, (id, player) -> player.sessions == 0
+                    && player.buckets.messages().isFull(now) && player.buckets.bytes().isFull(now) ? null : player);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.websocket;
+
+import com.example.demo.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Autentica le connessioni WebSocket all'handshake, prima dell'upgrade del protocollo.
+ * Il token JWT viene letto dall'intestazione {@code Authorization: Bearer} o, per i client
+ * browser che non possono impostarla, dal parametro {@code token} della query.
+ *
+ * <p>Il token viene verificato una sola volta: se è valido l'identità del giocatore viene
+ * salvata negli attributi della sessione come {@link PlayerIdentity}, altrimenti la
+ * richiesta viene rifiutata con 401 e la connessione non viene aperta.</p>
+ */
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    // Parametro della query con il token JWT
+    static final String TOKEN_PARAMETER = "token";
+
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param jwtUtil Utility per la gestione dei token JWT.
+     */
+    public JwtHandshakeInterceptor(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    /**
+     * Verifica il token e salva l'identità del giocatore negli attributi della sessione.
+     *
+     * @return false, con risposta 401, se il token è assente o non valido.
+     */
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = extractToken(request);
+        if (token == null) {
+            logger.warn("WebSocket handshake rejected: no token.");
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        PlayerIdentity identity;
+        try {
+            // Una sola verifica di firma e scadenza per tutti i claim
+            identity = jwtUtil.extractClaim(token, JwtHandshakeInterceptor::toIdentity);
+        } catch (Exception e) {
+            logger.warn("WebSocket handshake rejected: {}", e.getMessage());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put(PlayerIdentity.ATTRIBUTE, identity);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // Nessuna operazione dopo l'handshake
+    }
+
+    /**
+     * @param uri URI della richiesta di connessione.
+     * @return I parametri della query di connessione; per i parametri ripetuti vale il primo.
+     */
+    static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = uri != null ? uri.getQuery() : null;
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.putIfAbsent(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return parameters;
+    }
+
+    private static String extractToken(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length());
+        }
+        String token = queryParameters(request.getURI()).get(TOKEN_PARAMETER);
+        return token == null || token.isBlank() ? null : token;
+    }
+
+    private static PlayerIdentity toIdentity(Claims claims) {
+        Integer userId = claims.get("userId", Integer.class);
+        if (userId == null) {
+            throw new IllegalArgumentException("Token has no user ID.");
+        }
+        return new PlayerIdentity(userId.toString(), claims.getSubject());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.websocket;
+
+import com.example.demo.dtos.MatchResponse;
+import com.example.demo.dtos.SocketCommand;
+import com.example.demo.service.MatchService;
+import com.example.demo.service.MatchmakingService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Gestori dei comandi di matchmaking ricevuti sulla connessione WebSocket, registrati nel
+ * {@link CommandRouter}: evitano ai client una richiesta HTTP per ogni operazione sulla coda.
+ *
+ * <p>Comandi: {@code join} (con {@code mode} e {@code region} opzionali), {@code leave},
+ * {@code status} e {@code accept-match} (con {@code matchId}). Il giocatore è sempre quello
+ * autenticato dalla sessione.</p>
+ */
+@Component
+public class MatchmakingCommandHandler {
+
+    private final CommandRouter commandRouter;
+    private final MatchmakingService matchmakingService;
+    private final MatchService matchService;
+
+    /**
+     * Costruttore con dipendenze iniettate.
+     *
+     * @param commandRouter      Router dei comandi WebSocket.
+     * @param matchmakingService Servizio per la gestione del matchmaking.
+     * @param matchService       Servizio per la gestione dei match.
+     */
+    public MatchmakingCommandHandler(CommandRouter commandRouter, MatchmakingService matchmakingService,
+                                     MatchService matchService) {
+        this.commandRouter = commandRouter;
+        this.matchmakingService = matchmakingService;
+        this.matchService = matchService;
+    }
+
+    /**
+     * Registra i gestori dei comandi di matchmaking.
+     */
+    @PostConstruct
+    public void register() {
+        commandRouter.register("join", this::join);
+        commandRouter.register("leave", this::leave);
+        commandRouter.register("status", this::status);
+        commandRouter.register("accept-match", this::acceptMatch);
+    }
+
+    private Map<String, Object> join(String playerId, SocketCommand command) {
+        return CommandRouter.message(command, matchmakingService.addToQueue(playerId, command.mode(), command.region()));
+    }
+
+    private Map<String, Object> leave(String playerId, SocketCommand command) {
+        return CommandRouter.message(command, matchmakingService.removeFromQueue(playerId));
+    }
+
+    private Map<String, Object> status(String playerId, SocketCommand command) {
+        return matchmakingService.getQueueStatus(playerId)
+                .map(status -> CommandRouter.data(command, status))
+                .orElseGet(() -> CommandRouter.error(command, HttpStatus.NOT_FOUND, "You are not in the matchmaking queue."));
+    }
+
+    private Map<String, Object> acceptMatch(String playerId, SocketCommand command) {
+        if (command.matchId() == null || command.matchId().isBlank()) {
+            throw new IllegalArgumentException("Match ID cannot be null or empty.");
+        }
+        return matchService.getMatch(command.matchId())
+                .map(match -> {
+                    matchService.markReady(match, playerId);
+                    return CommandRouter.data(command, MatchResponse.of(match));
+                })
+                .orElseGet(() -> CommandRouter.error(command, HttpStatus.NOT_FOUND, "Match not found."));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.websocket;
+
+/**
+ * Canale di consegna dei messaggi tra le istanze: un nodo che non ha la sessione di un
+ * giocatore inoltra il messaggio al nodo indicato dalla {@link SessionDirectory}, che lo
+ * consegna sulla propria sessione locale.
+ */
+public interface NodeMessageBus {
+
+    /**
+     * Consegna sul nodo locale dei messaggi ricevuti da altri nodi.
+     */
+    @FunctionalInterface
+    interface NodeListener {
+
+        /**
+         * @param playerId ID del giocatore destinatario.
+         * @param message  Messaggio da consegnare.
+         * @return true se il messaggio è stato consegnato alla sessione del giocatore.
+         */
+        boolean deliver(String playerId, String message);
+    }
+
+    /**
+     * Registra il destinatario dei messaggi indirizzati a un nodo.
+     *
+     * @param nodeId   Nodo locale.
+     * @param listener Consegna sulle sessioni del nodo.
+     */
+    void subscribe(String nodeId, NodeListener listener);
+
+    /**
+     * Rimuove il destinatario dei messaggi di un nodo in arresto.
+     *
+     * @param nodeId Nodo locale.
+     */
+    void unsubscribe(String nodeId);
+
+    /**
+     * Inoltra un messaggio a un altro nodo.
+     *
+     * @param nodeId   Nodo a cui è connesso il giocatore.
+     * @param playerId ID del giocatore destinatario.
+     * @param message  Messaggio da consegnare.
+     * @return true se il messaggio è stato consegnato o, per i canali asincroni, accettato.
+     */
+    boolean send(String nodeId, String playerId, String message);
+}
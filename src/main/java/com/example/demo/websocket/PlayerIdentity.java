@@ -0,0 +1,36 @@
+package com.example.demo.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+
+/**
+ * Identità del giocatore autenticata all'handshake dal {@link JwtHandshakeInterceptor} e
+ * conservata negli attributi della sessione: le letture successive non verificano di nuovo
+ * il token, che nel frattempo può anche essere scaduto.
+ *
+ * @param playerId ID del giocatore, nella forma usata come chiave del registro delle sessioni.
+ * @param username Nome utente del giocatore.
+ */
+public record PlayerIdentity(String playerId, String username) {
+
+    // Attributo di sessione con l'identità del giocatore
+    static final String ATTRIBUTE = "playerIdentity";
+
+    /**
+     * @param session Sessione WebSocket.
+     * @return L'identità del giocatore, o null se la sessione non è stata autenticata.
+     */
+    public static PlayerIdentity of(WebSocketSession session) {
+        return from(session.getAttributes());
+    }
+
+    /**
+     * @param attributes Attributi di una sessione WebSocket.
+     * @return L'identità del giocatore, o null se gli attributi non ne contengono una.
+     */
+    public static PlayerIdentity from(Map<String, Object> attributes) {
+        Object identity = attributes.get(ATTRIBUTE);
+        return identity instanceof PlayerIdentity playerIdentity ? playerIdentity : null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.websocket;
+
+/**
+ * Presenza dei giocatori: indica quali giocatori hanno una connessione WebSocket aperta
+ * e notifica connessioni e disconnessioni.
+ */
+public interface PlayerPresence {
+
+    /**
+     * Riceve le variazioni di presenza dei giocatori.
+     */
+    interface PresenceListener {
+
+        /**
+         * @param playerId Giocatore che ha aperto una connessione.
+         */
+        default void onConnected(String playerId) {
+        }
+
+        /**
+         * @param playerId Giocatore che non ha più connessioni aperte.
+         */
+        default void onDisconnected(String playerId) {
+        }
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore ha una connessione aperta.
+     */
+    boolean isOnline(String playerId);
+
+    /**
+     * Registra un destinatario delle variazioni di presenza.
+     *
+     * @param listener Destinatario.
+     */
+    void addListener(PresenceListener listener);
+}
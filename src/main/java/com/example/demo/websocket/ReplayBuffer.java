@@ -0,0 +1,124 @@
+package com.example.demo.websocket;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Buffer circolare degli ultimi messaggi inviati a un giocatore, numerati con un
+ * sequence ID crescente. Alla riconnessione il client indica l'ultimo sequence ricevuto
+ * e riceve solo i messaggi successivi, se sono ancora nel buffer.
+ *
+ * <p>La numerazione parte dall'istante di creazione del buffer (in millisecondi per
+ * 1000), così che un buffer ricreato per lo stesso giocatore non riusi sequence già visti
+ * dal client. Invio e replay avvengono sotto il lock del buffer: i messaggi arrivano al
+ * client nell'ordine dei sequence anche durante il replay.</p>
+ */
+public class ReplayBuffer {
+
+    /**
+     * Messaggio consegnato durante il replay.
+     */
+    @FunctionalInterface
+    public interface Replayer {
+
+        /**
+         * @param sequence Sequence ID del messaggio.
+         * @param message  Messaggio originale.
+         */
+        void replay(long sequence, String message);
+    }
+
+    private final String[] messages;
+    private long nextSequence;
+    private int size;
+
+    // Istante della disconnessione del giocatore, 0 se è connesso
+    private volatile long disconnectedAtMillis;
+
+    /**
+     * @param capacity  Numero di messaggi conservati.
+     * @param nowMillis Istante di creazione.
+     */
+    public ReplayBuffer(int capacity, long nowMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Replay capacity must be positive: " + capacity);
+        }
+        this.messages = new String[capacity];
+        this.nextSequence = nowMillis * 1000 + 1;
+    }
+
+    /**
+     * Assegna il prossimo sequence a un messaggio, lo conserva e lo consegna sotto il lock
+     * del buffer.
+     *
+     * @param message Messaggio da inviare.
+     * @param deliver Invio del messaggio con il sequence assegnato.
+     * @return Il sequence assegnato.
+     */
+    public synchronized long append(String message, LongConsumer deliver) {
+        long sequence = nextSequence++;
+        messages[(int) (sequence % messages.length)] = message;
+        size = Math.min(size + 1, messages.length);
+        deliver.accept(sequence);
+        return sequence;
+    }
+
+    /**
+     * Consegna i messaggi successivi all'ultimo ricevuto dal client.
+     *
+     * @param lastSequence Ultimo sequence ricevuto dal client.
+     * @param replayer     Consegna dei messaggi mancanti, in ordine.
+     * @return false se alcuni messaggi non sono più nel buffer o il sequence è sconosciuto:
+     * il client deve ricaricare lo stato completo.
+     */
+    public synchronized boolean replay(long lastSequence, Replayer replayer) {
+        long oldest = nextSequence - size;
+        if (lastSequence < oldest - 1 || lastSequence >= nextSequence) {
+            return false;
+        }
+        for (long sequence = lastSequence + 1; sequence < nextSequence; sequence++) {
+            replayer.replay(sequence, messages[(int) (sequence % messages.length)]);
+        }
+        return true;
+    }
+
+    /**
+     * Riprende la sessione di un client: consegna i messaggi mancanti, o chiede un resync se
+     * non sono più disponibili, e pubblica la nuova sessione, tutto sotto il lock del buffer.
+     * Un invio concorrente attende la pubblicazione e riceve il sequence successivo, così
+     * che il client non riceva un messaggio prima del replay né due volte.
+     *
+     * @param lastSequence Ultimo sequence ricevuto dal client.
+     * @param replayer     Consegna dei messaggi mancanti, in ordine.
+     * @param resync       Richiesta al client di ricaricare lo stato completo.
+     * @param publish      Pubblicazione della sessione, da cui passano gli invii successivi.
+     * @return true se il client ha ricevuto tutti i messaggi mancanti.
+     */
+    public synchronized boolean resume(long lastSequence, Replayer replayer, Runnable resync, Runnable publish) {
+        boolean replayed = replay(lastSequence, replayer);
+        if (!replayed) {
+            resync.run();
+        }
+        publish.run();
+        return replayed;
+    }
+
+    /**
+     * @return Ultimo sequence assegnato.
+     */
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    void markConnected() {
+        disconnectedAtMillis = 0;
+    }
+
+    void markDisconnected(long nowMillis) {
+        disconnectedAtMillis = nowMillis;
+    }
+
+    boolean isExpired(long nowMillis, long retentionMillis) {
+        long disconnectedAt = disconnectedAtMillis;
+        return disconnectedAt != 0 && nowMillis - disconnectedAt >= retentionMillis;
+    }
+}
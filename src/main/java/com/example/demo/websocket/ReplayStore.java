@@ -0,0 +1,92 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffer di replay dei giocatori connessi a questo nodo.
+ * Il buffer di un giocatore nasce alla prima connessione e sopravvive alla disconnessione
+ * per {@code websocket.replay.retention-ms}, il tempo concesso al client per riprendere
+ * la sessione; poi viene rimosso da un thread di pulizia.
+ */
+@Component
+public class ReplayStore implements PlayerPresence.PresenceListener {
+
+    private final ConcurrentHashMap<String, ReplayBuffer> buffers = new ConcurrentHashMap<>();
+    private final PlayerPresence playerPresence;
+    private final int capacity;
+    private final long retentionMs;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "ws-replay-sweeper"));
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param playerPresence Presenza dei giocatori, per sapere quando si disconnettono.
+     * @param sessionConfig  Configurazione delle sessioni WebSocket.
+     */
+    public ReplayStore(PlayerPresence playerPresence, WebSocketSessionConfig sessionConfig) {
+        this.playerPresence = playerPresence;
+        this.capacity = sessionConfig.getReplayCapacity();
+        this.retentionMs = sessionConfig.getReplayRetentionMs();
+    }
+
+    /**
+     * Avvia la pulizia dei buffer dei giocatori disconnessi da troppo tempo.
+     */
+    @PostConstruct
+    public void start() {
+        playerPresence.addListener(this);
+        long interval = Math.max(1000, retentionMs / 2);
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Arresta la pulizia.
+     */
+    @PreDestroy
+    public void stop() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Il buffer del giocatore, creato se non esiste.
+     */
+    public ReplayBuffer open(String playerId) {
+        return buffers.computeIfAbsent(playerId, id -> new ReplayBuffer(capacity, System.currentTimeMillis()));
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Il buffer del giocatore, o null se non è stato connesso di recente.
+     */
+    public ReplayBuffer find(String playerId) {
+        return buffers.get(playerId);
+    }
+
+    @Override
+    public void onConnected(String playerId) {
+        open(playerId).markConnected();
+    }
+
+    @Override
+    public void onDisconnected(String playerId) {
+        ReplayBuffer buffer = buffers.get(playerId);
+        if (buffer != null) {
+            buffer.markDisconnected(System.currentTimeMillis());
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        buffers.entrySet().removeIf(entry -> entry.getValue().isExpired(now, retentionMs));
+    }
+}
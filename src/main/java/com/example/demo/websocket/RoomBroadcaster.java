@@ -0,0 +1,205 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iscrizioni dei giocatori alle stanze (topic) e invio in broadcast ai loro iscritti.
+ *
+ * <p>Un broadcast codifica il messaggio una sola volta per formato: lo stesso frame, testuale
+ * con il testo e i byte UTF-8 già pronti o binario, viene condiviso da tutti i destinatari. Gli iscritti vengono divisi
+ * in blocchi consegnati in parallelo da thread dedicati; ogni invio passa dal buffer della
+ * sessione, quindi un client lento non rallenta gli altri.</p>
+ */
+@Component
+public class RoomBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomBroadcaster.class);
+
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    private final WebSocketMetrics webSocketMetrics;
+
+    private final BinaryFrameCodec frameCodec;
+
+    // Iscritti di ogni stanza e stanze di ogni giocatore, per la pulizia alla disconnessione
+    private final ConcurrentHashMap<String, Set<String>> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> memberships = new ConcurrentHashMap<>();
+
+    private final ExecutorService workers;
+    private final int chunkSize;
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param sessionRegistry  Registro delle sessioni attive.
+     * @param webSocketMetrics Metriche delle connessioni WebSocket.
+     * @param sessionConfig    Configurazione delle sessioni WebSocket.
+     * @param frameCodec       Codifica dei frame del protocollo binario.
+     */
+    public RoomBroadcaster(WebSocketSessionRegistry sessionRegistry, WebSocketMetrics webSocketMetrics,
+                           WebSocketSessionConfig sessionConfig, BinaryFrameCodec frameCodec) {
+        this.sessionRegistry = sessionRegistry;
+        this.webSocketMetrics = webSocketMetrics;
+        this.frameCodec = frameCodec;
+        this.chunkSize = Math.max(1, sessionConfig.getBroadcastChunkSize());
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, sessionConfig.getBroadcastThreads()),
+                runnable -> new Thread(runnable, "room-broadcaster-" + threads.incrementAndGet()));
+    }
+
+    /**
+     * Iscrive un giocatore a una stanza.
+     *
+     * @param room     Nome della stanza.
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore non era già iscritto.
+     */
+    public boolean subscribe(String room, String playerId) {
+        memberships.computeIfAbsent(playerId, id -> ConcurrentHashMap.newKeySet()).add(room);
+        return rooms.computeIfAbsent(room, name -> ConcurrentHashMap.newKeySet()).add(playerId);
+    }
+
+    /**
+     * Cancella l'iscrizione di un giocatore a una stanza. Le stanze vuote vengono rimosse.
+     *
+     * @param room     Nome della stanza.
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore era iscritto.
+     */
+    public boolean unsubscribe(String room, String playerId) {
+        memberships.computeIfPresent(playerId, (id, joined) -> joined.remove(room) && joined.isEmpty() ? null : joined);
+        boolean[] removed = new boolean[1];
+        rooms.computeIfPresent(room, (name, subscribers) -> {
+            removed[0] = subscribers.remove(playerId);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Cancella tutte le iscrizioni di un giocatore.
+     *
+     * @param playerId ID del giocatore.
+     */
+    public void unsubscribeAll(String playerId) {
+        Set<String> joined = memberships.remove(playerId);
+        if (joined != null) {
+            joined.forEach(room -> rooms.computeIfPresent(room, (name, subscribers) -> {
+                subscribers.remove(playerId);
+                return subscribers.isEmpty() ? null : subscribers;
+            }));
+        }
+    }
+
+    /**
+     * @param room Nome della stanza.
+     * @return Numero di iscritti alla stanza.
+     */
+    public int subscriberCount(String room) {
+        Set<String> subscribers = rooms.get(room);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * Invia un messaggio a tutti gli iscritti di una stanza. Il messaggio viene codificato una
+     * sola volta e la consegna avviene sui thread del broadcaster.
+     *
+     * @param room    Nome della stanza.
+     * @param message Messaggio da inviare.
+     * @return Numero di iscritti a cui il messaggio è stato consegnato, al termine della consegna.
+     */
+    public CompletableFuture<Integer> broadcast(String room, String message) {
+        Set<String> subscribers = rooms.get(room);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        TextMessage textFrame = new TextMessage(message.getBytes(StandardCharsets.UTF_8));
+        BinaryMessage binaryFrame = frameCodec.encodeNotification(message);
+        String[] recipients = subscribers.toArray(String[]::new);
+
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < recipients.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(recipients.length, from + chunkSize);
+            chunks.add(CompletableFuture.supplyAsync(() -> deliverChunk(recipients, start, end, textFrame, binaryFrame),
+                    workers));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(done -> chunks.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    /**
+     * Invia un messaggio su una sessione tramite il suo buffer. Se il client non smaltisce i
+     * messaggi entro i limiti configurati la sessione viene chiusa dal buffer.
+     *
+     * @param session Sessione del giocatore.
+     * @param message Messaggio da inviare.
+     * @return false se la sessione è stata chiusa perché il client era troppo lento.
+     * @throws IOException Se l'invio fallisce.
+     */
+    boolean deliver(WebSocketSession session, WebSocketMessage<?> message) throws IOException {
+        try {
+            session.sendMessage(message);
+            return true;
+        } catch (SessionLimitExceededException e) {
+            webSocketMetrics.recordSlowConsumerEviction();
+            logger.warn("WebSocket session [{}] closed as a slow consumer: {}", session.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Arresta i thread di consegna.
+     */
+    @PreDestroy
+    public void stop() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int deliverChunk(String[] recipients, int start, int end, TextMessage textFrame,
+                             BinaryMessage binaryFrame) {
+        int delivered = 0;
+        for (int i = start; i < end; i++) {
+            WebSocketSession session = sessionRegistry.find(recipients[i]);
+            if (session == null || !session.isOpen()) {
+                continue;
+            }
+            try {
+                if (deliver(session, WireFormat.of(session) == WireFormat.BINARY ? binaryFrame : textFrame)) {
+                    delivered++;
+                }
+            } catch (IOException e) {
+                logger.warn("Broadcast to player [{}] failed: {}", recipients[i], e.getMessage());
+            }
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.websocket;
+
+/**
+ * Directory condivisa tra le istanze che indica su quale nodo è connesso ogni giocatore.
+ * Ogni nodo registra le proprie sessioni all'apertura e le rimuove alla chiusura; gli altri
+ * nodi la consultano per instradare i messaggi verso i giocatori che non hanno una sessione
+ * locale.
+ *
+ * <p>Le implementazioni distribuite devono far scadere le voci di un nodo che non risponde
+ * più, altrimenti i suoi giocatori risultano connessi fino al loro prossimo accesso.</p>
+ */
+public interface SessionDirectory {
+
+    /**
+     * Registra il nodo a cui è connesso un giocatore, sostituendo quello precedente.
+     *
+     * @param playerId ID del giocatore.
+     * @param nodeId   Nodo della sessione.
+     */
+    void register(String playerId, String nodeId);
+
+    /**
+     * Rimuove la voce di un giocatore, solo se indica ancora il nodo dato.
+     *
+     * @param playerId ID del giocatore.
+     * @param nodeId   Nodo della sessione chiusa.
+     * @return true se la voce è stata rimossa.
+     */
+    boolean unregister(String playerId, String nodeId);
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Nodo a cui è connesso il giocatore, o null se non è connesso.
+     */
+    String locate(String playerId);
+}
@@ -0,0 +1,189 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.matchmaking.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Heartbeat e rimozione delle sessioni WebSocket inattive.
+ *
+ * <p>Ogni sessione ha un solo timer in una {@link HashedTimingWheel}, fatta avanzare da un
+ * unico thread: alla scadenza, se il client non ha inviato nulla per l'intervallo di
+ * heartbeat riceve un ping, e se è rimasto in silenzio oltre il timeout di inattività la
+ * sessione viene chiusa. Ogni messaggio o pong ricevuto aggiorna solo l'istante dell'ultima
+ * attività, quindi il controllo di una sessione costa O(1) e non c'è un task per sessione.</p>
+ */
+@Component
+public class SessionHeartbeat {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionHeartbeat.class);
+
+    private static final int WHEEL_SIZE = 512;
+
+    // Attributo di sessione con lo stato di attività
+    private static final String LIVENESS_ATTRIBUTE = "liveness";
+
+    /**
+     * Stato di attività di una sessione, condiviso tra i thread della sessione e il timer.
+     */
+    private static final class Liveness {
+
+        private final WebSocketSession session;
+        private final Consumer<WebSocketSession> onReap;
+        private volatile long lastSeenMillis;
+        private volatile boolean closed;
+
+        private Liveness(WebSocketSession session, Consumer<WebSocketSession> onReap, long nowMillis) {
+            this.session = session;
+            this.onReap = onReap;
+            this.lastSeenMillis = nowMillis;
+        }
+    }
+
+    private final WebSocketMetrics webSocketMetrics;
+    private final long intervalMs;
+    private final long idleTimeoutMs;
+    private final long tickMs;
+
+    // Sessioni da aggiungere alla ruota, registrate dai thread delle connessioni
+    private final ConcurrentLinkedQueue<Liveness> pendingWatches = new ConcurrentLinkedQueue<>();
+
+    // Ruota e thread del timer
+    private final HashedTimingWheel<Liveness> wheel;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "ws-heartbeat"));
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param webSocketMetrics Metriche delle connessioni WebSocket.
+     * @param sessionConfig    Configurazione delle sessioni WebSocket.
+     */
+    public SessionHeartbeat(WebSocketMetrics webSocketMetrics, WebSocketSessionConfig sessionConfig) {
+        this.webSocketMetrics = webSocketMetrics;
+        this.intervalMs = sessionConfig.getHeartbeatIntervalMs();
+        this.idleTimeoutMs = sessionConfig.getIdleTimeoutMs();
+        this.tickMs = Math.max(1, sessionConfig.getHeartbeatTickMs());
+        if (intervalMs <= 0 || idleTimeoutMs <= intervalMs) {
+            throw new IllegalArgumentException("Idle timeout must be longer than a positive heartbeat interval.");
+        }
+        this.wheel = new HashedTimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    /**
+     * Avvia il thread del timer.
+     */
+    @PostConstruct
+    public void start() {
+        timer.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Arresta il thread del timer.
+     */
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Inizia a controllare una sessione.
+     *
+     * @param session Sessione da controllare, usata per ping e chiusura.
+     * @param onReap  Azione eseguita dopo la chiusura della sessione per inattività.
+     */
+    public void watch(WebSocketSession session, Consumer<WebSocketSession> onReap) {
+        Liveness liveness = new Liveness(session, onReap, System.currentTimeMillis());
+        session.getAttributes().put(LIVENESS_ATTRIBUTE, liveness);
+        pendingWatches.offer(liveness);
+    }
+
+    /**
+     * Registra attività ricevuta su una sessione.
+     *
+     * @param session Sessione del client.
+     */
+    public void touch(WebSocketSession session) {
+        if (session.getAttributes().get(LIVENESS_ATTRIBUTE) instanceof Liveness liveness) {
+            liveness.lastSeenMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Smette di controllare una sessione chiusa. Il suo timer viene scartato alla scadenza.
+     *
+     * @param session Sessione del client.
+     */
+    public void unwatch(WebSocketSession session) {
+        if (session.getAttributes().remove(LIVENESS_ATTRIBUTE) instanceof Liveness liveness) {
+            liveness.closed = true;
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            Liveness added;
+            while ((added = pendingWatches.poll()) != null) {
+                wheel.schedule(added, intervalMs);
+            }
+            wheel.advance(now, liveness -> check(liveness, now));
+        } catch (Exception e) {
+            logger.error("Error in WebSocket heartbeat tick: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Controlla una sessione alla scadenza del suo timer: la chiude se è inattiva da troppo,
+     * invia un ping se è in silenzio da un intervallo di heartbeat e riprogramma il timer.
+     */
+    private void check(Liveness liveness, long now) {
+        if (liveness.closed || !liveness.session.isOpen()) {
+            return;
+        }
+        long idle = now - liveness.lastSeenMillis;
+        if (idle >= idleTimeoutMs) {
+            reap(liveness, idle);
+            return;
+        }
+        if (idle < intervalMs) {
+            wheel.schedule(liveness, intervalMs - idle);
+            return;
+        }
+        try {
+            liveness.session.sendMessage(new PingMessage());
+        } catch (Exception e) {
+            logger.warn("Heartbeat ping failed for session [{}]: {}", liveness.session.getId(), e.getMessage());
+        }
+        wheel.schedule(liveness, Math.min(intervalMs, idleTimeoutMs - idle));
+    }
+
+    private void reap(Liveness liveness, long idle) {
+        liveness.closed = true;
+        webSocketMetrics.recordReapedSession();
+        logger.info("Closing WebSocket session [{}] after {} ms without activity.", liveness.session.getId(), idle);
+        try {
+            liveness.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            logger.warn("Error closing idle session [{}]: {}", liveness.session.getId(), e.getMessage());
+        }
+        try {
+            liveness.onReap.accept(liveness.session);
+        } catch (Exception e) {
+            logger.error("Error releasing idle session [{}]: {}", liveness.session.getId(), e.getMessage(), e);
+        }
+    }
+}
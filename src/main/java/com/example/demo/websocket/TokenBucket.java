@@ -0,0 +1,84 @@
+package com.example.demo.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket senza lock, nella forma GCRA: lo stato è un solo {@code long}, l'istante
+ * teorico in cui il bucket tornerà pieno, aggiornato con un compare-and-set. Verificare un
+ * messaggio non alloca e non blocca.
+ *
+ * <p>Il bucket si ricarica di {@code ratePerSecond} unità al secondo e ne contiene al più
+ * quante se ne ricaricano in {@code burstNanos}.</p>
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    // Istante (System.nanoTime) in cui il bucket tornerà pieno
+    private final AtomicLong fullAt;
+
+    /**
+     * @param ratePerSecond Unità ricaricate al secondo.
+     * @param burstNanos    Tempo di ricarica di un bucket vuoto: ne determina la capacità.
+     * @param nowNanos      Istante di creazione; il bucket nasce pieno.
+     */
+    public TokenBucket(long ratePerSecond, long burstNanos, long nowNanos) {
+        if (ratePerSecond <= 0 || burstNanos <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive: " + ratePerSecond + ", " + burstNanos);
+        }
+        this.intervalNanos = Math.max(1, NANOS_PER_SECOND / ratePerSecond);
+        this.burstNanos = burstNanos;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Preleva le unità se disponibili.
+     *
+     * @param units    Unità richieste.
+     * @param nowNanos Istante corrente.
+     * @return false se il bucket non ha abbastanza unità; in quel caso non viene modificato.
+     */
+    public boolean tryAcquire(long units, long nowNanos) {
+        long increment = units * intervalNanos;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + increment;
+            if (next - nowNanos > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Preleva le unità anche oltre la capacità, accumulando un debito che si estingue con
+     * la ricarica.
+     *
+     * @param units    Unità addebitate.
+     * @param nowNanos Istante corrente.
+     * @return Unità ancora da ricaricare dopo l'addebito, arrotondate per eccesso.
+     */
+    public long charge(long units, long nowNanos) {
+        long increment = units * intervalNanos;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + increment;
+            if (fullAt.compareAndSet(current, next)) {
+                return (next - nowNanos + intervalNanos - 1) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * @param nowNanos Istante corrente.
+     * @return true se il bucket è pieno, cioè non è stato usato nell'ultimo periodo di ricarica.
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() - nowNanos <= 0;
+    }
+}
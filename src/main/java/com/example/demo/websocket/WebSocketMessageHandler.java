@@ -1,68 +1,246 @@
 package com.example.demo.websocket;
 
-import com.example.demo.util.JwtUtil;
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.dtos.SocketCommand;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Gestisce le connessioni WebSocket e i messaggi.
+ * I messaggi ricevuti sono comandi, smistati dal {@link CommandRouter} ai rispettivi gestori
+ * ed eseguiti su virtual thread per il giocatore autenticato all'apertura della connessione.
+ *
+ * <p>Ogni sessione è avvolta in un buffer di invio limitato in byte e in tempo: chi invia non
+ * resta bloccato su un client lento, e i client che non smaltiscono i messaggi vengono
+ * disconnessi o perdono i messaggi più vecchi, secondo la politica configurata.</p>
+ *
+ * <p>I giocatori possono essere iscritti a stanze, a cui inviare messaggi in broadcast
+ * tramite il {@link RoomBroadcaster}.</p>
+ *
+ * <p>Il formato dei messaggi è scelto dal client all'handshake ({@link WireFormat}): JSON
+ * testuale, il default, o frame binari ({@link BinaryFrameCodec}). Ogni comando riceve la
+ * risposta nel formato in cui è stato inviato; le notifiche usano il formato della sessione.</p>
+ *
+ * <p>Le sessioni sono controllate dal {@link SessionHeartbeat}: ogni messaggio o pong ricevuto
+ * conta come attività, e le sessioni inattive oltre il timeout vengono chiuse e rilasciate
+ * senza attendere che il container si accorga della connessione caduta.</p>
+ *
+ * <p>I messaggi ricevuti passano dall'{@link InboundRateLimiter} prima di essere decodificati:
+ * oltre il limite vengono scartati, poi il client viene avvisato e infine disconnesso.</p>
+ *
+ * <p>I messaggi per un giocatore connesso a un'altra istanza vengono inoltrati al suo nodo
+ * tramite il {@link NodeMessageBus}; se la sessione è locale l'invio è diretto.</p>
+ *
+ * <p>I messaggi diretti a un giocatore sono numerati e conservati nel suo {@link ReplayBuffer}:
+ * un client che si riconnette con {@code ?resume=<sequence>} riceve i messaggi persi, oppure
+ * un frame di resync se non sono più disponibili. I broadcast alle stanze non sono numerati.</p>
  */
 @Component
-public class WebSocketMessageHandler extends TextWebSocketHandler {
+public class WebSocketMessageHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketMessageHandler.class);
 
-    // Mappa delle sessioni attive, associando un playerId alla sessione WebSocket
-    private final ConcurrentHashMap<String, WebSocketSession> activeSessions = new ConcurrentHashMap<>();
+    // Attributo di sessione con la sessione avvolta nel buffer di invio
+    private static final String BUFFERED_SESSION_ATTRIBUTE = "bufferedSession";
 
-    private final JwtUtil jwtUtil;
+    // Parametro della query di connessione con l'ultimo sequence ricevuto dal client
+    private static final String RESUME_PARAMETER = "resume";
+
+    // Sessioni attive dei giocatori
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    private final CommandRouter commandRouter;
+
+    private final WebSocketSessionConfig sessionConfig;
+
+    private final RoomBroadcaster roomBroadcaster;
+
+    private final BinaryFrameCodec frameCodec;
+
+    private final SessionHeartbeat heartbeat;
+
+    private final NodeMessageBus messageBus;
+
+    private final ReplayStore replayStore;
+
+    private final InboundRateLimiter inboundRateLimiter;
 
     /**
      * Costruttore con iniezione delle dipendenze.
      *
-     * @param jwtUtil Utility per la gestione dei token JWT.
+     * @param sessionRegistry    Registro delle sessioni attive.
+     * @param commandRouter      Router dei comandi ricevuti.
+     * @param sessionConfig      Limiti del buffer di invio delle sessioni.
+     * @param roomBroadcaster    Iscrizioni alle stanze e invio in broadcast.
+     * @param frameCodec         Codifica dei frame del protocollo binario.
+     * @param heartbeat          Heartbeat e rimozione delle sessioni inattive.
+     * @param messageBus         Canale di consegna dei messaggi tra le istanze.
+     * @param replayStore        Messaggi conservati per la ripresa delle sessioni.
+     * @param inboundRateLimiter Limiti sui messaggi ricevuti.
      */
-    public WebSocketMessageHandler(JwtUtil jwtUtil) {
-        this.jwtUtil = jwtUtil;
+    public WebSocketMessageHandler(WebSocketSessionRegistry sessionRegistry,
+                                   CommandRouter commandRouter,
+                                   WebSocketSessionConfig sessionConfig, RoomBroadcaster roomBroadcaster,
+                                   BinaryFrameCodec frameCodec, SessionHeartbeat heartbeat,
+                                   NodeMessageBus messageBus, ReplayStore replayStore,
+                                   InboundRateLimiter inboundRateLimiter) {
+        this.sessionRegistry = sessionRegistry;
+        this.commandRouter = commandRouter;
+        this.sessionConfig = sessionConfig;
+        this.roomBroadcaster = roomBroadcaster;
+        this.frameCodec = frameCodec;
+        this.heartbeat = heartbeat;
+        this.messageBus = messageBus;
+        this.replayStore = replayStore;
+        this.inboundRateLimiter = inboundRateLimiter;
+    }
+
+    /**
+     * Riceve i messaggi inoltrati a questo nodo dalle altre istanze.
+     */
+    @PostConstruct
+    public void joinCluster() {
+        messageBus.subscribe(sessionRegistry.getNodeId(), this::deliverLocal);
+    }
+
+    /**
+     * Smette di ricevere i messaggi delle altre istanze.
+     */
+    @PreDestroy
+    public void leaveCluster() {
+        messageBus.unsubscribe(sessionRegistry.getNodeId());
+    }
+
+    /**
+     * @return I sottoprotocolli che il client può richiedere all'handshake.
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return WireFormat.subProtocols();
     }
 
     /**
      * Metodo chiamato quando una nuova connessione WebSocket viene stabilita.
+     * Il giocatore è già stato autenticato all'handshake dal {@link JwtHandshakeInterceptor}.
      *
      * @param session La sessione WebSocket.
      */
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        Integer playerId = getPlayerIdFromSession(session);
+        PlayerIdentity identity = PlayerIdentity.of(session);
 
-        if (playerId != null) {
-            activeSessions.put(playerId.toString(), session);
-            logger.info("WebSocket connection established for player [{}]", playerId);
+        if (identity != null) {
+            String playerId = identity.playerId();
+            WebSocketSession buffered = new ConcurrentWebSocketSessionDecorator(session,
+                    sessionConfig.getSendTimeLimitMs(), sessionConfig.getSendBufferSizeLimit(),
+                    sessionConfig.getSendOverflowStrategy());
+            session.getAttributes().put(BUFFERED_SESSION_ATTRIBUTE, buffered);
+            session.getAttributes().put(WireFormat.ATTRIBUTE, WireFormat.fromSubProtocol(session.getAcceptedProtocol()));
+            commandRouter.attach(session);
+            inboundRateLimiter.attach(session, playerId);
+            String resume = JwtHandshakeInterceptor.queryParameters(session.getUri()).get(RESUME_PARAMETER);
+            if (resume != null) {
+                resume(playerId, buffered, resume);
+            } else {
+                sessionRegistry.register(playerId, buffered);
+            }
+            heartbeat.watch(buffered, this::release);
+            logger.info("WebSocket connection established for player [{}] ({})", playerId, WireFormat.of(session));
         } else {
-            logger.warn("WebSocket connection rejected: invalid or missing player ID.");
-            session.close();
+            logger.warn("WebSocket connection rejected: session [{}] was not authenticated.", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION);
         }
     }
 
     /**
-     * Metodo chiamato quando un messaggio viene ricevuto.
+     * Metodo chiamato quando un messaggio viene ricevuto: decodifica il comando, lo affida al
+     * router e invia la risposta JSON sulla stessa sessione.
      *
      * @param session La sessione WebSocket.
      * @param message Il messaggio ricevuto.
      */
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String payload = message.getPayload();
-        logger.info("Message received from session [{}]: {}", session.getId(), payload);
+        heartbeat.touch(session);
+        String playerId = playerId(session);
+        if (playerId == null) {
+            logger.warn("Message ignored from unidentified session [{}].", session.getId());
+            return;
+        }
+        // La lunghezza in caratteri evita di codificare il payload solo per misurarlo
+        if (!admit(session, playerId, message.getPayload().length(), false)) {
+            return;
+        }
+        logger.debug("Command received from player [{}]: {}", playerId, message.getPayload());
+
+        SocketCommand command;
+        try {
+            command = commandRouter.parse(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            reply(session, new TextMessage(commandRouter.write(CommandRouter.malformed(e.getMessage()))));
+            return;
+        }
+        commandRouter.submit(session, playerId, command,
+                reply -> reply(session, new TextMessage(commandRouter.write(reply))));
+    }
 
-        // Echo del messaggio al client
-        session.sendMessage(new TextMessage("Echo: " + payload));
+    /**
+     * Metodo chiamato quando un frame binario viene ricevuto: decodifica il comando, lo affida
+     * al router e invia la risposta binaria sulla stessa sessione.
+     *
+     * @param session La sessione WebSocket.
+     * @param message Il frame ricevuto.
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        heartbeat.touch(session);
+        String playerId = playerId(session);
+        if (playerId == null) {
+            logger.warn("Message ignored from unidentified session [{}].", session.getId());
+            return;
+        }
+        if (!admit(session, playerId, message.getPayloadLength(), true)) {
+            return;
+        }
+
+        // Il payload va decodificato prima di tornare al container, che può riusarne il buffer
+        SocketCommand command;
+        try {
+            command = frameCodec.decodeCommand(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Malformed frame from player [{}]: {}", playerId, e.getMessage());
+            reply(session, frameCodec.encodeReply(CommandRouter.malformed(e.getMessage())));
+            return;
+        }
+        commandRouter.submit(session, playerId, command, reply -> reply(session, frameCodec.encodeReply(reply)));
+    }
+
+    /**
+     * Metodo chiamato quando il client risponde a un ping di heartbeat.
+     *
+     * @param session La sessione WebSocket.
+     * @param message Il pong ricevuto.
+     */
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        heartbeat.touch(session);
     }
 
     /**
@@ -73,10 +251,12 @@ public class WebSocketMessageHandler extends TextWebSocketHandler {
      */
     @Override
     public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status) throws Exception {
-        Integer playerId = getPlayerIdFromSession(session);
+        heartbeat.unwatch(session);
+        String playerId = playerId(session);
 
         if (playerId != null) {
-            activeSessions.remove(playerId.toString());
+            release(buffered(session));
+            inboundRateLimiter.detach(session);
             logger.info("WebSocket connection closed for player [{}]. Status: {}", playerId, status);
         } else {
             logger.warn("WebSocket session closed for unidentified session [{}].", session.getId());
@@ -84,41 +264,216 @@ public class WebSocketMessageHandler extends TextWebSocketHandler {
     }
 
     /**
-     * Invia un messaggio a uno specifico giocatore.
+     * Invia un messaggio a uno specifico giocatore, sulla sessione locale o tramite il nodo
+     * a cui è connesso.
      *
      * @param playerId L'ID del giocatore a cui inviare il messaggio.
      * @param message  Il messaggio da inviare.
+     * @return true se il messaggio è stato inviato, false se il giocatore non ha una sessione aperta.
+     * Un giocatore disconnesso da poco riceverà comunque il messaggio se riprende la sessione.
      */
-    public void sendMessageToUser(String playerId, String message) throws Exception {
-        WebSocketSession session = activeSessions.get(playerId);
+    public boolean sendMessageToUser(String playerId, String message) throws Exception {
+        WebSocketSession session = sessionRegistry.find(playerId);
 
         if (session != null && session.isOpen()) {
-            session.sendMessage(new TextMessage(message));
+            return sendLocal(playerId, session, message);
+        }
+        String node = sessionRegistry.findRemoteNode(playerId);
+        if (node != null && messageBus.send(node, playerId, message)) {
+            logger.info("Message for player [{}] forwarded to node [{}].", playerId, node);
+            return true;
+        }
+        ReplayBuffer replay = replayStore.find(playerId);
+        if (replay != null) {
+            long sequence = replay.append(message, undelivered -> { });
+            logger.info("Player [{}] disconnected: message kept for resume as [{}].", playerId, sequence);
+            return false;
+        }
+        logger.warn("Failed to send message to player [{}]: session not found or closed.", playerId);
+        return false;
+    }
+
+    /**
+     * Iscrive un giocatore a una stanza.
+     *
+     * @param room     Nome della stanza.
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore non era già iscritto.
+     */
+    public boolean subscribe(String room, String playerId) {
+        return roomBroadcaster.subscribe(room, playerId);
+    }
+
+    /**
+     * Cancella l'iscrizione di un giocatore a una stanza.
+     *
+     * @param room     Nome della stanza.
+     * @param playerId ID del giocatore.
+     * @return true se il giocatore era iscritto.
+     */
+    public boolean unsubscribe(String room, String playerId) {
+        return roomBroadcaster.unsubscribe(room, playerId);
+    }
+
+    /**
+     * Invia un messaggio a tutti gli iscritti di una stanza.
+     *
+     * @param room    Nome della stanza.
+     * @param message Messaggio da inviare.
+     * @return Numero di iscritti a cui il messaggio è stato consegnato, al termine della consegna.
+     */
+    public CompletableFuture<Integer> broadcast(String room, String message) {
+        return roomBroadcaster.broadcast(room, message);
+    }
+
+    /**
+     * Applica i limiti in ingresso a un messaggio ricevuto: oltre il limite il messaggio viene
+     * scartato e, secondo le infrazioni accumulate, il client viene avvisato o disconnesso.
+     *
+     * @return true se il messaggio può essere elaborato.
+     */
+    private boolean admit(WebSocketSession session, String playerId, int size, boolean binary) {
+        switch (inboundRateLimiter.check(session, size)) {
+            case ACCEPT -> {
+                return true;
+            }
+            case WARN -> {
+                logger.warn("Player [{}] is sending messages too fast: warning sent.", playerId);
+                Map<String, Object> warning = CommandRouter.rateLimited(
+                        "Too many messages: slow down or the connection will be closed.");
+                reply(session, binary ? frameCodec.encodeReply(warning) : new TextMessage(commandRouter.write(warning)));
+            }
+            case CLOSE -> {
+                logger.warn("Closing session [{}] of player [{}]: inbound rate limit exceeded.", session.getId(), playerId);
+                try {
+                    buffered(session).close(CloseStatus.POLICY_VIOLATION.withReason("Rate limit exceeded"));
+                } catch (Exception e) {
+                    logger.warn("Failed to close session [{}]: {}", session.getId(), e.getMessage());
+                }
+            }
+            case DROP -> logger.debug("Message from player [{}] dropped: inbound rate limit exceeded.", playerId);
+        }
+        return false;
+    }
+
+    /**
+     * Invia la risposta a un comando sulla sessione da cui è arrivato.
+     */
+    private void reply(WebSocketSession session, WebSocketMessage<?> reply) {
+        try {
+            roomBroadcaster.deliver(buffered(session), reply);
+        } catch (Exception e) {
+            logger.warn("Failed to reply on session [{}]: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Consegna un messaggio inoltrato da un altro nodo sulla sessione locale del giocatore.
+     */
+    private boolean deliverLocal(String playerId, String message) {
+        WebSocketSession session = sessionRegistry.find(playerId);
+        if (session == null || !session.isOpen()) {
+            logger.warn("Forwarded message for player [{}] not delivered: session not found or closed.", playerId);
+            return false;
+        }
+        try {
+            return sendLocal(playerId, session, message);
+        } catch (Exception e) {
+            logger.error("Error delivering forwarded message to player [{}]: {}", playerId, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean sendLocal(String playerId, WebSocketSession session, String message) {
+        boolean[] sent = new boolean[1];
+        replayStore.open(playerId).append(message, sequence -> sent[0] = sendEvent(session, sequence, message));
+        if (sent[0]) {
             logger.info("Message sent to player [{}]: {}", playerId, message);
+            return true;
+        }
+        logger.warn("Failed to send message to player [{}]: session closed as a slow consumer.", playerId);
+        return false;
+    }
+
+    /**
+     * Invia i messaggi persi da un client che riprende la sessione, o un resync se non sono
+     * più disponibili, e registra la sessione. Replay e registrazione avvengono sotto il lock
+     * del buffer del giocatore, lo stesso degli invii: un messaggio inviato nel frattempo
+     * arriva dopo il replay e non viene ripetuto.
+     */
+    private void resume(String playerId, WebSocketSession session, String resume) {
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(resume);
+        } catch (NumberFormatException e) {
+            // Nessun buffer contiene sequence negativi: il client riceve un resync
+            lastSequence = -1;
+        }
+        boolean resumed = replayStore.open(playerId).resume(lastSequence,
+                (sequence, message) -> sendEvent(session, sequence, message),
+                () -> reply(session, resyncFrame(session)),
+                () -> sessionRegistry.register(playerId, session));
+        if (resumed) {
+            logger.info("Session resumed for player [{}] after sequence [{}].", playerId, resume);
         } else {
-            logger.warn("Failed to send message to player [{}]: session not found or closed.", playerId);
+            logger.info("Session of player [{}] cannot be resumed after [{}]: resync requested.", playerId, resume);
         }
     }
 
+    private WebSocketMessage<?> resyncFrame(WebSocketSession session) {
+        return WireFormat.of(session) == WireFormat.BINARY
+                ? frameCodec.encodeResync()
+                : new TextMessage(commandRouter.write(Map.<String, Object>of("type", "resync")));
+    }
+
     /**
-     * Estrae l'ID del giocatore dalla sessione WebSocket.
+     * Invia un messaggio numerato nel formato della sessione.
      *
-     * @param session La sessione WebSocket.
-     * @return L'ID del giocatore, se presente.
+     * @return false se la sessione è stata chiusa o il client era troppo lento.
      */
-    private Integer getPlayerIdFromSession(WebSocketSession session) {
+    private boolean sendEvent(WebSocketSession session, long sequence, String message) {
         try {
-            String query = session.getUri().getQuery();
-
-            if (query != null && query.startsWith("token=")) {
-                String token = query.substring("token=".length());
-                return jwtUtil.extractUserId(token);
+            WebSocketMessage<?> frame;
+            if (WireFormat.of(session) == WireFormat.BINARY) {
+                frame = frameCodec.encodeEvent(sequence, message);
             } else {
-                logger.warn("No token found in WebSocket session [{}].", session.getId());
+                Map<String, Object> event = new LinkedHashMap<>();
+                event.put("type", "event");
+                event.put("seq", sequence);
+                event.put("message", message);
+                frame = new TextMessage(commandRouter.write(event));
             }
+            return roomBroadcaster.deliver(session, frame);
         } catch (Exception e) {
-            logger.error("Error extracting player ID from session [{}]: {}", session.getId(), e.getMessage());
+            logger.warn("Failed to send event [{}] on session [{}]: {}", sequence, session.getId(), e.getMessage());
+            return false;
         }
-        return null;
+    }
+
+    /**
+     * Rilascia una sessione chiusa: la rimuove dal registro, se è ancora quella del giocatore,
+     * e in quel caso cancella le iscrizioni alle stanze. Può essere invocato più volte.
+     */
+    private void release(WebSocketSession session) {
+        String playerId = playerId(session);
+        if (playerId != null && sessionRegistry.unregister(playerId, session)) {
+            roomBroadcaster.unsubscribeAll(playerId);
+        }
+    }
+
+    /**
+     * @return La sessione avvolta nel buffer di invio, o la sessione stessa se non è stata registrata.
+     */
+    private WebSocketSession buffered(WebSocketSession session) {
+        Object buffered = session.getAttributes().get(BUFFERED_SESSION_ATTRIBUTE);
+        return buffered instanceof WebSocketSession bufferedSession ? bufferedSession : session;
+    }
+
+    /**
+     * @return L'ID del giocatore autenticato all'handshake, o null se la sessione non è autenticata.
+     */
+    private static String playerId(WebSocketSession session) {
+        PlayerIdentity identity = PlayerIdentity.of(session);
+        return identity != null ? identity.playerId() : null;
     }
 }
@@ -0,0 +1,101 @@
+package com.example.demo.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metriche delle connessioni WebSocket, esposte tramite l'endpoint /actuator/metrics.
+ * Sessioni aperte e byte in attesa di invio vengono letti solo quando le metriche sono consultate.
+ */
+@Component
+public class WebSocketMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Counter slowConsumerEvictions;
+    private final Counter rejectedCommands;
+    private final Counter reapedSessions;
+    private final Counter droppedInboundMessages;
+    private final Counter floodingSessions;
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param meterRegistry   Registro delle metriche.
+     * @param sessionRegistry Registro delle sessioni attive.
+     */
+    public WebSocketMetrics(MeterRegistry meterRegistry, WebSocketSessionRegistry sessionRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("websocket.sessions", sessionRegistry, WebSocketSessionRegistry::size)
+                .description("Open player WebSocket sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.send.buffer", sessionRegistry, WebSocketSessionRegistry::bufferedBytes)
+                .description("Bytes waiting to be sent across all player sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.slowConsumerEvictions = Counter.builder("websocket.slow.consumers.evicted")
+                .description("Sessions closed because the client could not keep up with outbound messages")
+                .register(meterRegistry);
+        this.reapedSessions = Counter.builder("websocket.sessions.reaped")
+                .description("Sessions closed by the server after the idle timeout")
+                .register(meterRegistry);
+        this.rejectedCommands = Counter.builder("websocket.commands.rejected")
+                .description("Commands refused because the session had too many in flight")
+                .register(meterRegistry);
+        this.droppedInboundMessages = Counter.builder("websocket.inbound.dropped")
+                .description("Inbound messages discarded for exceeding the session or player rate limit")
+                .register(meterRegistry);
+        this.floodingSessions = Counter.builder("websocket.sessions.flooding.closed")
+                .description("Sessions closed for repeatedly exceeding the inbound rate limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra la chiusura di una sessione che non riusciva a smaltire i messaggi in uscita.
+     */
+    public void recordSlowConsumerEviction() {
+        slowConsumerEvictions.increment();
+    }
+
+    /**
+     * @param type Tipo di comando.
+     * @return Timer della durata di esecuzione dei comandi del tipo dato.
+     */
+    public Timer commandTimer(String type) {
+        return Timer.builder("websocket.command.duration")
+                .description("Time spent handling a WebSocket command")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra un comando rifiutato per il limite di comandi in esecuzione della sessione.
+     */
+    public void recordRejectedCommand() {
+        rejectedCommands.increment();
+    }
+
+    /**
+     * Registra la chiusura di una sessione inattiva oltre il timeout.
+     */
+    public void recordReapedSession() {
+        reapedSessions.increment();
+    }
+
+    /**
+     * Registra un messaggio ricevuto oltre il limite e scartato.
+     */
+    public void recordDroppedInboundMessage() {
+        droppedInboundMessages.increment();
+    }
+
+    /**
+     * Registra la chiusura di una sessione che superava ripetutamente il limite in ingresso.
+     */
+    public void recordFloodingSession() {
+        floodingSessions.increment();
+    }
+}
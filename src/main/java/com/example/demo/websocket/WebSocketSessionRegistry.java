@@ -0,0 +1,205 @@
+package com.example.demo.websocket;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Registro delle sessioni WebSocket attive, una per giocatore.
+ * Una nuova connessione dello stesso giocatore sostituisce la precedente; la chiusura di
+ * una sessione già sostituita non rimuove quella nuova.
+ *
+ * <p>Le sessioni registrate sono quelle con il buffer di invio, così che ogni invio passi
+ * dallo stesso buffer della sessione.</p>
+ *
+ * <p>Ogni registrazione viene pubblicata anche nella {@link SessionDirectory} con l'ID di
+ * questo nodo: un giocatore risulta connesso se ha una sessione locale o su un altro nodo.</p>
+ *
+ * <p>Le sessioni sono indicizzate per ID numerico in una {@link ConcurrentLongMap}: l'ID
+ * ricevuto come stringa viene letto senza allocazioni, e le ricerche non creano chiavi.
+ * Gli ID non numerici, che il token di accesso non produce ma i client interni possono
+ * usare, sono in una mappa separata per stringa.</p>
+ */
+@Component
+public class WebSocketSessionRegistry implements PlayerPresence {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    // Valore di playerKey per gli ID non numerici
+    static final long NO_KEY = -1;
+
+    // Cifre decimali che stanno sicuramente in un long
+    private static final int MAX_KEY_DIGITS = 18;
+
+    private static final int EXPECTED_SESSIONS = 1 << 16;
+
+    // Mappa delle sessioni attive, associando l'ID numerico del giocatore alla sessione WebSocket
+    private final ConcurrentLongMap<WebSocketSession> activeSessions = new ConcurrentLongMap<>(EXPECTED_SESSIONS);
+
+    // Sessioni dei giocatori con ID non numerico
+    private final ConcurrentHashMap<String, WebSocketSession> namedSessions = new ConcurrentHashMap<>();
+
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final SessionDirectory sessionDirectory;
+
+    private final String nodeId;
+
+    /**
+     * Costruttore con iniezione delle dipendenze.
+     *
+     * @param sessionDirectory Directory delle sessioni condivisa tra i nodi.
+     * @param sessionConfig    Configurazione delle sessioni WebSocket.
+     */
+    public WebSocketSessionRegistry(SessionDirectory sessionDirectory, WebSocketSessionConfig sessionConfig) {
+        this.sessionDirectory = sessionDirectory;
+        this.nodeId = sessionConfig.getNodeId();
+    }
+
+    /**
+     * Registra la sessione di un giocatore.
+     *
+     * @param playerId ID del giocatore.
+     * @param session  Sessione aperta.
+     * @return La sessione sostituita, o null se il giocatore non era connesso.
+     */
+    public WebSocketSession register(String playerId, WebSocketSession session) {
+        long key = playerKey(playerId);
+        WebSocketSession previous = key == NO_KEY
+                ? namedSessions.put(playerId, session)
+                : activeSessions.put(key, session);
+        sessionDirectory.register(playerId, nodeId);
+        listeners.forEach(listener -> notify(listener, playerId, true));
+        return previous;
+    }
+
+    /**
+     * Rimuove la sessione di un giocatore, se è ancora quella registrata.
+     *
+     * @param playerId ID del giocatore.
+     * @param session  Sessione chiusa.
+     * @return true se la sessione era registrata e il giocatore risulta ora disconnesso.
+     */
+    public boolean unregister(String playerId, WebSocketSession session) {
+        long key = playerKey(playerId);
+        boolean removed = key == NO_KEY
+                ? playerId != null && namedSessions.remove(playerId, session)
+                : activeSessions.remove(key, session);
+        if (!removed) {
+            return false;
+        }
+        sessionDirectory.unregister(playerId, nodeId);
+        listeners.forEach(listener -> notify(listener, playerId, false));
+        return true;
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return La sessione del giocatore, o null se non è connesso.
+     */
+    public WebSocketSession find(String playerId) {
+        long key = playerKey(playerId);
+        if (key == NO_KEY) {
+            return playerId == null ? null : namedSessions.get(playerId);
+        }
+        return activeSessions.get(key);
+    }
+
+    /**
+     * @param playerId ID numerico del giocatore.
+     * @return La sessione del giocatore, o null se non è connesso.
+     */
+    public WebSocketSession find(long playerId) {
+        return activeSessions.get(playerId);
+    }
+
+    /**
+     * @param playerId ID del giocatore.
+     * @return Nodo a cui è connesso il giocatore, se non è questo, o null.
+     */
+    public String findRemoteNode(String playerId) {
+        String node = sessionDirectory.locate(playerId);
+        return node == null || node.equals(nodeId) ? null : node;
+    }
+
+    /**
+     * @return ID di questo nodo.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return Numero di sessioni registrate.
+     */
+    public int size() {
+        return activeSessions.size() + namedSessions.size();
+    }
+
+    /**
+     * @return Byte in attesa di invio su tutte le sessioni registrate.
+     */
+    public long bufferedBytes() {
+        long[] total = new long[1];
+        Consumer<WebSocketSession> addBuffered = session -> {
+            if (session instanceof ConcurrentWebSocketSessionDecorator buffered) {
+                total[0] += buffered.getBufferSize();
+            }
+        };
+        activeSessions.forEach(addBuffered);
+        namedSessions.values().forEach(addBuffered);
+        return total[0];
+    }
+
+    @Override
+    public boolean isOnline(String playerId) {
+        WebSocketSession session = find(playerId);
+        return session != null && session.isOpen() || findRemoteNode(playerId) != null;
+    }
+
+    @Override
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Legge l'ID decimale non negativo di un giocatore senza allocazioni né eccezioni.
+     *
+     * @param playerId ID del giocatore.
+     * @return L'ID numerico, o {@link #NO_KEY} se l'ID non è numerico.
+     */
+    static long playerKey(String playerId) {
+        if (playerId == null || playerId.isEmpty() || playerId.length() > MAX_KEY_DIGITS) {
+            return NO_KEY;
+        }
+        long key = 0;
+        for (int i = 0; i < playerId.length(); i++) {
+            int digit = playerId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NO_KEY;
+            }
+            key = key * 10 + digit;
+        }
+        return key;
+    }
+
+    private void notify(PresenceListener listener, String playerId, boolean connected) {
+        try {
+            if (connected) {
+                listener.onConnected(playerId);
+            } else {
+                listener.onDisconnected(playerId);
+            }
+        } catch (Exception e) {
+            logger.error("Presence listener failed for player [{}]: {}", playerId, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * Formato dei messaggi di una connessione WebSocket, scelto dal client all'handshake tramite
+ * il sottoprotocollo ({@code Sec-WebSocket-Protocol}). Senza sottoprotocollo la connessione
+ * usa JSON testuale, leggibile dai client di debug.
+ */
+public enum WireFormat {
+
+    /**
+     * Messaggi di testo JSON.
+     */
+    JSON("matchmaking.v1.json"),
+
+    /**
+     * Frame binari compatti, vedi {@link BinaryFrameCodec}.
+     */
+    BINARY("matchmaking.v1.binary");
+
+    // Attributo di sessione con il formato negoziato
+    static final String ATTRIBUTE = "wireFormat";
+
+    private final String subProtocol;
+
+    WireFormat(String subProtocol) {
+        this.subProtocol = subProtocol;
+    }
+
+    /**
+     * @return Nome del sottoprotocollo WebSocket corrispondente.
+     */
+    public String getSubProtocol() {
+        return subProtocol;
+    }
+
+    /**
+     * @return I sottoprotocolli supportati, nell'ordine di preferenza del server.
+     */
+    public static List<String> subProtocols() {
+        return List.of(BINARY.subProtocol, JSON.subProtocol);
+    }
+
+    /**
+     * @param subProtocol Sottoprotocollo accettato all'handshake (può essere null).
+     * @return Il formato corrispondente, JSON se il sottoprotocollo è assente o sconosciuto.
+     */
+    public static WireFormat fromSubProtocol(String subProtocol) {
+        return BINARY.subProtocol.equals(subProtocol) ? BINARY : JSON;
+    }
+
+    /**
+     * @param session Sessione WebSocket.
+     * @return Il formato negoziato dalla sessione, JSON se non è stato registrato.
+     */
+    public static WireFormat of(WebSocketSession session) {
+        Object format = session.getAttributes().get(ATTRIBUTE);
+        return format instanceof WireFormat wireFormat ? wireFormat : JSON;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import com.example.demo.dtos.QueueStatusResponse;
+import com.example.demo.dtos.SocketCommand;
+import com.example.demo.websocket.BinaryFrameCodec;
+import com.example.demo.websocket.FrameType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test per la codifica dei frame del protocollo binario.
+ */
+public class BinaryFrameCodecTest {
+
+    private final BinaryFrameCodec codec = new BinaryFrameCodec();
+
+    /**
+     * Testa la decodifica di un comando join, con requestId e regione assente.
+     */
+    @Test
+    public void testDecodeJoin() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put((byte) BinaryFrameCodec.VERSION).put((byte) FrameType.JOIN.getCode());
+        putString(frame, "r1");
+        putString(frame, "ranked");
+        frame.putShort((short) 0xFFFF);
+        frame.flip();
+
+        SocketCommand command = codec.decodeCommand(frame);
+
+        assertEquals("join", command.type());
+        assertEquals("r1", command.requestId());
+        assertEquals("ranked", command.mode());
+        assertNull(command.region());
+    }
+
+    /**
+     * Testa il rifiuto di frame troncati, di un'altra versione o che non sono comandi.
+     */
+    @Test
+    public void testDecodeRejectsInvalidFrames() {
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decodeCommand(ByteBuffer.wrap(new byte[]{BinaryFrameCodec.VERSION, 0x04, 0, 5, 'a'})));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decodeCommand(ByteBuffer.wrap(new byte[]{9, 0x02, 0, 0})));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decodeCommand(ByteBuffer.wrap(new byte[]{BinaryFrameCodec.VERSION, 0x20, 0, 0})));
+    }
+
+    /**
+     * Testa la codifica dello stato in coda e di una notifica con caratteri non ASCII.
+     */
+    @Test
+    public void testEncodeReplies() {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", "status");
+        reply.put("requestId", "r2");
+        reply.put("data", new QueueStatusResponse("7", "ranked/eu", 300, 4200L));
+
+        ByteBuffer status = codec.encodeReply(reply).getPayload();
+        assertEquals(BinaryFrameCodec.VERSION, status.get());
+        assertEquals(FrameType.QUEUE_STATUS.getCode(), status.get());
+        assertEquals("r2", getString(status));
+        assertEquals("ranked/eu", getString(status));
+        assertEquals(300, status.getInt());
+        assertEquals(4200L, status.getLong());
+        assertEquals(0, status.remaining());
+
+        ByteBuffer notification = codec.encodeNotification("Partita trovata 🎮").getPayload();
+        notification.position(2);
+        assertNull(getString(notification));
+        assertEquals("Partita trovata 🎮", getString(notification));
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == 0xFFFF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo;
+
+import com.example.demo.websocket.ConcurrentLongMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la mappa con chiavi long usata dal registro delle sessioni.
+ */
+public class ConcurrentLongMapTest {
+
+    @Test
+    public void testPutReplacesAndConditionalRemove() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(0);
+        assertNull(map.put(42, "first"));
+        assertEquals("first", map.put(42, "second"));
+        assertEquals("second", map.get(42));
+
+        // Una sessione già sostituita non rimuove quella nuova
+        assertFalse(map.remove(42, "first"));
+        assertTrue(map.remove(42, "second"));
+        assertNull(map.get(42));
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * Confronta la mappa con una HashMap su una sequenza casuale di inserimenti e rimozioni,
+     * abbastanza lunga da ridimensionare le tabelle e compattare molte sequenze di scansione.
+     */
+    @Test
+    public void testMatchesHashMapAfterRandomOperations() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(16);
+        Map<Long, Long> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(20_000);
+            Long value = expected.get(key);
+            if (value != null && random.nextBoolean()) {
+                assertTrue(map.remove(key, value));
+                expected.remove(key);
+            } else {
+                Long next = (long) i;
+                assertEquals(value, map.put(key, next));
+                expected.put(key, next);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 20_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        AtomicInteger visited = new AtomicInteger();
+        map.forEach(value -> visited.incrementAndGet());
+        assertEquals(expected.size(), visited.get());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.FileMatchmakingQueueBackend;
+import com.example.demo.matchmaking.Matchmaker;
+import com.example.demo.matchmaking.QueueKey;
+import com.example.demo.matchmaking.QueuedPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'archivio delle code condiviso su file.
+ */
+public class FileMatchmakingQueueBackendTest {
+
+    private static final QueueKey KEY = QueueKey.of("default", "global");
+
+    /**
+     * Un giocatore accodato su un'istanza risulta in coda anche sulle altre.
+     */
+    @Test
+    public void testJoinIsVisibleToOtherInstances(@TempDir Path directory) {
+        FileMatchmakingQueueBackend first = new FileMatchmakingQueueBackend(directory);
+        FileMatchmakingQueueBackend second = new FileMatchmakingQueueBackend(directory);
+
+        assertTrue(first.join(KEY, new QueuedPlayer("player1", 1000)));
+
+        assertEquals(KEY, second.queueOf("player1"));
+        assertFalse(second.join(KEY, new QueuedPlayer("player1", 1000)));
+        assertTrue(second.leave("player1"));
+        assertNull(first.queueOf("player1"));
+    }
+
+    /**
+     * Due istanze che accoppiano la stessa coda non assegnano mai un giocatore a due match.
+     */
+    @Test
+    public void testPlayerIsMatchedOnlyOnceAcrossInstances(@TempDir Path directory) {
+        FileMatchmakingQueueBackend first = new FileMatchmakingQueueBackend(directory);
+        FileMatchmakingQueueBackend second = new FileMatchmakingQueueBackend(directory);
+        List<String> matched = new ArrayList<>();
+        Matchmaker.MatchListener listener = (a, b) -> {
+            matched.add(a.getPlayerId());
+            matched.add(b.getPlayerId());
+        };
+        Matchmaker firstMatcher = new Matchmaker(KEY, first, 200, 500, listener);
+        Matchmaker secondMatcher = new Matchmaker(KEY, second, 200, 500, listener);
+
+        for (int i = 0; i < 10; i++) {
+            (i % 2 == 0 ? first : second).join(KEY, new QueuedPlayer("player" + i, 1000 + i));
+        }
+        firstMatcher.tick();
+        secondMatcher.tick();
+
+        assertEquals(10, matched.size());
+        assertEquals(10, matched.stream().distinct().count());
+        assertEquals(0, first.size(KEY));
+    }
+
+    /**
+     * Il log viene compattato solo quando anche l'istanza rimasta indietro lo ha letto;
+     * dopo la compattazione tutte le istanze, anche quelle nuove, vedono le stesse code.
+     */
+    @Test
+    public void testLogIsCompactedOnceEveryInstanceHasReadIt(@TempDir Path directory) throws Exception {
+        Path log = directory.resolve("queue.log");
+        try (FileMatchmakingQueueBackend first = new FileMatchmakingQueueBackend(directory, 256);
+             FileMatchmakingQueueBackend second = new FileMatchmakingQueueBackend(directory, 256)) {
+            for (int i = 0; i < 10; i++) {
+                first.join(KEY, new QueuedPlayer("player" + i, 1000 + i));
+            }
+            for (int i = 0; i < 9; i++) {
+                first.leave("player" + i);
+            }
+            long uncompacted = Files.size(log);
+            assertTrue(uncompacted > 256);
+
+            // La seconda istanza legge il log per ultima e lo compatta
+            assertEquals(1, second.size(KEY));
+            assertTrue(Files.size(log) < uncompacted);
+
+            assertEquals(KEY, first.queueOf("player9"));
+            try (FileMatchmakingQueueBackend third = new FileMatchmakingQueueBackend(directory, 256)) {
+                assertEquals(1, third.size(KEY));
+                assertEquals(KEY, third.queueOf("player9"));
+            }
+            assertTrue(second.leave("player9"));
+            assertNull(first.queueOf("player9"));
+            assertEquals(0, first.size(KEY));
+        }
+    }
+
+    /**
+     * Un'istanza ferma blocca la compattazione finché resta aperta, ma non dopo la chiusura.
+     */
+    @Test
+    public void testClosedInstanceDoesNotBlockCompaction(@TempDir Path directory) throws Exception {
+        Path log = directory.resolve("queue.log");
+        try (FileMatchmakingQueueBackend first = new FileMatchmakingQueueBackend(directory, 256)) {
+            FileMatchmakingQueueBackend idle = new FileMatchmakingQueueBackend(directory, 256);
+            for (int i = 0; i < 10; i++) {
+                first.join(KEY, new QueuedPlayer("player" + i, 1000 + i));
+                first.leave("player" + i);
+            }
+            long uncompacted = Files.size(log);
+            assertTrue(uncompacted > 256);
+
+            idle.close();
+            first.join(KEY, new QueuedPlayer("player10", 1010));
+
+            assertTrue(Files.size(log) < uncompacted);
+            assertEquals(1, first.size(KEY));
+        }
+    }
+
+    /**
+     * Un log più lungo di un blocco di lettura viene riletto per intero da una nuova istanza.
+     */
+    @Test
+    public void testLogLongerThanReadChunkIsReplayed(@TempDir Path directory) throws Exception {
+        try (FileMatchmakingQueueBackend first = new FileMatchmakingQueueBackend(directory)) {
+            for (int i = 0; i < 3000; i++) {
+                first.join(KEY, new QueuedPlayer("player" + i, 1000 + i % 500));
+            }
+            assertTrue(Files.size(directory.resolve("queue.log")) > 64 * 1024);
+
+            try (FileMatchmakingQueueBackend second = new FileMatchmakingQueueBackend(directory)) {
+                assertEquals(3000, second.size(KEY));
+                assertEquals(KEY, second.queueOf("player2999"));
+            }
+        }
+    }
+}
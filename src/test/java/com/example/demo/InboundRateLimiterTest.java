@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.websocket.InboundRateLimiter;
+import com.example.demo.websocket.InboundRateLimiter.Verdict;
+import com.example.demo.websocket.WebSocketMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test per i limiti sui messaggi ricevuti dalle connessioni WebSocket.
+ */
+public class InboundRateLimiterTest {
+
+    // Limite per giocatore molto più basso di quello per sessione
+    private static final int PLAYER_MESSAGES = 5;
+
+    private InboundRateLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        WebSocketSessionConfig config = mock(WebSocketSessionConfig.class);
+        when(config.getInboundMessagesPerSecond()).thenReturn(100L);
+        when(config.getInboundBytesPerSecond()).thenReturn(1_000_000L);
+        when(config.getInboundPlayerMessagesPerSecond()).thenReturn((long) PLAYER_MESSAGES);
+        when(config.getInboundPlayerBytesPerSecond()).thenReturn(1_000_000L);
+        when(config.getInboundBurstMs()).thenReturn(1000L);
+        when(config.getInboundWarnAfter()).thenReturn(5L);
+        when(config.getInboundCloseAfter()).thenReturn(10L);
+        limiter = new InboundRateLimiter(mock(WebSocketMetrics.class), config);
+    }
+
+    /**
+     * La pulizia non rimuove i bucket di un giocatore ancora connesso, anche se pieni:
+     * una seconda connessione condivide lo stesso limite per giocatore invece di riceverne
+     * uno nuovo.
+     */
+    @Test
+    public void testSweepKeepsBucketsOfConnectedPlayer() {
+        WebSocketSession first = session();
+        limiter.attach(first, "42");
+        limiter.sweep();
+
+        WebSocketSession second = session();
+        limiter.attach(second, "42");
+        for (int i = 0; i < PLAYER_MESSAGES; i++) {
+            assertEquals(Verdict.ACCEPT, limiter.check(first, 10), "message " + i);
+        }
+
+        assertEquals(Verdict.DROP, limiter.check(second, 10));
+    }
+
+    /**
+     * Dopo la chiusura di tutte le sessioni i bucket pieni del giocatore vengono rimossi:
+     * una nuova connessione ne riceve di nuovi, con il limite intero.
+     */
+    @Test
+    public void testSweepRemovesBucketsOfDisconnectedPlayer() {
+        WebSocketSession first = session();
+        limiter.attach(first, "42");
+        limiter.detach(first);
+        limiter.detach(first);
+        limiter.sweep();
+
+        WebSocketSession second = session();
+        limiter.attach(second, "42");
+        WebSocketSession third = session();
+        limiter.attach(third, "42");
+        for (int i = 0; i < PLAYER_MESSAGES; i++) {
+            assertEquals(Verdict.ACCEPT, limiter.check(second, 10), "message " + i);
+        }
+
+        // La seconda chiusura della stessa sessione non ha scollegato le sessioni successive
+        assertEquals(Verdict.DROP, limiter.check(third, 10));
+    }
+
+    private static WebSocketSession session() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getAttributes()).thenReturn(new ConcurrentHashMap<>());
+        return session;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.Match;
+import com.example.demo.matchmaking.MatchRegistry;
+import com.example.demo.matchmaking.QueueKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test per il controller MatchController.
+ * Verifica il ciclo di vita di un match: conferma, avvio e risultato.
+ */
+@SpringBootTest(properties = {
+        "server.port=9090" // Esegui l'applicazione di test su una porta diversa
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class MatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MatchRegistry matchRegistry;
+
+    /**
+     * Testa il ciclo di vita completo di un match.
+     * Verifica che il match passi da FOUND a READY, IN_PROGRESS e FINISHED.
+     */
+    @Test
+    public void testMatchLifecycle() throws Exception {
+        // Arrange
+        Match match = matchRegistry.create(QueueKey.of("ranked", "eu"), List.of("alice"), List.of("bob"));
+        String matchId = match.getMatchId();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/matches/{matchId}/ready", matchId).param("playerId", "alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("FOUND"));
+        mockMvc.perform(post("/api/matches/{matchId}/ready", matchId).param("playerId", "bob"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("READY"));
+        mockMvc.perform(post("/api/matches/{matchId}/start", matchId).param("playerId", "alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("IN_PROGRESS"));
+        mockMvc.perform(post("/api/matches/{matchId}/result", matchId)
+                        .param("playerId", "bob")
+                        .param("winningTeam", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("FINISHED"))
+                .andExpect(jsonPath("$.winningTeam").value(2));
+    }
+
+    /**
+     * Testa l'avvio di un match senza la conferma di tutti i giocatori.
+     * Verifica che l'endpoint /start restituisca un errore di richiesta.
+     */
+    @Test
+    public void testStartMatchNotReady() throws Exception {
+        // Arrange
+        Match match = matchRegistry.create(QueueKey.of("ranked", "eu"), List.of("carol"), List.of("dave"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/matches/{matchId}/start", match.getMatchId()).param("playerId", "carol"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Testa l'avvio e il risultato di un match richiesti da chi non vi partecipa.
+     * Verifica che gli endpoint /start e /result restituiscano un errore di richiesta
+     * senza cambiare lo stato del match.
+     */
+    @Test
+    public void testNonParticipantCannotStartOrReport() throws Exception {
+        // Arrange
+        Match match = matchRegistry.create(QueueKey.of("ranked", "eu"), List.of("erin"), List.of("frank"));
+        String matchId = match.getMatchId();
+        mockMvc.perform(post("/api/matches/{matchId}/ready", matchId).param("playerId", "erin"));
+        mockMvc.perform(post("/api/matches/{matchId}/ready", matchId).param("playerId", "frank"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/matches/{matchId}/start", matchId).param("playerId", "mallory"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Player mallory is not part of match " + matchId + "."));
+        mockMvc.perform(post("/api/matches/{matchId}/start", matchId).param("playerId", "erin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("IN_PROGRESS"));
+        mockMvc.perform(post("/api/matches/{matchId}/result", matchId)
+                        .param("playerId", "mallory")
+                        .param("winningTeam", "1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/matches/{matchId}", matchId))
+                .andExpect(jsonPath("$.state").value("IN_PROGRESS"));
+    }
+
+    /**
+     * Testa la consultazione di un match inesistente.
+     * Verifica che l'endpoint restituisca 404.
+     */
+    @Test
+    public void testGetMatchNotFound() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/matches/{matchId}", "unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Match not found."));
+    }
+}
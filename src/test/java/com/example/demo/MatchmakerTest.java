@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.InMemoryMatchmakingQueueBackend;
+import com.example.demo.matchmaking.Matchmaker;
+import com.example.demo.matchmaking.QueueKey;
+import com.example.demo.matchmaking.QueuedPlayer;
+import com.example.demo.matchmaking.SearchWidening;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test per il matcher 1 contro 1 di uno shard.
+ */
+public class MatchmakerTest {
+
+    private static final QueueKey KEY = QueueKey.of("ranked", "eu");
+
+    /**
+     * Testa che un giocatore con la finestra già allargata non venga accoppiato a un
+     * avversario la cui finestra non copre ancora la differenza di rating, finché anche
+     * quella dell'avversario non si allarga.
+     */
+    @Test
+    public void testMatchRequiresBothWindows() {
+        // Finestra di 100 all'ingresso, +100 ogni secondo fino a 500
+        InMemoryMatchmakingQueueBackend backend = new InMemoryMatchmakingQueueBackend();
+        List<String> matches = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(KEY, backend, new SearchWidening(100, 100, 500, 1000), 10, 100,
+                (first, second) -> matches.add(first.getPlayerId() + "-" + second.getPlayerId()));
+        long now = System.currentTimeMillis();
+        backend.join(KEY, new QueuedPlayer("veteran", 1000, now - 10_000, System.nanoTime()));
+        backend.join(KEY, new QueuedPlayer("newcomer", 1300, now, System.nanoTime()));
+
+        // La differenza di 300 rientra nella finestra del veterano (500), non in quella del nuovo arrivato
+        matchmaker.tick(now);
+        assertTrue(matches.isEmpty());
+
+        for (int second = 1; second <= 3 && matches.isEmpty(); second++) {
+            matchmaker.tick(now + second * 1000L + 10);
+        }
+        assertEquals(List.of("veteran-newcomer"), matches);
+    }
+}
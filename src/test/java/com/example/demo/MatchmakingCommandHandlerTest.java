@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import com.example.demo.websocket.CommandRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test per i comandi di matchmaking ricevuti sulla connessione WebSocket.
+ * Verifica, tramite il router, le risposte di errore e il routing dei comandi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class MatchmakingCommandHandlerTest {
+
+    @Autowired
+    private CommandRouter commandHandler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Testa un comando non in formato JSON.
+     * Verifica che venga restituito un errore 400.
+     */
+    @Test
+    public void testMalformedCommand() throws Exception {
+        JsonNode reply = objectMapper.readTree(commandHandler.handle("1", "join"));
+
+        assertEquals("error", reply.get("type").asText());
+        assertEquals(400, reply.get("code").asInt());
+    }
+
+    /**
+     * Testa un comando di tipo sconosciuto.
+     * Verifica che la risposta riporti il requestId e un errore 400.
+     */
+    @Test
+    public void testUnknownCommand() throws Exception {
+        JsonNode reply = objectMapper.readTree(commandHandler.handle("1", "{\"type\":\"dance\",\"requestId\":\"r1\"}"));
+
+        assertEquals("dance", reply.get("type").asText());
+        assertEquals("r1", reply.get("requestId").asText());
+        assertEquals(400, reply.get("code").asInt());
+    }
+
+    /**
+     * Testa lo stato di un giocatore che non è in coda.
+     * Verifica che venga restituito un errore 404.
+     */
+    @Test
+    public void testStatusNotInQueue() throws Exception {
+        JsonNode reply = objectMapper.readTree(commandHandler.handle("ghost", "{\"type\":\"status\"}"));
+
+        assertEquals(404, reply.get("code").asInt());
+        assertFalse(reply.has("data"));
+    }
+
+    /**
+     * Testa la conferma di un match inesistente.
+     * Verifica che venga restituito un errore 404.
+     */
+    @Test
+    public void testAcceptUnknownMatch() throws Exception {
+        JsonNode reply = objectMapper.readTree(
+                commandHandler.handle("1", "{\"type\":\"accept-match\",\"matchId\":\"missing\"}"));
+
+        assertEquals("accept-match", reply.get("type").asText());
+        assertEquals("Match not found.", reply.get("error").asText());
+    }
+}
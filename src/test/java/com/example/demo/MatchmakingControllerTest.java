@@ -1,5 +1,10 @@
 package com.example.demo;
 
+import com.example.demo.matchmaking.Match;
+import com.example.demo.matchmaking.MatchRegistry;
+import com.example.demo.model.User;
+import com.example.demo.service.UserService;
+import com.example.demo.websocket.WebSocketSessionRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +14,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.socket.WebSocketSession;
 
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -32,6 +46,15 @@ public class MatchmakingControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Autowired
+    private MatchRegistry matchRegistry;
+
     /**
      * Testa l'aggiunta di un giocatore alla coda di matchmaking con successo.
      * Verifica che l'endpoint /join risponda correttamente.
@@ -79,6 +102,110 @@ public class MatchmakingControllerTest {
                 .andExpect(jsonPath("$.error").value("Required request parameter 'playerId' for method parameter type String is not present"));
     }
 
+    /**
+     * Testa l'ingresso in una coda di modalità e regione specifiche.
+     * Verifica che l'endpoint /join accetti uno shard configurato.
+     */
+    @Test
+    public void testJoinQueueWithModeAndRegion() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/matchmaking/join")
+                        .param("playerId", "rankedPlayer")
+                        .param("mode", "ranked")
+                        .param("region", "eu")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("You have been added to the matchmaking queue."));
+    }
+
+    /**
+     * Testa il comportamento quando la modalità richiesta non è configurata.
+     * Verifica che l'endpoint /join restituisca un errore 400.
+     */
+    @Test
+    public void testJoinQueueUnknownMode() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/matchmaking/join")
+                        .param("playerId", "player456")
+                        .param("mode", "unknown")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown matchmaking queue: unknown/global"));
+    }
+
+    /**
+     * Testa la consultazione dello stato di un giocatore in coda.
+     * Verifica che l'endpoint /status restituisca coda, finestra di rating e tempo di attesa.
+     */
+    @Test
+    public void testQueueStatus() throws Exception {
+        // Arrange
+        mockMvc.perform(post("/api/matchmaking/join")
+                        .param("playerId", "statusPlayer")
+                        .param("mode", "ranked")
+                        .param("region", "na")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/matchmaking/status")
+                        .param("playerId", "statusPlayer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queue").value("ranked/na"))
+                .andExpect(jsonPath("$.ratingWindow").value(200))
+                .andExpect(jsonPath("$.waitedMs").isNumber());
+    }
+
+    /**
+     * Testa la consultazione dello stato di un giocatore non in coda.
+     * Verifica che l'endpoint /status restituisca un errore 404.
+     */
+    @Test
+    public void testQueueStatusNotInQueue() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/matchmaking/status")
+                        .param("playerId", "unknownPlayer"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("You are not in the matchmaking queue."));
+    }
+
+    /**
+     * Testa l'ingresso e l'uscita di un party dalla coda a squadre.
+     * Verifica che gli endpoint /party/join e /party/leave rispondano correttamente.
+     */
+    @Test
+    public void testJoinAndLeavePartyQueue() throws Exception {
+        // Arrange
+        mockMvc.perform(post("/api/matchmaking/party/join")
+                        .param("playerIds", "partyPlayer1", "partyPlayer2")
+                        .param("mode", "ranked")
+                        .param("region", "na")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Your party has been added to the matchmaking queue."));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/matchmaking/party/leave")
+                        .param("playerId", "partyPlayer2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Your party has been removed from the matchmaking queue."));
+    }
+
+    /**
+     * Testa il comportamento quando un party supera la dimensione massima.
+     * Verifica che l'endpoint /party/join restituisca un errore 400.
+     */
+    @Test
+    public void testJoinPartyQueueTooLarge() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/matchmaking/party/join")
+                        .param("playerIds", "p1", "p2", "p3", "p4", "p5", "p6")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Party size must be between 1 and 5."));
+    }
+
     /**
      * Testa la rimozione di un giocatore dalla coda di matchmaking con successo.
      * Verifica che l'endpoint /leave risponda correttamente.
@@ -125,4 +252,61 @@ public class MatchmakingControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.error").value("Required request parameter 'playerId' for method parameter type String is not present"));
     }
+
+    /**
+     * Testa l'accoppiamento di due giocatori entrati in coda con lo username.
+     * Verifica che, con il controllo di presenza attivo, vengano riconosciuti connessi
+     * tramite il loro ID numerico e accoppiati tra loro.
+     */
+    @Test
+    public void testJoinQueueByUsernameMatchesConnectedPlayers() throws Exception {
+        // Arrange
+        User alice = registerConnectedUser("queueAlice");
+        User bob = registerConnectedUser("queueBob");
+
+        try {
+            // Act
+            for (User user : new User[]{alice, bob}) {
+                mockMvc.perform(post("/api/matchmaking/join")
+                                .param("playerId", user.getUsername())
+                                .param("mode", "default")
+                                .param("region", "eu")
+                                .contentType(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.message").value("You have been added to the matchmaking queue."));
+            }
+
+            // Assert
+            String aliceId = alice.getId().toString();
+            Optional<Match> match = Optional.empty();
+            for (int attempt = 0; attempt < 100 && match.isEmpty(); attempt++) {
+                Thread.sleep(50);
+                match = matchRegistry.findActiveByPlayer(aliceId);
+            }
+            assertTrue(match.isPresent(), "players queued by username were never matched");
+            assertEquals(2, match.get().getPlayers().size());
+            assertTrue(match.get().getPlayers().contains(bob.getId().toString()));
+        } finally {
+            disconnect(alice);
+            disconnect(bob);
+        }
+    }
+
+    private User registerConnectedUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("password123");
+        user.setEmail(username + "@example.com");
+        User saved = userService.registerUser(user);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        sessionRegistry.register(saved.getId().toString(), session);
+        return saved;
+    }
+
+    private void disconnect(User user) {
+        String playerId = user.getId().toString();
+        sessionRegistry.unregister(playerId, sessionRegistry.find(playerId));
+    }
 }
@@ -0,0 +1,153 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.InMemoryMatchmakingQueueBackend;
+import com.example.demo.matchmaking.JournaledMatchmakingQueueBackend;
+import com.example.demo.matchmaking.MatchmakingJournal;
+import com.example.demo.matchmaking.QueueKey;
+import com.example.demo.matchmaking.QueuedPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il journal su disco delle code di matchmaking.
+ */
+public class MatchmakingJournalTest {
+
+    private static final QueueKey KEY = QueueKey.of("ranked", "eu");
+
+    /**
+     * Dopo un riavvio senza chiusura ordinata restano in coda solo i giocatori ancora in attesa,
+     * con il loro istante di ingresso originale.
+     */
+    @Test
+    public void testQueueIsRebuiltAfterRestart(@TempDir Path directory) throws Exception {
+        try (JournaledMatchmakingQueueBackend backend = open(directory)) {
+            QueuedPlayer waiting = new QueuedPlayer("waiting", 1200, 1_000L, System.nanoTime());
+            backend.join(KEY, waiting);
+            backend.join(KEY, new QueuedPlayer("left", 1000));
+            backend.join(KEY, new QueuedPlayer("first", 1000));
+            backend.join(KEY, new QueuedPlayer("second", 1000));
+            backend.leave("left");
+            assertTrue(backend.claim(backend.find("first"), backend.find("second")));
+            // Il primo archivio resta aperto, come dopo un crash; si attende solo la sua
+            // preallocazione in background, che altrimenti concorrerebbe con il recupero
+            awaitSpare(directory);
+
+            try (JournaledMatchmakingQueueBackend restarted = open(directory)) {
+                assertEquals(1, restarted.size(KEY));
+                assertEquals(KEY, restarted.queueOf("waiting"));
+                assertEquals(1200, restarted.find("waiting").getRating());
+                assertEquals(1_000L, restarted.find("waiting").getEnqueuedAtMillis());
+                assertNull(restarted.queueOf("left"));
+                assertNull(restarted.queueOf("first"));
+            }
+        }
+    }
+
+    /**
+     * Il passaggio a un nuovo segmento quando quello attivo è pieno, e la compattazione
+     * dei segmenti chiusi nello snapshot, non perdono record.
+     */
+    @Test
+    public void testSegmentRotationKeepsRecords(@TempDir Path directory) {
+        try (JournaledMatchmakingQueueBackend backend = open(directory)) {
+            for (int i = 0; i < 500; i++) {
+                backend.join(KEY, new QueuedPlayer("player" + i, 1000));
+            }
+        }
+
+        try (JournaledMatchmakingQueueBackend restarted = open(directory)) {
+            assertEquals(500, restarted.size(KEY));
+        }
+    }
+
+    /**
+     * Il segmento successivo viene preallocato in background e, alla rotazione, prende il
+     * posto del segmento attivo senza perdere record.
+     */
+    @Test
+    public void testRotationUsesPreallocatedSegment(@TempDir Path directory) throws Exception {
+        try (MatchmakingJournal journal = new MatchmakingJournal(directory, 4096, 0)) {
+            journal.recover();
+            awaitSpare(directory);
+
+            for (int i = 0; i < 200; i++) {
+                journal.appendJoin(KEY, new QueuedPlayer("player" + i, 1000));
+            }
+        }
+
+        try (JournaledMatchmakingQueueBackend restarted = open(directory)) {
+            assertEquals(200, restarted.size(KEY));
+        }
+    }
+
+    /**
+     * Ingressi e uscite concorrenti su code diverse vengono registrati nell'ordine giusto per
+     * ogni giocatore: al riavvio restano in coda esattamente i giocatori non usciti.
+     */
+    @Test
+    public void testConcurrentChangesAreRecoveredPerPlayer(@TempDir Path directory) throws Exception {
+        QueueKey[] keys = {KEY, QueueKey.of("ranked", "na"), QueueKey.of("default", "eu"), QueueKey.of("default", "na")};
+        try (JournaledMatchmakingQueueBackend backend = open(directory)) {
+            Thread[] threads = new Thread[keys.length];
+            for (int t = 0; t < threads.length; t++) {
+                QueueKey key = keys[t];
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        String playerId = key.mode() + "-" + key.region() + "-" + i;
+                        backend.join(key, new QueuedPlayer(playerId, 1000));
+                        if (i % 2 == 0) {
+                            backend.leave(playerId);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        try (JournaledMatchmakingQueueBackend restarted = open(directory)) {
+            for (QueueKey key : keys) {
+                assertEquals(150, restarted.size(key));
+                assertNull(restarted.queueOf(key.mode() + "-" + key.region() + "-0"));
+                assertEquals(key, restarted.queueOf(key.mode() + "-" + key.region() + "-1"));
+            }
+        }
+    }
+
+    /**
+     * Dopo la chiusura il journal non ha più lavoro in background che scriva nella directory.
+     */
+    @Test
+    public void testCloseStopsBackgroundPreallocation(@TempDir Path directory) throws Exception {
+        MatchmakingJournal journal = new MatchmakingJournal(directory, 4096, 0);
+        journal.recover();
+        journal.close();
+        Files.deleteIfExists(directory.resolve("journal-spare.tmp"));
+
+        Thread.sleep(100);
+
+        assertFalse(Files.exists(directory.resolve("journal-spare.tmp")));
+    }
+
+    private static JournaledMatchmakingQueueBackend open(Path directory) {
+        // Segmenti da 4 KB per forzare la rotazione; nessuno snapshot periodico
+        return new JournaledMatchmakingQueueBackend(new InMemoryMatchmakingQueueBackend(),
+                new MatchmakingJournal(directory, 4096, 0));
+    }
+
+    private static void awaitSpare(Path directory) throws InterruptedException {
+        Path spare = directory.resolve("journal-spare.tmp");
+        for (int attempt = 0; attempt < 100 && !Files.exists(spare); attempt++) {
+            Thread.sleep(20);
+        }
+        assertTrue(Files.exists(spare), "next segment was never preallocated");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.PlayerRating;
+import com.example.demo.matchmaking.RatingIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'indice per rating usato dal matchmaking.
+ */
+public class RatingIndexTest {
+
+    @Test
+    public void testFindNearestPicksClosestRating() {
+        RatingIndex index = new RatingIndex();
+        index.add("low", 800);
+        index.add("high", 1150);
+        index.add("player", 1000);
+
+        assertEquals("high", index.findNearest("player", 500));
+    }
+
+    @Test
+    public void testFindNearestPrefersOldestOnTie() {
+        RatingIndex index = new RatingIndex();
+        index.add("older", 1100);
+        index.add("newer", 900);
+        index.add("player", 1000);
+
+        assertEquals("older", index.findNearest("player", 500));
+    }
+
+    @Test
+    public void testFindNearestRespectsMaxGap() {
+        RatingIndex index = new RatingIndex();
+        index.add("far", 1500);
+        index.add("player", 1000);
+
+        assertNull(index.findNearest("player", 200));
+        assertEquals("far", index.findNearest("player", 500));
+    }
+
+    @Test
+    public void testFindNearestSkipsOpponentsWithNarrowerWindow() {
+        RatingIndex index = new RatingIndex();
+        index.add("narrow", 1100);
+        index.add("wide", 800);
+        index.add("player", 1000);
+        Map<String, Integer> windows = Map.of("narrow", 50, "wide", 300);
+
+        assertEquals("wide", index.findNearest("player", 500, windows::get));
+        assertNull(index.findNearest("player", 150, windows::get));
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        RatingIndex index = new RatingIndex();
+        assertTrue(index.add("player", 1000));
+        assertFalse(index.add("player", 1200));
+        assertTrue(index.contains("player"));
+        assertTrue(index.remove("player"));
+        assertFalse(index.remove("player"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testNewPlayerStartsAtDefaultRating() {
+        assertEquals(PlayerRating.DEFAULT_RATING, PlayerRating.of(0, 0));
+        assertTrue(PlayerRating.of(100, 90) > PlayerRating.of(100, 10));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo;
+
+import com.example.demo.websocket.ReplayBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test per il buffer dei messaggi ripetuti alla ripresa della sessione.
+ */
+public class ReplayBufferTest {
+
+    /**
+     * Testa che alla ripresa vengano consegnati, in ordine, solo i messaggi successivi
+     * all'ultimo ricevuto.
+     */
+    @Test
+    public void testReplayAfterLastSequence() {
+        ReplayBuffer buffer = new ReplayBuffer(4, 1_000L);
+        long first = buffer.append("a", sequence -> { });
+        buffer.append("b", sequence -> { });
+        buffer.append("c", sequence -> { });
+
+        List<String> replayed = new ArrayList<>();
+        assertTrue(buffer.replay(first, (sequence, message) -> replayed.add(sequence + ":" + message)));
+        assertEquals(List.of((first + 1) + ":b", (first + 2) + ":c"), replayed);
+
+        // Client già aggiornato: nessun messaggio da ripetere
+        replayed.clear();
+        assertTrue(buffer.replay(buffer.lastSequence(), (sequence, message) -> replayed.add(message)));
+        assertTrue(replayed.isEmpty());
+    }
+
+    /**
+     * Testa che la ripresa fallisca se i messaggi persi sono già usciti dal buffer o se il
+     * sequence non è stato assegnato da questo buffer.
+     */
+    @Test
+    public void testReplayRequiresResyncWhenMessagesAreLost() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 1_000L);
+        long first = buffer.append("a", sequence -> { });
+        buffer.append("b", sequence -> { });
+        buffer.append("c", sequence -> { });
+
+        assertFalse(buffer.replay(first - 1, (sequence, message) -> { }));
+        assertTrue(buffer.replay(first, (sequence, message) -> { }));
+        assertFalse(buffer.replay(buffer.lastSequence() + 1, (sequence, message) -> { }));
+    }
+
+    /**
+     * Testa che la ripresa pubblichi la sessione dopo il replay, o dopo il resync se i
+     * messaggi sono persi, e che un invio concorrente non si inserisca prima del replay.
+     */
+    @Test
+    public void testResumePublishesAfterReplay() throws Exception {
+        ReplayBuffer buffer = new ReplayBuffer(2, 1_000L);
+        long first = buffer.append("a", sequence -> { });
+        buffer.append("b", sequence -> { });
+
+        List<String> delivered = new ArrayList<>();
+        Thread[] sender = new Thread[1];
+        assertTrue(buffer.resume(first, (sequence, message) -> delivered.add(message),
+                () -> delivered.add("resync"),
+                () -> {
+                    // Un invio partito durante la ripresa attende il lock del buffer
+                    sender[0] = new Thread(() -> buffer.append("c", sequence -> delivered.add("c")));
+                    sender[0].start();
+                    delivered.add("published");
+                }));
+        sender[0].join();
+        assertEquals(List.of("b", "published", "c"), delivered);
+
+        // "a" è uscito dal buffer
+        delivered.clear();
+        assertFalse(buffer.resume(first - 1, (sequence, message) -> delivered.add(message),
+                () -> delivered.add("resync"), () -> delivered.add("published")));
+        assertEquals(List.of("resync", "published"), delivered);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import com.example.demo.matchmaking.Party;
+import com.example.demo.matchmaking.TeamAssembler;
+import com.example.demo.matchmaking.TeamMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la composizione delle squadre nel matchmaking a party.
+ */
+public class TeamAssemblerTest {
+
+    /**
+     * Party di dimensioni diverse vengono combinati in due squadre complete e bilanciate.
+     */
+    @Test
+    public void testAssembleBalancedTeams() {
+        TeamAssembler assembler = new TeamAssembler(5, 300);
+        Party anchor = party("anchor", 3, 1000);
+        assembler.add(anchor);
+        assembler.add(party("duo", 2, 1100));
+        assembler.add(party("trio", 3, 1050));
+        assembler.add(party("solo1", 1, 900));
+        assembler.add(party("solo2", 1, 950));
+
+        TeamMatch match = assembler.assemble(anchor);
+
+        assertNotNull(match);
+        assertEquals(5, match.firstTeamMembers().size());
+        assertEquals(5, match.secondTeamMembers().size());
+        assertTrue(match.firstTeam().contains(anchor));
+        // anchor + duo = 5200, trio + solo1 + solo2 = 5000: migliore suddivisione possibile
+        assertEquals(200, match.ratingDifference());
+    }
+
+    /**
+     * Senza abbastanza giocatori compatibili per rating non viene composto alcun match.
+     */
+    @Test
+    public void testAssembleRequiresFullTeams() {
+        TeamAssembler assembler = new TeamAssembler(2, 100);
+        Party anchor = party("anchor", 2, 1000);
+        assembler.add(anchor);
+        assembler.add(party("near", 1, 1050));
+        assembler.add(party("far", 1, 1500));
+
+        assertNull(assembler.assemble(anchor));
+    }
+
+    private static Party party(String id, int size, int rating) {
+        List<String> members = IntStream.range(0, size).mapToObj(i -> id + "-" + i).toList();
+        return new Party(id, members, rating * size);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import com.example.demo.websocket.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test per il token bucket dei limiti in ingresso.
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * Testa che un bucket pieno conceda la raffica configurata e poi si ricarichi al ritmo dato.
+     */
+    @Test
+    public void testBurstThenRefill() {
+        // 10 unità al secondo, raffica di 1 secondo: capacità 10
+        TokenBucket bucket = new TokenBucket(10, SECOND, 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire(1, 0), "acquire " + i);
+        }
+        assertFalse(bucket.tryAcquire(1, 0));
+
+        // Dopo 100 ms si è ricaricata una sola unità
+        assertTrue(bucket.tryAcquire(1, SECOND / 10));
+        assertFalse(bucket.tryAcquire(1, SECOND / 10));
+
+        // Una richiesta oltre le unità disponibili non consuma nulla
+        assertFalse(bucket.tryAcquire(5, SECOND / 5));
+        assertTrue(bucket.tryAcquire(1, SECOND / 5));
+        assertTrue(bucket.isFull(2 * SECOND));
+    }
+
+    /**
+     * Testa che l'addebito oltre la capacità accumuli un debito che si estingue col tempo.
+     */
+    @Test
+    public void testChargeAccumulatesDebt() {
+        TokenBucket strikes = new TokenBucket(1, 60 * SECOND, 0);
+        assertEquals(1, strikes.charge(1, 0));
+        assertEquals(2, strikes.charge(1, 0));
+        assertEquals(3, strikes.charge(1, 0));
+
+        // Un secondo dopo un'infrazione si è estinta
+        assertEquals(3, strikes.charge(1, SECOND));
+        assertFalse(strikes.isFull(SECOND));
+    }
+}
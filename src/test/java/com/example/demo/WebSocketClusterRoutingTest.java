@@ -0,0 +1,145 @@
+package com.example.demo;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.websocket.BinaryFrameCodec;
+import com.example.demo.websocket.CommandRouter;
+import com.example.demo.websocket.InProcessNodeMessageBus;
+import com.example.demo.websocket.InProcessSessionDirectory;
+import com.example.demo.websocket.InboundRateLimiter;
+import com.example.demo.websocket.NodeMessageBus;
+import com.example.demo.websocket.ReplayStore;
+import com.example.demo.websocket.RoomBroadcaster;
+import com.example.demo.websocket.SessionHeartbeat;
+import com.example.demo.websocket.WebSocketMessageHandler;
+import com.example.demo.websocket.WebSocketMetrics;
+import com.example.demo.websocket.WebSocketSessionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test dell'instradamento dei messaggi tra due nodi nella stessa JVM, con la directory delle
+ * sessioni e il canale tra i nodi in memoria.
+ */
+public class WebSocketClusterRoutingTest {
+
+    private InProcessSessionDirectory directory;
+    private NodeMessageBus bus;
+    private Node nodeA;
+    private Node nodeB;
+
+    /**
+     * Nodo dell'applicazione: registro delle sessioni e handler che invia i messaggi.
+     */
+    private record Node(WebSocketSessionRegistry registry, WebSocketMessageHandler handler,
+                        RoomBroadcaster broadcaster) {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = new InProcessSessionDirectory();
+        bus = spy(new InProcessNodeMessageBus());
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (Node node : List.of(nodeA, nodeB)) {
+            node.handler().leaveCluster();
+            node.broadcaster().stop();
+        }
+    }
+
+    /**
+     * Un messaggio per un giocatore connesso all'altro nodo viene inoltrato tramite il canale
+     * e consegnato sulla sua sessione.
+     */
+    @Test
+    public void testMessageReachesSessionOnOtherNode() throws Exception {
+        WebSocketSession session = openSession();
+        nodeB.registry().register("42", session);
+
+        assertTrue(nodeA.registry().isOnline("42"));
+        assertTrue(nodeA.handler().sendMessageToUser("42", "match-found"));
+
+        verify(bus).send("node-b", "42", "match-found");
+        verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("match-found")));
+    }
+
+    /**
+     * Un messaggio per un giocatore connesso allo stesso nodo viene inviato direttamente,
+     * senza passare dal canale tra i nodi.
+     */
+    @Test
+    public void testLocalDeliveryDoesNotUseBus() throws Exception {
+        WebSocketSession session = openSession();
+        nodeA.registry().register("7", session);
+
+        assertTrue(nodeA.handler().sendMessageToUser("7", "match-found"));
+
+        verify(bus, never()).send(anyString(), anyString(), anyString());
+        verify(session).sendMessage(any());
+    }
+
+    /**
+     * Alla disconnessione la voce della directory viene rimossa, ma solo dal nodo che la
+     * possiede: la chiusura della vecchia sessione dopo una riconnessione altrove non la rimuove.
+     */
+    @Test
+    public void testDirectoryEntryIsRemovedOnDisconnect() throws Exception {
+        WebSocketSession first = openSession();
+        nodeB.registry().register("42", first);
+        assertEquals("node-b", directory.locate("42"));
+
+        WebSocketSession second = openSession();
+        nodeA.registry().register("42", second);
+        assertTrue(nodeB.registry().unregister("42", first));
+        assertEquals("node-a", directory.locate("42"));
+
+        assertTrue(nodeA.registry().unregister("42", second));
+        assertNull(directory.locate("42"));
+        assertFalse(nodeB.registry().isOnline("42"));
+        assertFalse(nodeB.handler().sendMessageToUser("42", "match-found"));
+        verify(bus, never()).send(anyString(), anyString(), anyString());
+    }
+
+    private Node node(String nodeId) {
+        WebSocketSessionConfig config = mock(WebSocketSessionConfig.class);
+        when(config.getNodeId()).thenReturn(nodeId);
+        when(config.getReplayCapacity()).thenReturn(16);
+        when(config.getReplayRetentionMs()).thenReturn(60_000L);
+        when(config.getMaxCommandsInFlight()).thenReturn(8);
+        WebSocketMetrics metrics = mock(WebSocketMetrics.class);
+        BinaryFrameCodec frameCodec = new BinaryFrameCodec();
+
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(directory, config);
+        RoomBroadcaster broadcaster = new RoomBroadcaster(registry, metrics, config, frameCodec);
+        WebSocketMessageHandler handler = new WebSocketMessageHandler(registry,
+                new CommandRouter(new ObjectMapper(), metrics, config), config, broadcaster, frameCodec,
+                mock(SessionHeartbeat.class), bus, new ReplayStore(registry, config),
+                mock(InboundRateLimiter.class));
+        handler.joinCluster();
+        return new Node(registry, handler, broadcaster);
+    }
+
+    private static WebSocketSession openSession() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        return session;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.simulation.WebSocketLoadDriver;
+import com.example.demo.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test del generatore di carico WebSocket con pochi client contro il server di test.
+ * Verifica che i client si autentichino all'handshake e ricevano le risposte ai comandi.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class WebSocketLoadDriverTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    /**
+     * Testa una breve prova di carico con 20 client.
+     * Verifica che tutte le connessioni vengano aperte e restino aperte, e che i comandi
+     * ricevano risposta.
+     */
+    @Test
+    public void testSmallLoadRun() throws Exception {
+        // Arrange
+        WebSocketLoadDriver.Settings settings = new WebSocketLoadDriver.Settings(
+                20, 200, 20, 2, 200, "status", 1);
+        WebSocketLoadDriver driver = new WebSocketLoadDriver(settings, URI.create("ws://127.0.0.1:" + port + "/ws"),
+                playerId -> jwtUtil.generateToken(user(playerId)));
+
+        // Act
+        WebSocketLoadDriver.Result result = driver.run();
+
+        // Assert
+        assertEquals(20, result.connected());
+        assertEquals(0, result.connectFailures());
+        assertEquals(0, result.disconnects());
+        assertTrue(result.commandsSent() > 0);
+        assertTrue(result.replies() > 0);
+    }
+
+    private static User user(long playerId) {
+        User user = new User();
+        user.setId(900_000 + playerId);
+        user.setUsername("load-" + playerId);
+        user.setEmail("load-" + playerId + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.matchmaking.InMemoryMatchmakingQueueBackend;
+import com.example.demo.matchmaking.JournaledMatchmakingQueueBackend;
+import com.example.demo.matchmaking.MatchmakingJournal;
+import com.example.demo.matchmaking.MatchmakingQueueBackend;
+import com.example.demo.matchmaking.QueueKey;
+import com.example.demo.matchmaking.QueuedPlayer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del journal su disco nel ciclo join/leave della coda, con 100k giocatori in attesa.
+ * {@code inMemoryJoinLeave} è il riferimento senza journal; {@code journaledJoinLeave}
+ * aggiunge la scrittura dei record nel segmento mappato in memoria.
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.MatchmakingJournalBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchmakingJournalBenchmark {
+
+    private static final QueueKey KEY = QueueKey.of("default", "global");
+
+    @Param({"100000"})
+    private int queueDepth;
+
+    private MatchmakingQueueBackend inMemory;
+    private JournaledMatchmakingQueueBackend journaled;
+    private String[] players;
+    private SplittableRandom random;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        random = new SplittableRandom(42);
+        directory = Files.createTempDirectory("matchmaking-journal-bench");
+        inMemory = new InMemoryMatchmakingQueueBackend();
+        journaled = new JournaledMatchmakingQueueBackend(new InMemoryMatchmakingQueueBackend(),
+                new MatchmakingJournal(directory, 64 * 1024 * 1024, 1000));
+        players = new String[queueDepth];
+        for (int i = 0; i < queueDepth; i++) {
+            players[i] = "player" + i;
+            inMemory.join(KEY, new QueuedPlayer(players[i], 1000));
+            journaled.join(KEY, new QueuedPlayer(players[i], 1000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journaled.close();
+    }
+
+    @Benchmark
+    public boolean inMemoryJoinLeave() {
+        String player = players[random.nextInt(queueDepth)];
+        inMemory.leave(player);
+        return inMemory.join(KEY, new QueuedPlayer(player, 1000));
+    }
+
+    @Benchmark
+    public boolean journaledJoinLeave() {
+        String player = players[random.nextInt(queueDepth)];
+        journaled.leave(player);
+        return journaled.join(KEY, new QueuedPlayer(player, 1000));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MatchmakingJournalBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
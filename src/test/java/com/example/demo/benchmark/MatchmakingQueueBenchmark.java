@@ -0,0 +1,78 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.matchmaking.IndexedQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra la {@link ConcurrentLinkedQueue} usata in origine dal matchmaking e
+ * {@link IndexedQueue}, con code di 1k, 10k e 100k giocatori.
+ * Ogni operazione riproduce il ciclo join/leave del servizio: controllo dei duplicati,
+ * uscita di un giocatore in una posizione casuale e nuovo ingresso in fondo alla coda.
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.MatchmakingQueueBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchmakingQueueBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int queueDepth;
+
+    private ConcurrentLinkedQueue<String> linkedQueue;
+    private IndexedQueue<String> indexedQueue;
+    private String[] players;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new SplittableRandom(42);
+        linkedQueue = new ConcurrentLinkedQueue<>();
+        indexedQueue = new IndexedQueue<>();
+        players = new String[queueDepth];
+        for (int i = 0; i < queueDepth; i++) {
+            players[i] = "player" + i;
+            linkedQueue.add(players[i]);
+            indexedQueue.offer(players[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean concurrentLinkedQueueJoinLeave() {
+        String player = players[random.nextInt(queueDepth)];
+        if (!linkedQueue.contains(player)) {
+            return false;
+        }
+        linkedQueue.remove(player);
+        return linkedQueue.add(player);
+    }
+
+    @Benchmark
+    public boolean indexedQueueJoinLeave() {
+        String player = players[random.nextInt(queueDepth)];
+        if (!indexedQueue.contains(player)) {
+            return false;
+        }
+        indexedQueue.remove(player);
+        return indexedQueue.offer(player);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MatchmakingQueueBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.matchmaking.PlayerRating;
+import com.example.demo.matchmaking.RatingIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark del throughput di accoppiamento con una coda profonda.
+ * Ogni operazione simula l'arrivo di un giocatore: inserimento nell'indice, ricerca
+ * dell'avversario più vicino e rimozione della coppia. Un nuovo giocatore sostituisce
+ * l'avversario accoppiato, così la profondità della coda resta costante.
+ *
+ * <p>{@code scanBaseline} misura lo stesso accoppiamento con una scansione lineare
+ * della coda, come riferimento.</p>
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.RatingIndexBenchmark}</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RatingIndexBenchmark {
+
+    private static final int MAX_GAP = 200;
+
+    @Param({"100000"})
+    private int waitingPlayers;
+
+    private RatingIndex index;
+    private List<int[]> scanQueue;
+    private SplittableRandom random;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new SplittableRandom(42);
+        index = new RatingIndex();
+        scanQueue = new ArrayList<>(waitingPlayers + 1);
+        for (int i = 0; i < waitingPlayers; i++) {
+            int rating = randomRating();
+            index.add(Long.toString(nextId), rating);
+            scanQueue.add(new int[]{(int) nextId, rating});
+            nextId++;
+        }
+    }
+
+    @Benchmark
+    public String pairArrival() {
+        String arrival = Long.toString(nextId++);
+        index.add(arrival, randomRating());
+        String opponent = index.findNearest(arrival, MAX_GAP);
+        if (opponent == null) {
+            return arrival;
+        }
+        index.remove(arrival);
+        index.remove(opponent);
+        index.add(Long.toString(nextId++), randomRating());
+        return opponent;
+    }
+
+    @Benchmark
+    public int scanBaseline() {
+        int rating = randomRating();
+        int best = -1;
+        int bestGap = Integer.MAX_VALUE;
+        for (int i = 0; i < scanQueue.size(); i++) {
+            int gap = Math.abs(scanQueue.get(i)[1] - rating);
+            if (gap < bestGap) {
+                bestGap = gap;
+                best = i;
+            }
+        }
+        if (best < 0 || bestGap > MAX_GAP) {
+            return -1;
+        }
+        int[] opponent = scanQueue.get(best);
+        scanQueue.set(best, new int[]{(int) nextId++, randomRating()});
+        return opponent[0];
+    }
+
+    private int randomRating() {
+        // Distribuzione approssimativamente normale attorno al rating di default
+        double gaussian = (random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5) * 2;
+        int rating = PlayerRating.DEFAULT_RATING + (int) (gaussian * 300);
+        return Math.max(0, Math.min(PlayerRating.MAX_RATING, rating));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RatingIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
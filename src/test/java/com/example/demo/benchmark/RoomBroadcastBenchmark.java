@@ -0,0 +1,207 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.WebSocketSessionConfig;
+import com.example.demo.websocket.BinaryFrameCodec;
+import com.example.demo.websocket.InProcessSessionDirectory;
+import com.example.demo.websocket.RoomBroadcaster;
+import com.example.demo.websocket.WebSocketMetrics;
+import com.example.demo.websocket.WebSocketSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcast di un messaggio a 10k iscritti di una stanza: invio con {@link RoomBroadcaster},
+ * frame condiviso e consegna parallela, contro un ciclo di invii singoli che crea un messaggio
+ * per ogni destinatario. Le sessioni scartano i byte del messaggio, così che il costo misurato
+ * sia quello di codifica e consegna lato server.
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.RoomBroadcastBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoomBroadcastBenchmark {
+
+    private static final String ROOM = "lobby";
+
+    @Param({"10000"})
+    private int subscribers;
+
+    @Param({"2", "4"})
+    private int threads;
+
+    private WebSocketSessionRegistry sessionRegistry;
+    private RoomBroadcaster broadcaster;
+    private String[] players;
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        WebSocketSessionConfig config = new WebSocketSessionConfig();
+        ReflectionTestUtils.setField(config, "broadcastThreads", threads);
+        ReflectionTestUtils.setField(config, "broadcastChunkSize", 256);
+        ReflectionTestUtils.setField(config, "nodeId", "bench");
+        sessionRegistry = new WebSocketSessionRegistry(new InProcessSessionDirectory(), config);
+        broadcaster = new RoomBroadcaster(sessionRegistry,
+                new WebSocketMetrics(new SimpleMeterRegistry(), sessionRegistry), config, new BinaryFrameCodec());
+
+        players = new String[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            players[i] = String.valueOf(i);
+            sessionRegistry.register(players[i], new ConcurrentWebSocketSessionDecorator(
+                    new DiscardingSession(players[i]), 10_000, 512 * 1024));
+            broadcaster.subscribe(ROOM, players[i]);
+        }
+        message = "{\"type\":\"lobby\",\"message\":\"" + "x".repeat(200) + "\"}";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Benchmark
+    public int sharedFrameBroadcast() {
+        return broadcaster.broadcast(ROOM, message).join();
+    }
+
+    @Benchmark
+    public int perRecipientSend() throws IOException {
+        int delivered = 0;
+        for (String player : players) {
+            WebSocketSession session = sessionRegistry.find(player);
+            if (session != null && session.isOpen()) {
+                session.sendMessage(new TextMessage(message));
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RoomBroadcastBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Sessione che codifica il messaggio come farebbe il trasporto e poi lo scarta.
+     */
+    private static final class DiscardingSession implements WebSocketSession {
+
+        private final String id;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private long bytesSent;
+
+        private DiscardingSession(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            bytesSent += ((TextMessage) message).asBytes().length;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
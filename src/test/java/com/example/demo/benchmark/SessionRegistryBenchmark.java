@@ -0,0 +1,125 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.websocket.ConcurrentLongMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Registro delle sessioni con 1M giocatori connessi: {@link ConcurrentLongMap} con chiavi
+ * {@code long}, contro la {@code ConcurrentHashMap<String, ...>} precedente, in cui ogni
+ * ricerca e registrazione convertiva in stringa l'ID intero del giocatore.
+ * Ogni operazione riguarda un giocatore casuale, da più thread: ricerca della sessione e
+ * sostituzione alla riconnessione.
+ *
+ * <p>Prima dei benchmark {@code main} stampa anche l'occupazione di memoria delle due
+ * strutture con 1M voci, escluse le sessioni.</p>
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.SessionRegistryBenchmark}</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SessionRegistryBenchmark {
+
+    private static final int FOOTPRINT_ENTRIES = 1_000_000;
+
+    @Param({"1000000"})
+    private int sessions;
+
+    private ConcurrentHashMap<String, Object> stringMap;
+    private ConcurrentLongMap<Object> longMap;
+    private Object[] values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stringMap = new ConcurrentHashMap<>(sessions);
+        longMap = new ConcurrentLongMap<>(sessions);
+        values = new Object[sessions];
+        for (int i = 0; i < sessions; i++) {
+            values[i] = new Object();
+            stringMap.put(Integer.toString(i), values[i]);
+            longMap.put(i, values[i]);
+        }
+    }
+
+    @Benchmark
+    public Object stringMapLookup() {
+        Integer playerId = ThreadLocalRandom.current().nextInt(sessions);
+        return stringMap.get(playerId.toString());
+    }
+
+    @Benchmark
+    public Object longMapLookup() {
+        int playerId = ThreadLocalRandom.current().nextInt(sessions);
+        return longMap.get(playerId);
+    }
+
+    @Benchmark
+    public Object stringMapReplace() {
+        Integer playerId = ThreadLocalRandom.current().nextInt(sessions);
+        return stringMap.put(playerId.toString(), values[playerId]);
+    }
+
+    @Benchmark
+    public Object longMapReplace() {
+        int playerId = ThreadLocalRandom.current().nextInt(sessions);
+        return longMap.put(playerId, values[playerId]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Object session = new Object();
+        printFootprint("ConcurrentHashMap<String, ...>", entries -> {
+            ConcurrentHashMap<String, Object> map = new ConcurrentHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                map.put(Integer.toString(i), session);
+            }
+            return map;
+        });
+        printFootprint("ConcurrentLongMap", entries -> {
+            ConcurrentLongMap<Object> map = new ConcurrentLongMap<>(0);
+            for (int i = 0; i < entries; i++) {
+                map.put(i, session);
+            }
+            return map;
+        });
+
+        Options options = new OptionsBuilder()
+                .include(SessionRegistryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Stima i byte per voce di una struttura come differenza di heap occupato dopo una GC.
+     */
+    private static void printFootprint(String name, IntFunction<Object> build) {
+        long before = usedHeapAfterGc();
+        Object structure = build.apply(FOOTPRINT_ENTRIES);
+        // La struttura resta raggiungibile fino alla misura
+        long after = usedHeapAfterGc();
+        System.out.printf("%s: %.1f bytes/entry%n", name, (double) (after - before) / FOOTPRINT_ENTRIES);
+        Reference.reachabilityFence(structure);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
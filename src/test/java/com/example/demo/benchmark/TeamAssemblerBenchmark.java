@@ -0,0 +1,99 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.matchmaking.Party;
+import com.example.demo.matchmaking.PlayerRating;
+import com.example.demo.matchmaking.TeamAssembler;
+import com.example.demo.matchmaking.TeamMatch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark della latenza di composizione delle squadre (5 contro 5) al variare
+ * della profondità della coda dei party.
+ * Ogni operazione simula l'arrivo di un party e la composizione di un match attorno a esso;
+ * i party accoppiati vengono sostituiti da nuovi arrivi, così la profondità resta costante.
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.TeamAssemblerBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TeamAssemblerBenchmark {
+
+    private static final int TEAM_SIZE = 5;
+    private static final int MAX_GAP = 200;
+
+    @Param({"1000", "10000", "100000"})
+    private int waitingParties;
+
+    private TeamAssembler assembler;
+    private SplittableRandom random;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new SplittableRandom(42);
+        assembler = new TeamAssembler(TEAM_SIZE, MAX_GAP);
+        for (int i = 0; i < waitingParties; i++) {
+            assembler.add(randomParty());
+        }
+    }
+
+    @Benchmark
+    public TeamMatch assembleArrival() {
+        Party arrival = randomParty();
+        assembler.add(arrival);
+        TeamMatch match = assembler.assemble(arrival);
+        if (match == null) {
+            return null;
+        }
+        List<Party> matched = new ArrayList<>(match.firstTeam());
+        matched.addAll(match.secondTeam());
+        for (Party party : matched) {
+            assembler.remove(party);
+        }
+        // Rimpiazza i party accoppiati tranne l'arrivo, per mantenere costante la profondità
+        for (int i = 1; i < matched.size(); i++) {
+            assembler.add(randomParty());
+        }
+        return match;
+    }
+
+    private Party randomParty() {
+        // Prevalenza di giocatori singoli, come in una coda reale
+        int size = random.nextInt(10) < 5 ? 1 : 1 + random.nextInt(Party.MAX_SIZE);
+        List<String> members = new ArrayList<>(size);
+        int totalRating = 0;
+        for (int i = 0; i < size; i++) {
+            members.add(nextId + "-" + i);
+            totalRating += randomRating();
+        }
+        return new Party(Long.toString(nextId++), members, totalRating);
+    }
+
+    private int randomRating() {
+        // Distribuzione approssimativamente normale attorno al rating di default
+        double gaussian = (random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5) * 2;
+        int rating = PlayerRating.DEFAULT_RATING + (int) (gaussian * 300);
+        return Math.max(0, Math.min(PlayerRating.MAX_RATING, rating));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TeamAssemblerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.demo.simulation;
+
+import com.example.demo.config.MatchmakingConfig;
+import com.example.demo.matchmaking.InMemoryMatchmakingQueueBackend;
+import com.example.demo.matchmaking.Match;
+import com.example.demo.matchmaking.MatchRegistry;
+import com.example.demo.matchmaking.MatchmakingMetrics;
+import com.example.demo.model.User;
+import com.example.demo.service.MatchNotificationService;
+import com.example.demo.service.MatchmakingService;
+import com.example.demo.service.UserService;
+import com.example.demo.websocket.PlayerPresence;
+import com.example.demo.websocket.WebSocketMessageHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulatore di carico del matchmaking.
+ * Esegue {@link MatchmakingService} fuori da Spring, con il backend in memoria e la
+ * consegna WebSocket sostituita da client simulati, e lo sottopone a un flusso continuo
+ * di ingressi e abbandoni:
+ * <ul>
+ *     <li>gli arrivi seguono un processo di Poisson con il tasso configurato;</li>
+ *     <li>ogni giocatore ha una pazienza con distribuzione esponenziale, allo scadere
+ *     della quale esce dalla coda se non è ancora stato accoppiato;</li>
+ *     <li>i rating seguono una distribuzione normale, e modalità e regione sono scelte
+ *     in modo uniforme tra quelle configurate;</li>
+ *     <li>i client confermano il ready-check con la probabilità configurata.</li>
+ * </ul>
+ * Al termine riporta throughput, p50/p99 del tempo di attesa fino al match (dalle
+ * metriche di produzione), latenza di {@code addToQueue}, allocazioni e attività del GC.
+ *
+ * <p>Parametri (proprietà di sistema, tutte opzionali): {@code sim.duration-s} (30),
+ * {@code sim.arrivals-per-second} (2000), {@code sim.mean-patience-ms} (20000, 0 = nessun
+ * abbandono), {@code sim.rating-mean} (1000), {@code sim.rating-stddev} (250),
+ * {@code sim.accept-probability} (1.0), {@code sim.ready-check-timeout-ms} (15000),
+ * {@code sim.modes} (default,ranked), {@code sim.regions} (global,eu,na), {@code sim.seed} (42)
+ * e {@code sim.max-p99-ms} (0 = nessun limite): se il p99 di uno shard supera il limite il processo termina con
+ * codice 1, così che il simulatore possa bloccare una regressione prima del rilascio.</p>
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.simulation.MatchmakingSimulator -Dsim.arrivals-per-second=5000}</p>
+ */
+public class MatchmakingSimulator {
+
+    private static final String TIME_TO_MATCH = "matchmaking.time.to.match";
+
+    private final Settings settings;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Timer joinLatency;
+
+    private final SplittableRandom random;
+    private final ConcurrentHashMap<String, Integer> ratings = new ConcurrentHashMap<>();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong abandons = new AtomicLong();
+
+    private final MatchRegistry matchRegistry = new MatchRegistry();
+    private final MatchNotificationService notificationService;
+    private final MatchmakingService matchmakingService;
+
+    /**
+     * Parametri della simulazione.
+     */
+    record Settings(int durationSeconds, double arrivalsPerSecond, long meanPatienceMs, double ratingMean,
+                    double ratingStdDev, double acceptProbability, long readyCheckTimeoutMs, List<String> modes,
+                    List<String> regions, long seed, long maxP99Ms) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("sim.duration-s", 30),
+                    Double.parseDouble(System.getProperty("sim.arrivals-per-second", "2000")),
+                    Long.getLong("sim.mean-patience-ms", 20_000),
+                    Double.parseDouble(System.getProperty("sim.rating-mean", "1000")),
+                    Double.parseDouble(System.getProperty("sim.rating-stddev", "250")),
+                    Double.parseDouble(System.getProperty("sim.accept-probability", "1.0")),
+                    Long.getLong("sim.ready-check-timeout-ms", 15_000),
+                    Arrays.asList(System.getProperty("sim.modes", "default,ranked").split(",")),
+                    Arrays.asList(System.getProperty("sim.regions", "global,eu,na").split(",")),
+                    Long.getLong("sim.seed", 42),
+                    Long.getLong("sim.max-p99-ms", 0));
+        }
+    }
+
+    MatchmakingSimulator(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+
+        // Percentili calcolati sull'intera durata della simulazione
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!id.getName().equals(TIME_TO_MATCH) && !id.getName().equals("simulation.join.latency")) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.99)
+                        .expiry(Duration.ofDays(1))
+                        .bufferLength(1)
+                        .build()
+                        .merge(config);
+            }
+        });
+        this.joinLatency = Timer.builder("simulation.join.latency").register(meterRegistry);
+
+        MatchmakingConfig config = new MatchmakingConfig();
+        ReflectionTestUtils.setField(config, "maxRatingGap", 200);
+        ReflectionTestUtils.setField(config, "wideningStepMs", 5000L);
+        ReflectionTestUtils.setField(config, "wideningStepGap", 100);
+        ReflectionTestUtils.setField(config, "wideningMaxGap", 800);
+        ReflectionTestUtils.setField(config, "tickIntervalMs", 50L);
+        ReflectionTestUtils.setField(config, "tickBatchSize", 500);
+        ReflectionTestUtils.setField(config, "modes", settings.modes());
+        ReflectionTestUtils.setField(config, "regions", settings.regions());
+        ReflectionTestUtils.setField(config, "matcherThreads", 0);
+        ReflectionTestUtils.setField(config, "teamSize", 5);
+        ReflectionTestUtils.setField(config, "statsFlushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(config, "readyCheckTimeoutMs", settings.readyCheckTimeoutMs());
+        ReflectionTestUtils.setField(config, "notificationThreads", 2);
+        ReflectionTestUtils.setField(config, "notificationQueueCapacity", 100_000);
+
+        MatchmakingMetrics metrics = new MatchmakingMetrics(meterRegistry);
+        this.notificationService = new MatchNotificationService(
+                new SimulatedClients(matchRegistry, settings.acceptProbability(), settings.seed()), metrics, config);
+        this.matchmakingService = new MatchmakingService(notificationService, new SimulatedUsers(ratings), config,
+                metrics, new InMemoryMatchmakingQueueBackend(), matchRegistry, new AlwaysOnline());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        MatchmakingSimulator simulator = new MatchmakingSimulator(Settings.fromSystemProperties());
+        boolean withinLimits = simulator.run();
+        System.exit(withinLimits ? 0 : 1);
+    }
+
+    /**
+     * Esegue la simulazione e stampa il report.
+     *
+     * @return false se il p99 di uno shard supera il limite configurato.
+     */
+    boolean run() throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ScheduledExecutorService abandonExecutor = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "sim-abandon"));
+
+        matchmakingService.start();
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long[] gcBefore = gcTotals();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+
+        // Processo di Poisson: intervalli esponenziali tra un arrivo e il successivo
+        double nextArrival = startNanos;
+        long now;
+        while ((now = System.nanoTime()) < endNanos) {
+            while (nextArrival <= now) {
+                arrive(abandonExecutor);
+                nextArrival += exponential(1e9 / settings.arrivalsPerSecond());
+            }
+            Thread.sleep(1);
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+        long[] gc = gcTotals();
+        abandonExecutor.shutdownNow();
+        matchmakingService.stop();
+        notificationService.stop();
+
+        return report(elapsedSeconds, allocated, gc[0] - gcBefore[0], gc[1] - gcBefore[1]);
+    }
+
+    private void arrive(ScheduledExecutorService abandonExecutor) {
+        String playerId = "sim-" + joins.incrementAndGet();
+        int rating = (int) Math.round(settings.ratingMean() + gaussian() * settings.ratingStdDev());
+        ratings.put(playerId, rating);
+        String mode = settings.modes().get(random.nextInt(settings.modes().size()));
+        String region = settings.regions().get(random.nextInt(settings.regions().size()));
+
+        long start = System.nanoTime();
+        matchmakingService.addToQueue(playerId, mode, region);
+        joinLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (settings.meanPatienceMs() > 0) {
+            long patience = (long) exponential(settings.meanPatienceMs());
+            abandonExecutor.schedule(() -> {
+                if (matchmakingService.removeFromQueue(playerId).equals("You have been removed from the matchmaking queue.")) {
+                    abandons.incrementAndGet();
+                }
+            }, patience, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean report(double elapsedSeconds, long allocatedBytes, long gcCount, long gcMillis) {
+        double matches = meterRegistry.find("matchmaking.matches").counters().stream().mapToDouble(Counter::count).sum();
+        double cancelled = meterRegistry.find("matchmaking.matches.cancelled").counters().stream()
+                .mapToDouble(Counter::count).sum();
+
+        System.out.printf("%nMatchmaking simulation: %.1f s, %.0f arrivals/s, mean patience %d ms%n",
+                elapsedSeconds, settings.arrivalsPerSecond(), settings.meanPatienceMs());
+        System.out.printf("  joins            %,d (%.0f/s)%n", joins.get(), joins.get() / elapsedSeconds);
+        System.out.printf("  abandons         %,d (%.1f%%)%n", abandons.get(), 100.0 * abandons.get() / Math.max(1, joins.get()));
+        System.out.printf("  matches          %,.0f (%.0f/s), cancelled %,.0f%n", matches, matches / elapsedSeconds, cancelled);
+        System.out.printf("  addToQueue       %s%n", percentiles(joinLatency));
+        System.out.printf("  allocation rate  %.1f MB/s (%,d MB total)%n",
+                allocatedBytes / elapsedSeconds / (1024 * 1024), allocatedBytes / (1024 * 1024));
+        System.out.printf("  GC               %d collections, %d ms%n", gcCount, gcMillis);
+        System.out.println("  time to match per shard:");
+
+        boolean withinLimits = true;
+        for (Timer timer : meterRegistry.find(TIME_TO_MATCH).timers()) {
+            if (timer.count() == 0) {
+                continue;
+            }
+            System.out.printf("    %-8s %-8s %-6s %,8d  %s%n", timer.getId().getTag("mode"), timer.getId().getTag("region"),
+                    timer.getId().getTag("queue"), timer.count(), percentiles(timer));
+            double p99 = percentile(timer, 0.99);
+            if (settings.maxP99Ms() > 0 && p99 > settings.maxP99Ms()) {
+                System.out.printf("    p99 %.0f ms exceeds the limit of %d ms%n", p99, settings.maxP99Ms());
+                withinLimits = false;
+            }
+        }
+        return withinLimits;
+    }
+
+    private static String percentiles(Timer timer) {
+        return String.format("p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                percentile(timer, 0.5), percentile(timer, 0.99), timer.max(TimeUnit.MILLISECONDS));
+    }
+
+    private static double percentile(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    private double exponential(double mean) {
+        return -Math.log(1 - random.nextDouble()) * mean;
+    }
+
+    private double gaussian() {
+        // Box-Muller: SplittableRandom non fornisce una distribuzione normale
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Client WebSocket simulati: ogni notifica viene consegnata subito e, alla notifica di
+     * un match, il giocatore conferma con la probabilità configurata. Quando tutti hanno
+     * confermato la partita viene avviata e chiusa, così che il registro non cresca.
+     */
+    private static final class SimulatedClients extends WebSocketMessageHandler {
+
+        private final MatchRegistry matchRegistry;
+        private final double acceptProbability;
+        private final SplittableRandom random;
+
+        SimulatedClients(MatchRegistry matchRegistry, double acceptProbability, long seed) {
+            super(null, null, null, null, null, null, null, null, null);
+            this.matchRegistry = matchRegistry;
+            this.acceptProbability = acceptProbability;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public boolean sendMessageToUser(String playerId, String message) {
+            if (!message.startsWith("Match found!")) {
+                return true;
+            }
+            boolean accept;
+            synchronized (random) {
+                accept = random.nextDouble() < acceptProbability;
+            }
+            Optional<Match> match = matchRegistry.findActiveByPlayer(playerId);
+            if (accept && match.isPresent()) {
+                try {
+                    if (matchRegistry.markReady(match.get(), playerId)) {
+                        matchRegistry.start(match.get());
+                        matchRegistry.finish(match.get(), 1);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Match annullato nel frattempo
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Presenza simulata: tutti i giocatori hanno una connessione aperta.
+     */
+    private static final class AlwaysOnline implements PlayerPresence {
+
+        @Override
+        public boolean isOnline(String playerId) {
+            return true;
+        }
+
+        @Override
+        public void addListener(PresenceListener listener) {
+        }
+    }
+
+    /**
+     * Utenti simulati: il rating estratto all'ingresso viene tradotto in statistiche di
+     * gioco equivalenti, senza accedere al database.
+     */
+    private static final class SimulatedUsers extends UserService {
+
+        private final ConcurrentHashMap<String, Integer> ratings;
+
+        SimulatedUsers(ConcurrentHashMap<String, Integer> ratings) {
+            this.ratings = ratings;
+        }
+
+        @Override
+        public Optional<User> findByUsername(String username) {
+            Integer rating = ratings.get(username);
+            if (rating == null) {
+                return Optional.empty();
+            }
+            // Con 990 partite il rating vale 2 * (vittorie + 5): si ricavano le vittorie dal rating
+            User user = new User();
+            user.setGamesPlayed(990);
+            user.setGamesWon(Math.min(990, Math.max(0, rating / 2 - 5)));
+            return Optional.of(user);
+        }
+    }
+}
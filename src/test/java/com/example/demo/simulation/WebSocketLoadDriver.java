@@ -0,0 +1,353 @@
+package com.example.demo.simulation;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.model.User;
+import com.example.demo.util.JwtUtil;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Generatore di carico per l'endpoint {@code /ws}: apre le connessioni autenticate con il
+ * client WebSocket del JDK, al ritmo configurato, poi ogni client invia un comando a
+ * intervalli regolari e misura la latenza fino alla risposta, associata tramite il requestId.
+ * I client usano virtual thread.
+ *
+ * <p>Lo usa {@code WebSocketLoadDriverTest} con pochi client contro il server di test. Per
+ * una prova con decine di migliaia di client {@code main} avvia l'applicazione nello stesso
+ * processo, con H2 in memoria al posto di MySQL e log ridotti agli avvisi. Parametri
+ * (proprietà di sistema, tutte opzionali): {@code load.clients} (50000),
+ * {@code load.connect-rate} (2000 al secondo), {@code load.max-pending-connects} (1000),
+ * {@code load.duration-s} (60), {@code load.message-interval-ms} (1000),
+ * {@code load.command} (status), {@code load.source-addresses} (4) e {@code load.max-p99-ms}
+ * (0 = nessun limite): se il p99 dei comandi supera il limite il processo termina con codice 1.</p>
+ *
+ * <p>Client e server condividono il processo: servono almeno due descrittori di file per
+ * connessione ({@code ulimit -n 200000} per 50k client) e un heap adeguato
+ * ({@code MAVEN_OPTS=-Xmx4g}). Le connessioni partono da più indirizzi di loopback
+ * (127.0.0.1, 127.0.0.2, ...), così che le porte effimere di un solo indirizzo non
+ * limitino il numero di client.</p>
+ *
+ * <p>Esecuzione: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.simulation.WebSocketLoadDriver -Dload.clients=50000}</p>
+ */
+public class WebSocketLoadDriver {
+
+    private static final String REQUEST_ID_FIELD = "\"requestId\":\"";
+
+    /**
+     * Parametri della prova di carico.
+     */
+    public record Settings(int clients, int connectRate, int maxPendingConnects, int durationSeconds,
+                           long messageIntervalMs, String command, int sourceAddresses) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("load.clients", 50_000),
+                    Integer.getInteger("load.connect-rate", 2000),
+                    Integer.getInteger("load.max-pending-connects", 1000),
+                    Integer.getInteger("load.duration-s", 60),
+                    Long.getLong("load.message-interval-ms", 1000),
+                    System.getProperty("load.command", "status"),
+                    Integer.getInteger("load.source-addresses", 4));
+        }
+    }
+
+    /**
+     * Esito della prova.
+     *
+     * @param connected         Connessioni aperte.
+     * @param connectFailures   Handshake falliti.
+     * @param commandsSent      Comandi inviati.
+     * @param replies           Risposte ricevute.
+     * @param disconnects       Connessioni chiuse dal server o per errore.
+     * @param handshakeP99Ms    p99 della durata degli handshake.
+     * @param commandP99Ms      p99 della latenza dei comandi.
+     */
+    public record Result(int connected, int connectFailures, long commandsSent, long replies, int disconnects,
+                         double handshakeP99Ms, double commandP99Ms) {
+    }
+
+    private final Settings settings;
+    private final URI endpoint;
+    private final LongFunction<String> tokens;
+    // Origine degli istanti usati come requestId, così che siano sempre positivi
+    private final long epochNanos = System.nanoTime() - 1;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Timer connectLatency;
+    private final Timer commandLatency;
+
+    private final List<LoadClient> clients = new ArrayList<>();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger connectFailures = new AtomicInteger();
+    private final AtomicInteger disconnects = new AtomicInteger();
+    private final AtomicLong commandsSent = new AtomicLong();
+
+    /**
+     * @param settings Parametri della prova.
+     * @param endpoint Indirizzo dell'endpoint WebSocket.
+     * @param tokens   Token JWT per l'ID numerico di un giocatore.
+     */
+    public WebSocketLoadDriver(Settings settings, URI endpoint, LongFunction<String> tokens) {
+        this.settings = settings;
+        this.endpoint = endpoint;
+        this.tokens = tokens;
+        // Percentili calcolati sull'intera durata della prova
+        this.connectLatency = timer("load.connect.latency");
+        this.commandLatency = timer("load.command.latency");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        long maxP99Ms = Long.getLong("load.max-p99-ms", 0);
+        // Il riavvio automatico di devtools va escluso prima che il contesto parta
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .run(applicationArguments(settings));
+        int port = context.getEnvironment().getProperty("local.server.port", Integer.class);
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+
+        Result result = new WebSocketLoadDriver(settings, URI.create("ws://127.0.0.1:" + port + "/ws"),
+                playerId -> jwtUtil.generateToken(user(playerId))).run();
+        context.close();
+
+        System.out.printf("%nWebSocket load test: %,d clients for %d s%n", settings.clients(), settings.durationSeconds());
+        System.out.printf("  connections  %,d opened, %,d failed, %,d disconnected%n",
+                result.connected(), result.connectFailures(), result.disconnects());
+        System.out.printf("  commands     %,d sent, %,d replies%n", result.commandsSent(), result.replies());
+        System.out.printf("  p99          handshake %.2f ms, command %.2f ms%n", result.handshakeP99Ms(), result.commandP99Ms());
+        System.exit(maxP99Ms > 0 && result.commandP99Ms() > maxP99Ms ? 1 : 0);
+    }
+
+    /**
+     * Apre le connessioni, genera il carico per la durata configurata e chiude i client.
+     *
+     * @return L'esito della prova.
+     */
+    public Result run() throws Exception {
+        ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "load-driver"));
+        try {
+            connectAll(clientExecutor);
+            if (settings.messageIntervalMs() > 0) {
+                // Ogni giro invia il comando a una frazione dei client, così che il carico sia uniforme
+                long tickMs = 10;
+                int slices = (int) Math.max(1, settings.messageIntervalMs() / tickMs);
+                AtomicLong tick = new AtomicLong();
+                scheduler.scheduleAtFixedRate(() -> sendCommands((int) (tick.getAndIncrement() % slices), slices),
+                        tickMs, tickMs, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(settings.durationSeconds()));
+            // Esito letto prima di chiudere i client: le chiusure non contano come disconnessioni
+            return new Result(connected.get(), connectFailures.get(), commandsSent.get(), commandLatency.count(),
+                    disconnects.get(), p99(connectLatency), p99(commandLatency));
+        } finally {
+            scheduler.shutdownNow();
+            clients.forEach(LoadClient::close);
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Argomenti dell'applicazione: H2 in memoria al posto di MySQL, porta casuale, log ridotti
+     * e limiti del container adeguati al numero di client.
+     */
+    private static String[] applicationArguments(Settings settings) {
+        return new String[]{
+                "--server.port=0",
+                "--server.tomcat.max-connections=" + (settings.clients() + 1000),
+                "--server.tomcat.accept-count=" + settings.maxPendingConnects(),
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.demo=WARN",
+        };
+    }
+
+    /**
+     * Apre le connessioni al ritmo configurato, con un limite di handshake in corso, e
+     * attende che siano tutti terminati.
+     */
+    private void connectAll(ExecutorService executor) throws Exception {
+        HttpClient[] httpClients = new HttpClient[Math.max(1, settings.sourceAddresses())];
+        for (int i = 0; i < httpClients.length; i++) {
+            httpClients[i] = HttpClient.newBuilder()
+                    .localAddress(InetAddress.getByName("127.0.0." + (i + 1)))
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(executor)
+                    .build();
+        }
+
+        Semaphore pending = new Semaphore(settings.maxPendingConnects());
+        long start = System.nanoTime();
+        double intervalNanos = 1e9 / settings.connectRate();
+        for (int i = 0; i < settings.clients(); i++) {
+            long wait = start + (long) (i * intervalNanos) - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            pending.acquire();
+
+            LoadClient client = new LoadClient();
+            clients.add(client);
+            long connectStart = System.nanoTime();
+            httpClients[i % httpClients.length].newWebSocketBuilder()
+                    .header("Authorization", "Bearer " + tokens.apply(i + 1))
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .buildAsync(endpoint, client)
+                    .whenComplete((webSocket, error) -> {
+                        pending.release();
+                        if (error != null) {
+                            connectFailures.incrementAndGet();
+                            return;
+                        }
+                        connectLatency.record(System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+                        connected.incrementAndGet();
+                        client.webSocket = webSocket;
+                    });
+        }
+        pending.acquire(settings.maxPendingConnects());
+        pending.release(settings.maxPendingConnects());
+    }
+
+    private void sendCommands(int slice, int slices) {
+        for (int i = slice; i < clients.size(); i += slices) {
+            if (clients.get(i).sendCommand()) {
+                commandsSent.incrementAndGet();
+            }
+        }
+    }
+
+    private Timer timer(String name) {
+        return Timer.builder(name)
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(meterRegistry);
+    }
+
+    private long clock() {
+        return System.nanoTime() - epochNanos;
+    }
+
+    /**
+     * Legge il requestId numerico di una risposta, senza deserializzarla.
+     *
+     * @return Il requestId, o -1 se è assente.
+     */
+    private static long requestId(String message) {
+        int start = message.indexOf(REQUEST_ID_FIELD);
+        if (start < 0) {
+            return -1;
+        }
+        long value = -1;
+        for (int i = start + REQUEST_ID_FIELD.length(); i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = Math.max(value, 0) * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static double p99(Timer timer) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == 0.99) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static User user(long playerId) {
+        User user = new User();
+        user.setId(playerId);
+        user.setUsername("load-" + playerId);
+        user.setEmail("load-" + playerId + "@example.com");
+        return user;
+    }
+
+    /**
+     * Client di un giocatore: invia i comandi e misura la latenza delle risposte. Il
+     * requestId dei comandi è l'istante di invio.
+     */
+    private final class LoadClient implements WebSocket.Listener {
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final StringBuilder partial = new StringBuilder();
+        private volatile WebSocket webSocket;
+
+        /**
+         * @return false se la connessione non è aperta o l'invio precedente non è terminato.
+         */
+        private boolean sendCommand() {
+            WebSocket socket = webSocket;
+            if (socket == null || socket.isOutputClosed() || !sending.compareAndSet(false, true)) {
+                return false;
+            }
+            String command = "{\"type\":\"" + settings.command() + "\"," + REQUEST_ID_FIELD + clock() + "\"}";
+            socket.sendText(command, true).whenComplete((ignored, error) -> sending.set(false));
+            return true;
+        }
+
+        private void close() {
+            WebSocket socket = webSocket;
+            if (socket != null && !socket.isOutputClosed()) {
+                socket.sendClose(WebSocket.NORMAL_CLOSURE, "load test finished");
+            }
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            long received = clock();
+            partial.append(data);
+            if (last) {
+                long sentAt = requestId(partial.toString());
+                if (sentAt > 0) {
+                    commandLatency.record(received - sentAt, TimeUnit.NANOSECONDS);
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            disconnects.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            disconnects.incrementAndGet();
+        }
+    }
+}